@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+/**
+ * Receives the results of a batch invocation performed
+ * by RemoteInvoke, one invocation at a time.
+ *
+ * When a batch is split across a ForkJoinPool, results
+ * are delivered concurrently and in no particular order,
+ * so implementations must be thread-safe and should use
+ * the index to identify which row a result belongs to.
+ *
+ * Created by craig on 10/16/26.
+ */
+public interface BatchResultConsumer {
+
+    /**
+     * Accept the result of a single invocation in the batch.
+     *
+     * @param index the index of the row of arguments that was invoked.
+     * @param result the result of the invocation, or null if there was none.
+     */
+    void accept(int index, Object result);
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An accessor for the bean properties of a class, compiled once
+ * per class. The properties are discovered from the public getter
+ * and setter methods of the class, and each one is assigned a dense
+ * index, in alphabetical order of the property names. Properties
+ * can then be read and written by index without resolving any methods.
+ *
+ * Getters are public, non-static methods named getXxx() that return
+ * a value, or isXxx() that return a primitive boolean. Setters are
+ * public, non-static void methods named setXxx(...) with a single param.
+ * If a property has a getter, its setter must take exactly the type
+ * the getter returns, otherwise the property is read-only. If it has
+ * no getter, it must have only one setter to be writable.
+ *
+ * The getters and setters are invoked with the invokers generated
+ * by DirectInvokers, falling back to their MethodHandles when an
+ * invoker can't be generated. Values passed to setters are checked
+ * against the property type, but are not converted, so they must be
+ * an instance of the type, or the wrapper of a primitive type.
+ *
+ * BeanAccessors are cached per class using a ClassValue, and are
+ * immutable, so they can be used by any number of threads.
+ *
+ * Created by craig on 10/16/26.
+ */
+public final class BeanAccessor<T> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final ClassValue<BeanAccessor<?>> accessors = new ClassValue<BeanAccessor<?>>() {
+        @Override
+        protected BeanAccessor<?> computeValue(Class<?> type) {
+            return new BeanAccessor<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final Property[] properties;
+    private final Map<String,Integer> indexes;
+    private final List<String> propertyNames;
+
+    /**
+     * The indexes of the properties that are both readable
+     * and writable, which are the ones copied by copy(...).
+     */
+    private final int[] copyableIndexes;
+
+    private BeanAccessor(Class<T> type){
+        this.type = type;
+        this.properties = discoverProperties(type);
+
+        Map<String,Integer> indexes = new HashMap<>();
+        List<String> propertyNames = new ArrayList<>(properties.length);
+        int[] copyable = new int[properties.length];
+        int copyableCount = 0;
+        for(int i = 0; i < properties.length; i++){
+            indexes.put(properties[i].name, i);
+            propertyNames.add(properties[i].name);
+            if(properties[i].getter != null && properties[i].setter != null){
+                copyable[copyableCount++] = i;
+            }
+        }
+        this.indexes = indexes;
+        this.propertyNames = Collections.unmodifiableList(propertyNames);
+        this.copyableIndexes = Arrays.copyOf(copyable, copyableCount);
+    }
+
+    /**
+     * Get the accessor for the provided class, compiling
+     * it if it hasn't been used before.
+     *
+     * @param type the class.
+     * @param <T> the type of the class.
+     * @return the accessor for the class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanAccessor<T> forClass(Class<T> type){
+        return (BeanAccessor<T>) accessors.get(type);
+    }
+
+    public Class<T> getType(){
+        return type;
+    }
+
+    /**
+     * Get the number of properties. The properties
+     * are indexed from 0 to this count, exclusive.
+     *
+     * @return the number of properties.
+     */
+    public int getPropertyCount(){
+        return properties.length;
+    }
+
+    /**
+     * Get the names of all the properties, in the order of their indexes.
+     *
+     * @return the unmodifiable list of property names.
+     */
+    public List<String> getPropertyNames(){
+        return propertyNames;
+    }
+
+    /**
+     * Get the index of the property with the provided name.
+     *
+     * @param propertyName the name of the property.
+     * @return the index of the property, or -1 if there is none with that name.
+     */
+    public int indexOf(String propertyName){
+        Integer index = indexes.get(propertyName);
+        return index != null ? index : -1;
+    }
+
+    public String getPropertyName(int index){
+        return properties[index].name;
+    }
+
+    /**
+     * Get the type of the property, which is the type returned by
+     * its getter, or taken by its setter if it is write-only.
+     *
+     * @param index the index of the property.
+     * @return the type of the property.
+     */
+    public Class<?> getPropertyType(int index){
+        return properties[index].type;
+    }
+
+    public boolean isReadable(int index){
+        return properties[index].getter != null;
+    }
+
+    public boolean isWritable(int index){
+        return properties[index].setter != null;
+    }
+
+    /**
+     * Get the value of a property.
+     *
+     * @param obj the object to get the value from.
+     * @param index the index of the property.
+     * @return the value of the property.
+     * @throws NoMethodException if the property has no getter.
+     * @throws InvocationException if the getter throws a checked exception.
+     */
+    public Object get(T obj, int index) throws ReflectiveException{
+        Property property = properties[index];
+        if(property.getterInvoker == null){
+            throw new NoMethodException("Property " + property.name + " of class " + type.getName() + " has no getter");
+        }
+
+        try{
+            return property.getterInvoker.invoke(obj, NO_ARGS);
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    /**
+     * Get the value of a property by name.
+     *
+     * @param obj the object to get the value from.
+     * @param propertyName the name of the property.
+     * @return the value of the property.
+     * @throws NoMethodException if there is no property with that name, or it has no getter.
+     * @throws InvocationException if the getter throws a checked exception.
+     */
+    public Object get(T obj, String propertyName) throws ReflectiveException{
+        return get(obj, requireIndex(propertyName));
+    }
+
+    /**
+     * Set the value of a property.
+     *
+     * @param obj the object to set the value on.
+     * @param index the index of the property.
+     * @param value the new value of the property.
+     * @throws NoMethodException if the property has no setter.
+     * @throws ReflectiveException if the value isn't valid for the type of the property.
+     * @throws InvocationException if the setter throws a checked exception.
+     */
+    public void set(T obj, int index, Object value) throws ReflectiveException{
+        Property property = properties[index];
+        if(property.setterInvoker == null){
+            throw new NoMethodException("Property " + property.name + " of class " + type.getName() + " has no setter");
+        }
+
+        if(value == null ? property.type.isPrimitive() : !property.wrappedType.isInstance(value)){
+            throw new ReflectiveException("Invalid value for property " + property.name + " of class " + type.getName() +
+                    ". Expected: " + property.type.getName() + " Actual: " + (value != null ? value.getClass().getName() : "null"));
+        }
+
+        try{
+            property.invokeSetter(obj, value);
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    /**
+     * Set the value of a property by name.
+     *
+     * @param obj the object to set the value on.
+     * @param propertyName the name of the property.
+     * @param value the new value of the property.
+     * @throws NoMethodException if there is no property with that name, or it has no setter.
+     * @throws ReflectiveException if the value isn't valid for the type of the property.
+     * @throws InvocationException if the setter throws a checked exception.
+     */
+    public void set(T obj, String propertyName, Object value) throws ReflectiveException{
+        set(obj, requireIndex(propertyName), value);
+    }
+
+    /**
+     * Copy the value of every property that is both readable and
+     * writable from one object to another. The values are copied
+     * as they are, so mutable values are shared by both objects.
+     *
+     * @param src the object to copy the values from.
+     * @param dst the object to copy the values to.
+     * @throws InvocationException if a getter or setter throws a checked exception.
+     */
+    public void copy(T src, T dst) throws ReflectiveException{
+        try{
+            for(int index : copyableIndexes){
+                Property property = properties[index];
+                property.invokeSetter(dst, property.getterInvoker.invoke(src, NO_ARGS));
+            }
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    private int requireIndex(String propertyName) throws NoMethodException{
+        Integer index = indexes.get(propertyName);
+        if(index == null){
+            throw new NoMethodException("No property exists with the name " + propertyName + " on class " + type.getName());
+        }
+        return index;
+    }
+
+    @Override
+    public String toString(){
+        return "BeanAccessor[" + type.getName() + "]" + propertyNames;
+    }
+
+    /**
+     * Discover the properties of the class from its public
+     * getters and setters, sorted by name.
+     */
+    private static Property[] discoverProperties(Class<?> type){
+        Map<String,Method> getters = new HashMap<>();
+        Map<String,List<Method>> setters = new HashMap<>();
+        for(Method method : ReflectionMetadata.forClass(type).getMethods()){
+            if(Modifier.isStatic(method.getModifiers()) || method.isBridge()){
+                continue;
+            }
+
+            String name = method.getName();
+            int paramCount = ReflectionMetadata.getParameterCount(method);
+            Class<?> returnType = method.getReturnType();
+            if(paramCount == 0 && name.length() > 2 && name.startsWith("is") && returnType == boolean.class){
+                //An isXxx() getter takes precedence over a getXxx() one for the same property
+                getters.put(propertyName(name, 2), method);
+            }
+            else if(paramCount == 0 && name.length() > 3 && name.startsWith("get") && returnType != void.class && !name.equals("getClass")){
+                String propertyName = propertyName(name, 3);
+                if(!getters.containsKey(propertyName)){
+                    getters.put(propertyName, method);
+                }
+            }
+            else if(paramCount == 1 && name.length() > 3 && name.startsWith("set") && returnType == void.class){
+                String propertyName = propertyName(name, 3);
+                List<Method> propertySetters = setters.get(propertyName);
+                if(propertySetters == null){
+                    propertySetters = new ArrayList<>(1);
+                    setters.put(propertyName, propertySetters);
+                }
+                propertySetters.add(method);
+            }
+        }
+
+        Map<String,Property> properties = new TreeMap<>();
+        for(Map.Entry<String,Method> entry : getters.entrySet()){
+            Method getter = entry.getValue();
+            Method setter = null;
+            List<Method> propertySetters = setters.get(entry.getKey());
+            if(propertySetters != null){
+                for(Method candidate : propertySetters){
+                    if(ReflectionMetadata.getParameterTypes(candidate)[0] == getter.getReturnType()){
+                        setter = candidate;
+                        break;
+                    }
+                }
+            }
+            properties.put(entry.getKey(), new Property(entry.getKey(), getter.getReturnType(), getter, setter));
+        }
+
+        for(Map.Entry<String,List<Method>> entry : setters.entrySet()){
+            if(!getters.containsKey(entry.getKey()) && entry.getValue().size() == 1){
+                Method setter = entry.getValue().get(0);
+                properties.put(entry.getKey(), new Property(entry.getKey(), ReflectionMetadata.getParameterTypes(setter)[0], null, setter));
+            }
+        }
+
+        return properties.values().toArray(new Property[properties.size()]);
+    }
+
+    /**
+     * Get the name of the property from the name of its getter or setter,
+     * following the JavaBeans rules: the first letter is lower-cased,
+     * unless the first two letters are both upper case, like "URL".
+     */
+    private static String propertyName(String methodName, int prefixLength){
+        String name = methodName.substring(prefixLength);
+        if(name.length() > 1 && Character.isUpperCase(name.charAt(0)) && Character.isUpperCase(name.charAt(1))){
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * A single property, with the invokers for its getter and setter.
+     */
+    private static final class Property {
+
+        private final String name;
+        private final Class<?> type;
+        private final Class<?> wrappedType;
+        private final Method getter;
+        private final Method setter;
+        private final DirectInvoker getterInvoker;
+        private final DirectInvoker setterInvoker;
+
+        Property(String name, Class<?> type, Method getter, Method setter){
+            this.name = name;
+            this.type = type;
+            this.wrappedType = ParamUtils.wrap(type);
+            this.getter = getter;
+            this.setter = setter;
+            this.getterInvoker = getter != null ? MethodInvoker.forMethod(getter).getDirectInvoker() : null;
+            this.setterInvoker = setter != null ? MethodInvoker.forMethod(setter).getDirectInvoker() : null;
+        }
+
+        void invokeSetter(Object target, Object value) throws Throwable{
+            //A generated setter invoker can be called without packing the value into an array
+            if(setterInvoker instanceof DirectInvokers.Run1){
+                ((DirectInvokers.Run1) setterInvoker).call(target, value);
+            }
+            else{
+                setterInvoker.invoke(target, new Object[]{value});
+            }
+        }
+    }
+
+}
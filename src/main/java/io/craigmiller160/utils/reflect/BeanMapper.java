@@ -0,0 +1,284 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps objects to and from maps of their bean properties, such
+ * as the parameters of a Query. The plan for each class is built
+ * once and cached using a ClassValue. It holds the BeanAccessor for
+ * the class, the order of its readable properties, and the conversion
+ * for each of its writable ones.
+ *
+ * Objects are mapped to a LinkedHashMap, sized for the number of
+ * readable properties, with the properties in the order of their
+ * indexes. Maps are mapped to objects by setting the property for
+ * each entry in the map. Entries without a matching writable property
+ * are ignored, and properties without an entry are left unchanged.
+ *
+ * Values are converted for their properties using the same rules as
+ * ParamUtils uses for parameters: a value must be assignable to the
+ * type of the property, or for a primitive property, must be a wrapper
+ * that can be widened to it. So an Integer can be mapped to a long
+ * property, but not to a Long one.
+ *
+ * For large result sets, toMaps(...) and fromMaps(...) map an
+ * Iterator lazily, mapping each element only when it is requested.
+ *
+ * Created by craig on 10/16/26.
+ */
+public final class BeanMapper<T> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final ClassValue<BeanMapper<?>> mappers = new ClassValue<BeanMapper<?>>() {
+        @Override
+        protected BeanMapper<?> computeValue(Class<?> type) {
+            return new BeanMapper<>(BeanAccessor.forClass(type));
+        }
+    };
+
+    private final BeanAccessor<T> accessor;
+
+    /**
+     * The indexes of the readable properties, in order.
+     */
+    private final int[] readableIndexes;
+
+    /**
+     * The names of the readable properties, in the same order.
+     */
+    private final String[] readableNames;
+
+    /**
+     * The number of entries a map can hold before resizing,
+     * so it can contain every readable property.
+     */
+    private final int mapCapacity;
+
+    /**
+     * The conversion for each property, by index. It
+     * is null for properties that aren't writable.
+     */
+    private final Conversion[] conversions;
+
+    //Created lazily, so classes without a no-arg constructor can still be mapped to maps
+    private volatile ObjectCreator.Factory<T> factory;
+
+    private BeanMapper(BeanAccessor<T> accessor){
+        this.accessor = accessor;
+
+        int propertyCount = accessor.getPropertyCount();
+        int readableCount = 0;
+        for(int i = 0; i < propertyCount; i++){
+            if(accessor.isReadable(i)){
+                readableCount++;
+            }
+        }
+
+        this.readableIndexes = new int[readableCount];
+        this.readableNames = new String[readableCount];
+        this.conversions = new Conversion[propertyCount];
+        int readable = 0;
+        for(int i = 0; i < propertyCount; i++){
+            if(accessor.isReadable(i)){
+                readableIndexes[readable] = i;
+                readableNames[readable] = accessor.getPropertyName(i);
+                readable++;
+            }
+            if(accessor.isWritable(i)){
+                conversions[i] = new Conversion(accessor.getPropertyType(i));
+            }
+        }
+        this.mapCapacity = (int) (readableCount / 0.75f) + 1;
+    }
+
+    /**
+     * Get the mapper for the provided class, building
+     * its plan if it hasn't been used before.
+     *
+     * @param type the class.
+     * @param <T> the type of the class.
+     * @return the mapper for the class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanMapper<T> forClass(Class<T> type){
+        return (BeanMapper<T>) mappers.get(type);
+    }
+
+    public BeanAccessor<T> getAccessor(){
+        return accessor;
+    }
+
+    /**
+     * Map the readable properties of an object to a new map.
+     *
+     * @param obj the object to map.
+     * @return the map of property names to values.
+     * @throws InvocationException if a getter throws a checked exception.
+     */
+    public Map<String,Object> toMap(T obj) throws ReflectiveException{
+        Map<String,Object> map = new LinkedHashMap<>(mapCapacity);
+        for(int i = 0; i < readableIndexes.length; i++){
+            map.put(readableNames[i], accessor.get(obj, readableIndexes[i]));
+        }
+        return map;
+    }
+
+    /**
+     * Map the entries of a map to a new instance of the class,
+     * created with its no-arg constructor.
+     *
+     * @param map the map of property names to values.
+     * @return the new instance.
+     * @throws ReflectiveException if the class can't be instantiated,
+     *          or a value can't be converted for its property.
+     * @throws InvocationException if a setter throws a checked exception.
+     */
+    public T fromMap(Map<String,?> map) throws ReflectiveException{
+        T obj = getFactory().newInstance(NO_ARGS);
+        populate(obj, map);
+        return obj;
+    }
+
+    /**
+     * Set the properties of an existing object from the entries of a map.
+     *
+     * @param obj the object to set the properties on.
+     * @param map the map of property names to values.
+     * @throws ReflectiveException if a value can't be converted for its property.
+     * @throws InvocationException if a setter throws a checked exception.
+     */
+    public void populate(T obj, Map<String,?> map) throws ReflectiveException{
+        for(Map.Entry<String,?> entry : map.entrySet()){
+            int index = accessor.indexOf(entry.getKey());
+            if(index >= 0 && conversions[index] != null){
+                accessor.set(obj, index, conversions[index].convert(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Lazily map objects to maps. Each object is mapped
+     * when the returned iterator reaches it.
+     *
+     * @param objects the objects to map.
+     * @return an iterator of the maps.
+     */
+    public Iterator<Map<String,Object>> toMaps(final Iterator<? extends T> objects){
+        return new Iterator<Map<String,Object>>() {
+            @Override
+            public boolean hasNext() {
+                return objects.hasNext();
+            }
+
+            @Override
+            public Map<String,Object> next() {
+                return toMap(objects.next());
+            }
+        };
+    }
+
+    /**
+     * Lazily map maps to new instances of the class. Each map
+     * is mapped when the returned iterator reaches it.
+     *
+     * @param maps the maps to map.
+     * @return an iterator of the new instances.
+     */
+    public Iterator<T> fromMaps(final Iterator<? extends Map<String,?>> maps){
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return maps.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return fromMap(maps.next());
+            }
+        };
+    }
+
+    private ObjectCreator.Factory<T> getFactory() throws ReflectiveException{
+        ObjectCreator.Factory<T> result = factory;
+        if(result == null){
+            result = ObjectCreator.factoryFor(accessor.getType());
+            factory = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString(){
+        return "BeanMapper[" + accessor.getType().getName() + "]";
+    }
+
+    /**
+     * The conversion of values for a single writable property.
+     */
+    private static final class Conversion {
+
+        private final Class<?> type;
+        private final Class<?> wrappedType;
+
+        Conversion(Class<?> type){
+            this.type = type;
+            this.wrappedType = ParamUtils.wrap(type);
+        }
+
+        /**
+         * Convert a value for the property, widening it if the
+         * property is a primitive and the value is a narrower one.
+         */
+        Object convert(String propertyName, Object value) throws ReflectiveException{
+            //Values of the exact type, the most common case, need no further checks
+            if(value != null && value.getClass() == wrappedType){
+                return value;
+            }
+
+            if(!ParamUtils.validateParamType(type, value != null ? value.getClass() : null)){
+                throw new ReflectiveException("Invalid value for property " + propertyName + ". Expected: " + type.getName() +
+                        " Actual: " + (value != null ? value.getClass().getName() : "null"));
+            }
+
+            if(!type.isPrimitive()){
+                return value;
+            }
+
+            //Only the numeric primitives can be widened, and a char can only be widened to an int or wider
+            Number number = value instanceof Character ? Integer.valueOf((Character) value) : (Number) value;
+            if(type == int.class){
+                return number.intValue();
+            }
+            else if(type == long.class){
+                return number.longValue();
+            }
+            else if(type == double.class){
+                return number.doubleValue();
+            }
+            else if(type == float.class){
+                return number.floatValue();
+            }
+            return number.shortValue();
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs a group of already validated invocations concurrently,
+ * waiting for all of them to complete before returning.
+ *
+ * If any of the invocations fail, the first failure is rethrown
+ * once they have all completed, with every other failure added
+ * to it as a suppressed exception.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class Broadcast {
+
+    private final List<ObjectAndMethod> oams = new ArrayList<>();
+    private final List<Object[]> params = new ArrayList<>();
+
+    /**
+     * Add an invocation to the broadcast.
+     *
+     * @param oam the method to invoke and its source.
+     * @param finalParams the validated and converted parameters.
+     */
+    void add(ObjectAndMethod oam, Object[] finalParams){
+        oams.add(oam);
+        params.add(finalParams);
+    }
+
+    int size(){
+        return oams.size();
+    }
+
+    /**
+     * Perform all the invocations using the provided executor, and
+     * wait for them to complete.
+     *
+     * If failFast is true, the first failure cancels all the other
+     * invocations, interrupting any that are running. This method still
+     * waits for every invocation that was started to finish, so no
+     * invocation outlives the broadcast. Failures caused by the
+     * cancellation are not reported.
+     *
+     * If the calling thread is a worker of the executor, the invocations
+     * are run on it one at a time instead, because a worker waiting on
+     * tasks queued behind it in its own pool can deadlock. Otherwise the
+     * caller waits using ForkJoinPool.managedBlock(), so a caller that is
+     * a worker of another pool lets that pool compensate for it.
+     *
+     * @param executor the executor to perform the invocations with.
+     * @param ordered if true, failures are reported in the order the
+     *                invocations were added. If false, they are reported
+     *                in the order they occurred.
+     * @param failFast if the first failure should cancel the other invocations.
+     * @throws InvocationException if interrupted while waiting for the invocations.
+     * @throws RuntimeException the first failure, if any invocations fail.
+     * @throws Error the first failure, if any invocations fail.
+     */
+    void invokeAll(Executor executor, boolean ordered, boolean failFast){
+        int count = oams.size();
+        final Throwable[] failuresByIndex = new Throwable[count];
+        final ConcurrentLinkedQueue<Throwable> failuresByCompletion = new ConcurrentLinkedQueue<>();
+        final CountDownLatch latch = new CountDownLatch(count);
+        final List<Task> tasks = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++){
+            tasks.add(new Task(i, oams.get(i), params.get(i), failFast, tasks, failuresByIndex, failuresByCompletion, latch));
+        }
+
+        if(isWorkerOf(executor)){
+            for(Task task : tasks){
+                task.run();
+            }
+        }
+        else{
+            for(Task task : tasks){
+                try{
+                    executor.execute(task);
+                }
+                catch(RejectedExecutionException ex){
+                    task.reject(ex);
+                }
+            }
+        }
+
+        try{
+            ForkJoinPool.managedBlock(new LatchBlocker(latch));
+        }
+        catch(InterruptedException ex){
+            //The caller is no longer waiting, so nothing started by this broadcast should keep running
+            for(Task task : tasks){
+                task.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new InvocationException("Interrupted while waiting for invocations to complete", ex);
+        }
+
+        List<Throwable> failures = new ArrayList<>();
+        if(ordered){
+            for(Throwable failure : failuresByIndex){
+                if(failure != null){
+                    failures.add(failure);
+                }
+            }
+        }
+        else{
+            failures.addAll(failuresByCompletion);
+        }
+
+        rethrowFailures(failures);
+    }
+
+    private static boolean isWorkerOf(Executor executor){
+        Thread current = Thread.currentThread();
+        return executor instanceof ForkJoinPool && current instanceof ForkJoinWorkerThread &&
+                ((ForkJoinWorkerThread) current).getPool() == executor;
+    }
+
+    /**
+     * If there are any failures, rethrow the first one with all
+     * the others added to it as suppressed exceptions.
+     *
+     * @param failures the failures.
+     */
+    static void rethrowFailures(List<Throwable> failures){
+        if(failures.isEmpty()){
+            return;
+        }
+
+        Throwable primary = failures.get(0);
+        for(int i = 1; i < failures.size(); i++){
+            if(failures.get(i) != primary){
+                primary.addSuppressed(failures.get(i));
+            }
+        }
+
+        ExceptionHandler.parseAndRethrowException(primary);
+    }
+
+    /**
+     * Waits for the latch in a way a ForkJoinPool can compensate for.
+     */
+    private static final class LatchBlocker implements ForkJoinPool.ManagedBlocker {
+
+        private final CountDownLatch latch;
+
+        LatchBlocker(CountDownLatch latch){
+            this.latch = latch;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            latch.await();
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return latch.getCount() == 0;
+        }
+    }
+
+    /**
+     * A single invocation in the broadcast. The latch is counted
+     * down exactly once for each task: when the invocation finishes,
+     * or when the task is cancelled before it has started.
+     */
+    private static final class Task extends FutureTask<Void> {
+
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int FINISHED = 2;
+
+        private final int index;
+        private final boolean failFast;
+        private final List<Task> siblings;
+        private final Throwable[] failuresByIndex;
+        private final ConcurrentLinkedQueue<Throwable> failuresByCompletion;
+        private final CountDownLatch latch;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        Task(int index, final ObjectAndMethod oam, final Object[] finalParams, boolean failFast, List<Task> siblings,
+             Throwable[] failuresByIndex, ConcurrentLinkedQueue<Throwable> failuresByCompletion, CountDownLatch latch){
+            super(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    RemoteInvoke.invokeMethod(oam, finalParams);
+                    return null;
+                }
+            });
+            this.index = index;
+            this.failFast = failFast;
+            this.siblings = siblings;
+            this.failuresByIndex = failuresByIndex;
+            this.failuresByCompletion = failuresByCompletion;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            if(!state.compareAndSet(PENDING, RUNNING)){
+                return;
+            }
+
+            try{
+                super.run();
+                if(isCancelled()){
+                    //The interrupt was meant for this invocation, it shouldn't leak to the thread running it
+                    Thread.interrupted();
+                }
+                else{
+                    try{
+                        get();
+                    }
+                    catch(ExecutionException ex){
+                        fail(ex.getCause());
+                    }
+                    catch(InterruptedException ex){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            finally{
+                finish();
+            }
+        }
+
+        @Override
+        protected void done() {
+            //If cancelled before it ever ran, the task will never count down the latch itself
+            if(isCancelled() && state.compareAndSet(PENDING, FINISHED)){
+                latch.countDown();
+            }
+        }
+
+        void reject(RejectedExecutionException ex){
+            if(state.compareAndSet(PENDING, RUNNING)){
+                fail(ex);
+                finish();
+            }
+        }
+
+        private void fail(Throwable ex){
+            failuresByIndex[index] = ex;
+            failuresByCompletion.add(ex);
+
+            if(failFast){
+                for(Task sibling : siblings){
+                    if(sibling != this){
+                        sibling.cancel(true);
+                    }
+                }
+            }
+        }
+
+        private void finish(){
+            state.set(FINISHED);
+            latch.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Field;
+
+/**
+ * A special implementation of ReflectiveFieldHolder, where
+ * the source object is simply a Class type. It can be used
+ * to track fields and their parent classes, and to create an
+ * ObjectAndField for a specific instance of the class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class ClassAndField extends ReflectiveFieldHolder<Class<?>> {
+
+    public ClassAndField(Class<?> type, Field field){
+        super(type, field);
+    }
+
+    public ClassAndField(ClassAndField caf){
+        this(caf.getSource(), caf.getReflectiveComponent());
+    }
+
+    public boolean isAssignableFrom(Class<?> clazz){
+        return getSource().isAssignableFrom(clazz);
+    }
+
+    /**
+     * Create the holder for this field on an instance
+     * of the class, so it can be accessed.
+     *
+     * @param obj the instance of the class, or null for a static field.
+     * @return the holder for the field on the instance.
+     */
+    public ObjectAndField forObject(Object obj){
+        return new ObjectAndField(obj, getReflectiveComponent());
+    }
+
+    /**
+     * This method is somewhat redundant for this class,
+     * since the source is already the source type.
+     *
+     * @return the class type of the source.
+     */
+    @Override
+    public Class<?> getSourceType(){
+        return getSource();
+    }
+
+    @Override
+    public String toString(){
+        return getSource().getName() + "." + getFieldName();
+    }
+
+}
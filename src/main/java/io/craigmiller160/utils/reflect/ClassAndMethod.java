@@ -76,9 +76,10 @@ public class ClassAndMethod extends ReflectiveMethodHolder<Class<?>> {
     }
 
     private String[] getParamTypeNames(){
-        String[] paramTypeNames = new String[getParamTypes().length];
+        Class<?>[] paramTypes = ReflectionMetadata.getParameterTypes(getReflectiveComponent());
+        String[] paramTypeNames = new String[paramTypes.length];
         for(int i = 0; i < paramTypeNames.length; i++){
-            paramTypeNames[i] = getParamTypes()[i].getName();
+            paramTypeNames[i] = paramTypes[i].getName();
         }
         return paramTypeNames;
     }
@@ -36,8 +36,19 @@ public class ConstructorUtils {
 //        return ParamUtils.isValidInvocation(constructor.getParameterTypes(), constructor.isVarArgs(), newParams);
 //    }
 
+    /**
+     * Validate that the provided parameters can be used to invoke the constructor,
+     * and convert them for a varargs invocation if necessary. This follows the
+     * rules of ParamUtils.validateInvocationAndConvertParams(...), but uses a
+     * cached ConversionPlan for the constructor and the classes of the parameters.
+     *
+     * @param constructor the constructor to be invoked.
+     * @param newParams the parameters to use for the invocation.
+     * @return an array of (possibly converted) parameters if the validation
+     * passes, null if the validation fails.
+     */
     public static Object[] validateInvocationAndConvertParams(Constructor<?> constructor, Object...newParams){
-        return ParamUtils.validateInvocationAndConvertParams(constructor.getParameterTypes(), constructor.isVarArgs(), newParams);
+        return ConversionPlan.forInvocation(constructor, newParams).apply(newParams);
     }
 
     /**
@@ -51,8 +62,8 @@ public class ConstructorUtils {
     public static boolean isDuplicateConstructor(Constructor<?> c1, Constructor<?> c2){
         boolean duplicate = false;
         if(c1.getName().equals(c2.getName())){
-            Class<?>[] c1ParamTypes = c1.getParameterTypes();
-            Class<?>[] c2ParamTypes = c2.getParameterTypes();
+            Class<?>[] c1ParamTypes = ReflectionMetadata.getParameterTypes(c1);
+            Class<?>[] c2ParamTypes = ReflectionMetadata.getParameterTypes(c2);
             if(c1ParamTypes.length == c2ParamTypes.length){
                 if(Arrays.equals(c1ParamTypes, c2ParamTypes)){
                     duplicate = true;
@@ -0,0 +1,454 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Executable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A precompiled version of the validation and conversion performed
+ * by ParamUtils.validateInvocationAndConvertParams(...). The result of
+ * that method depends only on the expected parameter types, whether
+ * the method is varargs, and the classes of the actual parameters. So
+ * for each combination of those, all the decisions it makes can be
+ * made once, leaving a simple program to apply to the parameters:
+ *
+ * 1) Reject the parameters.
+ * 2) Use the parameters exactly as they are.
+ * 3) Copy the leading parameters, and then pack the remaining ones into
+ *    a varargs array.
+ *
+ * Plans are cached per method or constructor by forInvocation(...), and
+ * applying a plan performs no validation or reflective lookups.
+ *
+ * Created by craig on 10/16/26.
+ */
+public final class ConversionPlan {
+
+    private static final int REJECT = 0;
+    private static final int IDENTITY = 1;
+    private static final int SINGLE_NULL = 2;
+    private static final int CONVERT = 3;
+
+    /**
+     * The caches of plans for each method or constructor, stored
+     * against the class that declares them.
+     */
+    private static final ClassValue<ConcurrentMap<Executable,Cache>> caches = new ClassValue<ConcurrentMap<Executable,Cache>>() {
+        @Override
+        protected ConcurrentMap<Executable,Cache> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final int kind;
+    private final int resultLength;
+    private final int copyCount;
+    private final VarArgsPacker packer;
+    private final int packCount;
+
+    /**
+     * The classes of the parameters this plan was compiled for.
+     * A null array means a null array of parameters, and a null
+     * element means a null parameter.
+     */
+    private final Class<?>[] actualTypes;
+
+    private ConversionPlan(int kind, int resultLength, int copyCount, VarArgsPacker packer, int packCount, Class<?>[] actualTypes){
+        this.kind = kind;
+        this.resultLength = resultLength;
+        this.copyCount = copyCount;
+        this.packer = packer;
+        this.packCount = packCount;
+        this.actualTypes = actualTypes;
+    }
+
+    /**
+     * Get the plan for invoking the provided method or constructor
+     * with the provided parameters. Plans are cached, so the plan is
+     * only compiled the first time parameters with these classes are
+     * provided.
+     *
+     * @param executable the method or constructor to be invoked.
+     * @param actualParams the actual parameters provided.
+     * @return the plan for the parameters.
+     */
+    public static ConversionPlan forInvocation(Executable executable, Object...actualParams){
+        ConcurrentMap<Executable,Cache> classCaches = caches.get(executable.getDeclaringClass());
+        Cache cache = classCaches.get(executable);
+        if(cache == null){
+            cache = new Cache(executable.getDeclaringClass(), ReflectionMetadata.getParameterTypes(executable), executable.isVarArgs());
+            Cache existing = classCaches.putIfAbsent(executable, cache);
+            if(existing != null){
+                cache = existing;
+            }
+        }
+        return cache.get(actualParams);
+    }
+
+    /**
+     * Compile a plan for the provided expected parameter types and
+     * actual parameters. The plan can be applied to any parameters
+     * with the same classes as the ones provided here.
+     *
+     * @param expectedTypes the expected parameter types.
+     * @param isVarArgs if the method is varargs.
+     * @param actualParams the actual parameters provided.
+     * @return the compiled plan.
+     */
+    public static ConversionPlan compile(Class<?>[] expectedTypes, boolean isVarArgs, Object...actualParams){
+        return compile(expectedTypes, isVarArgs, getTypes(actualParams));
+    }
+
+    /**
+     * Compile a plan for the provided expected parameter types and
+     * the classes of the actual parameters. This follows exactly the same
+     * rules as ParamUtils.validateInvocationAndConvertParams(...).
+     *
+     * @param expectedTypes the expected parameter types.
+     * @param isVarArgs if the method is varargs.
+     * @param actualTypes the classes of the actual parameters, with null
+     *                    for a null parameter, or null for a null array
+     *                    of parameters.
+     * @return the compiled plan.
+     */
+    static ConversionPlan compile(Class<?>[] expectedTypes, boolean isVarArgs, Class<?>[] actualTypes){
+        int expectedTypeCount = expectedTypes.length;
+        int actualParamCount = actualTypes != null ? actualTypes.length : 0;
+
+        if(actualParamCount > 0){
+            if(actualParamCount > expectedTypeCount){
+                return isVarArgs ? compileVarArgs(expectedTypes, actualTypes) : reject(actualTypes);
+            }
+            else if(actualParamCount == expectedTypeCount){
+                if(isVarArgs){
+                    return compileVarArgs(expectedTypes, actualTypes);
+                }
+
+                for(int i = 0; i < expectedTypeCount; i++){
+                    if(!ParamUtils.validateParamType(expectedTypes[i], actualTypes[i])){
+                        return reject(actualTypes);
+                    }
+                }
+                return new ConversionPlan(IDENTITY, 0, 0, null, 0, actualTypes);
+            }
+            else if(actualParamCount == expectedTypeCount - 1 && isVarArgs){
+                return compileVarArgs(expectedTypes, actualTypes);
+            }
+            return reject(actualTypes);
+        }
+
+        if(actualTypes == null && expectedTypeCount == 1 && !expectedTypes[0].isPrimitive()){
+            return new ConversionPlan(SINGLE_NULL, 0, 0, null, 0, null);
+        }
+        else if(expectedTypeCount == 1 && isVarArgs){
+            return new ConversionPlan(CONVERT, 1, 0, VarArgsPacker.forComponentType(expectedTypes[0].getComponentType()), 0, actualTypes);
+        }
+        else if(expectedTypeCount == 0 && actualTypes != null){
+            return new ConversionPlan(IDENTITY, 0, 0, null, 0, actualTypes);
+        }
+        return reject(actualTypes);
+    }
+
+    /**
+     * Compile the plan for a varargs invocation, where the parameters
+     * are already known to be the right number for the method.
+     *
+     * @param expectedTypes the expected parameter types.
+     * @param actualTypes the classes of the actual parameters.
+     * @return the compiled plan.
+     */
+    private static ConversionPlan compileVarArgs(Class<?>[] expectedTypes, Class<?>[] actualTypes){
+        int varArgsIndex = expectedTypes.length - 1;
+        for(int i = 0; i < varArgsIndex; i++){
+            if(!ParamUtils.validateParamType(expectedTypes[i], actualTypes[i])){
+                return reject(actualTypes);
+            }
+        }
+
+        int packCount = actualTypes.length - varArgsIndex;
+        Class<?> varArgsArrayType = expectedTypes[varArgsIndex];
+
+        //A single null or array argument in the varargs position is passed as the varargs array itself
+        if(packCount == 1 && (actualTypes[varArgsIndex] == null || varArgsArrayType.isAssignableFrom(actualTypes[varArgsIndex]))){
+            return new ConversionPlan(CONVERT, expectedTypes.length, expectedTypes.length, null, 0, actualTypes);
+        }
+
+        Class<?> componentType = varArgsArrayType.getComponentType();
+        for(int i = varArgsIndex; i < actualTypes.length; i++){
+            if(!ParamUtils.validateParamType(componentType, actualTypes[i])){
+                return reject(actualTypes);
+            }
+        }
+
+        return new ConversionPlan(CONVERT, expectedTypes.length, varArgsIndex, VarArgsPacker.forComponentType(componentType), packCount, actualTypes);
+    }
+
+    private static ConversionPlan reject(Class<?>[] actualTypes){
+        return new ConversionPlan(REJECT, 0, 0, null, 0, actualTypes);
+    }
+
+    /**
+     * Get the classes of the provided parameters.
+     *
+     * @param params the parameters.
+     * @return the classes of the parameters, with null for any
+     *          null parameter, or null if the array is null.
+     */
+    private static Class<?>[] getTypes(Object[] params){
+        if(params == null){
+            return null;
+        }
+
+        Class<?>[] types = new Class<?>[params.length];
+        for(int i = 0; i < params.length; i++){
+            types[i] = params[i] != null ? params[i].getClass() : null;
+        }
+        return types;
+    }
+
+    /**
+     * Apply this plan to the provided parameters, which must have
+     * the same classes as the ones the plan was compiled for.
+     *
+     * Like ParamUtils.validateInvocationAndConvertParams(...), this
+     * returns null if the parameters were rejected, the same array
+     * if no conversion was needed, or a new array of converted parameters.
+     *
+     * @param actualParams the actual parameters provided.
+     * @return the parameters to use for the invocation, or null if
+     *          they are rejected.
+     */
+    public Object[] apply(Object...actualParams){
+        switch(kind){
+            case IDENTITY:
+                return actualParams;
+            case SINGLE_NULL:
+                return new Object[1];
+            case CONVERT:
+                Object[] finalParams = new Object[resultLength];
+                System.arraycopy(actualParams, 0, finalParams, 0, copyCount);
+                if(packer != null){
+                    finalParams[copyCount] = packer.pack(actualParams, copyCount, packCount);
+                }
+                return finalParams;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Test if this plan rejects the parameters it was compiled for.
+     *
+     * @return true if the parameters are rejected.
+     */
+    public boolean isRejected(){
+        return kind == REJECT;
+    }
+
+    /**
+     * Test if this plan was compiled for parameters with
+     * the same classes as the ones provided.
+     *
+     * @param actualParams the actual parameters.
+     * @return true if the plan can be applied to the parameters.
+     */
+    public boolean matches(Object...actualParams){
+        if(actualParams == null || actualTypes == null){
+            return actualParams == null && actualTypes == null;
+        }
+
+        if(actualParams.length != actualTypes.length){
+            return false;
+        }
+
+        for(int i = 0; i < actualParams.length; i++){
+            Class<?> type = actualParams[i] != null ? actualParams[i].getClass() : null;
+            if(type != actualTypes[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The cache of plans for a single method or constructor. The
+     * most recently used plan is checked first, so repeated calls
+     * with the same classes of parameters don't need a map lookup.
+     */
+    static final class Cache {
+
+        /**
+         * The maximum number of plans to cache for a single method
+         * or constructor. Once reached, new plans are still compiled,
+         * but aren't stored.
+         */
+        private static final int MAX_PLANS = 64;
+
+        private final Class<?> owner;
+        private final Class<?>[] expectedTypes;
+        private final boolean isVarArgs;
+        private final ConcurrentMap<Shape,ConversionPlan> plans = new ConcurrentHashMap<>();
+        private volatile ConversionPlan lastPlan;
+
+        Cache(Class<?> owner, Class<?>[] expectedTypes, boolean isVarArgs){
+            this.owner = owner;
+            this.expectedTypes = expectedTypes;
+            this.isVarArgs = isVarArgs;
+        }
+
+        ConversionPlan get(Object...actualParams){
+            ConversionPlan plan = lastPlan;
+            if(plan != null && plan.matches(actualParams)){
+                return plan;
+            }
+
+            //The lookup uses a reusable probe, so only compiling a new plan allocates anything
+            ShapeProbe probe = ShapeProbe.forParams(actualParams);
+            plan = plans.get(probe);
+            probe.clear();
+            if(plan == null){
+                Class<?>[] actualTypes = getTypes(actualParams);
+                plan = compile(expectedTypes, isVarArgs, actualTypes);
+                if(!ReflectionMetadata.canReference(owner, actualTypes)){
+                    //The cache is stored against the declaring class, so caching this plan would keep the param classes loaded
+                    return plan;
+                }
+                if(plans.size() < MAX_PLANS){
+                    plans.putIfAbsent(new Shape(actualTypes), plan);
+                }
+            }
+
+            lastPlan = plan;
+            return plan;
+        }
+    }
+
+    /**
+     * The classes of a set of parameters, used as the key for a plan.
+     */
+    private static final class Shape {
+
+        private final Class<?>[] types;
+        private final int hash;
+
+        Shape(Class<?>[] types){
+            this.types = types;
+            this.hash = types != null ? Arrays.hashCode(types) : -1;
+        }
+
+        /**
+         * Test if this shape has the classes of the provided parameters.
+         */
+        boolean matches(Object[] params, int hash){
+            if(this.hash != hash){
+                return false;
+            }
+            if(types == null || params == null){
+                return types == null && params == null;
+            }
+            if(types.length != params.length){
+                return false;
+            }
+            for(int i = 0; i < params.length; i++){
+                Class<?> type = params[i] != null ? params[i].getClass() : null;
+                if(type != types[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Shape shape = (Shape) o;
+
+            return hash == shape.hash && Arrays.equals(types, shape.types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A reusable key for looking up the plan for a set of parameters,
+     * without creating a Shape or an array of their classes. Each
+     * thread has its own probe, which is only used for a single lookup
+     * at a time. It is equal to any Shape with the classes of its
+     * parameters, and is never stored in the map.
+     */
+    private static final class ShapeProbe {
+
+        private static final ThreadLocal<ShapeProbe> probes = new ThreadLocal<ShapeProbe>() {
+            @Override
+            protected ShapeProbe initialValue() {
+                return new ShapeProbe();
+            }
+        };
+
+        private Object[] params;
+        private int hash;
+
+        static ShapeProbe forParams(Object[] params){
+            ShapeProbe probe = probes.get();
+            probe.params = params;
+            probe.hash = hashTypes(params);
+            return probe;
+        }
+
+        /**
+         * Release the parameters once the lookup is done,
+         * so the probe doesn't keep them reachable.
+         */
+        void clear(){
+            params = null;
+        }
+
+        /**
+         * Compute the same hash as Arrays.hashCode(...)
+         * would for the classes of the parameters.
+         */
+        private static int hashTypes(Object[] params){
+            if(params == null){
+                return -1;
+            }
+            int result = 1;
+            for(Object param : params){
+                result = 31 * result + (param != null ? param.getClass().hashCode() : 0);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape && ((Shape) o).matches(params, hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+/**
+ * An invoker for a single method. Implementations are
+ * generated by DirectInvokers, and call the method directly
+ * rather than reflectively, so the JIT can inline them.
+ *
+ * No validation or parameter conversion is performed, so
+ * the parameters must be 100% valid for the method. Primitive
+ * parameters must be exactly their wrapper type, because they
+ * aren't widened, so an Integer can't be passed for a long. Any
+ * exception thrown by the method is thrown directly, without
+ * being wrapped.
+ *
+ * Created by craig on 10/16/26.
+ */
+public interface DirectInvoker {
+
+    /**
+     * Invoke the method.
+     *
+     * @param target the object to invoke the method on.
+     * @param params the parameters to pass to the method.
+     * @return the result of the invocation, or null if there is none.
+     * @throws Throwable any exception thrown by the method.
+     */
+    Object invoke(Object target, Object[] params) throws Throwable;
+
+}
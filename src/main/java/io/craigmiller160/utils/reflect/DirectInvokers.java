@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Generates DirectInvokers for methods using the LambdaMetafactory.
+ * The generated invoker calls the method the same way a lambda
+ * expression would, so once it has warmed up the JIT is able to
+ * inline it like a direct call.
+ *
+ * Generating an invoker has a significant up-front cost, so
+ * the invokers used by RemoteInvoke are only generated once
+ * a method has been invoked a certain number of times. Every
+ * invoker is cached per method.
+ *
+ * Invokers can only be generated for instance methods with
+ * no more than MAX_PARAM_COUNT parameters, whose types are all
+ * accessible to this library. For any other methods, the
+ * invoker returned uses the method's MethodHandle instead.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class DirectInvokers {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectInvokers.class);
+
+    /**
+     * The maximum number of parameters a method can have for
+     * a direct invoker to be generated for it.
+     */
+    public static final int MAX_PARAM_COUNT = 4;
+
+    /**
+     * The default number of invocations a method needs before
+     * a direct invoker is generated for it.
+     */
+    public static final int DEFAULT_GENERATION_THRESHOLD = 64;
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final Class<?>[] callInterfaces = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class};
+    private static final Class<?>[] runInterfaces = {Run0.class, Run1.class, Run2.class, Run3.class, Run4.class};
+
+    private static volatile int generationThreshold = DEFAULT_GENERATION_THRESHOLD;
+
+    DirectInvokers(){}
+
+    /**
+     * Set the number of times a method must be invoked with
+     * the DIRECT backend before an invoker is generated for it.
+     *
+     * @param threshold the number of invocations, must be at least 1.
+     */
+    public static void setGenerationThreshold(int threshold){
+        if(threshold < 1){
+            throw new IllegalArgumentException("DirectInvoker generation threshold must be at least 1. Threshold: " + threshold);
+        }
+        generationThreshold = threshold;
+    }
+
+    public static int getGenerationThreshold(){
+        return generationThreshold;
+    }
+
+    /**
+     * Get the direct invoker for the provided method, generating
+     * it immediately if it hasn't been generated yet.
+     *
+     * @param method the method to get the invoker for.
+     * @return the invoker for the method.
+     */
+    public static DirectInvoker getDirectInvoker(Method method){
+        return MethodInvoker.forMethod(method).getDirectInvoker();
+    }
+
+    /**
+     * Test if a direct invoker can be generated for the method.
+     *
+     * @param method the method to test.
+     * @return true if an invoker can be generated for the method.
+     */
+    static boolean canGenerate(Method method){
+        if(Modifier.isStatic(method.getModifiers()) || ReflectionMetadata.getParameterCount(method) > MAX_PARAM_COUNT){
+            return false;
+        }
+
+        //The generated class is defined by this library's ClassLoader, so every type it references must be visible to it
+        if(!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())){
+            return false;
+        }
+        for(Class<?> paramType : ReflectionMetadata.getParameterTypes(method)){
+            if(!isVisible(paramType)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generate a direct invoker for the provided method.
+     *
+     * @param method the method to generate the invoker for.
+     * @return the generated invoker, or null if one can't be generated.
+     */
+    static DirectInvoker generate(Method method){
+        if(!canGenerate(method)){
+            return null;
+        }
+
+        try{
+            MethodHandle impl = lookup.unreflect(method);
+            int slotCount = ReflectionMetadata.getParameterCount(method) + 1;
+            boolean isVoid = method.getReturnType() == void.class;
+
+            Class<?> invokerInterface = isVoid ? runInterfaces[slotCount - 1] : callInterfaces[slotCount - 1];
+            MethodType samType = MethodType.genericMethodType(slotCount);
+            MethodType instantiatedType = impl.type().wrap();
+            if(isVoid){
+                samType = samType.changeReturnType(void.class);
+                instantiatedType = instantiatedType.changeReturnType(void.class);
+            }
+
+            CallSite site = LambdaMetafactory.metafactory(lookup, "call", MethodType.methodType(invokerInterface),
+                    samType, impl, instantiatedType);
+            return (DirectInvoker) site.getTarget().invoke();
+        }
+        catch(Throwable ex){
+            logger.debug("Unable to generate direct invoker for method {}", method, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Test if the provided type is visible to this library's ClassLoader.
+     *
+     * @param type the type to test.
+     * @return true if the type is visible.
+     */
+    private static boolean isVisible(Class<?> type){
+        while(type.isArray()){
+            type = type.getComponentType();
+        }
+
+        if(type.isPrimitive()){
+            return true;
+        }
+
+        try{
+            return Class.forName(type.getName(), false, DirectInvokers.class.getClassLoader()) == type;
+        }
+        catch(ClassNotFoundException | LinkageError ex){
+            return false;
+        }
+    }
+
+    /*
+     * The interfaces implemented by the generated invokers. There is one
+     * for each number of parameters, and separate ones for void methods,
+     * because the LambdaMetafactory can't adapt a void method to return
+     * a value. Each one implements DirectInvoker by unpacking the
+     * parameter array, so the generated class is called without any
+     * further indirection.
+     */
+
+    interface Call0 extends DirectInvoker {
+        Object call(Object target);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            return call(target);
+        }
+    }
+
+    interface Call1 extends DirectInvoker {
+        Object call(Object target, Object p0);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            return call(target, params[0]);
+        }
+    }
+
+    interface Call2 extends DirectInvoker {
+        Object call(Object target, Object p0, Object p1);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            return call(target, params[0], params[1]);
+        }
+    }
+
+    interface Call3 extends DirectInvoker {
+        Object call(Object target, Object p0, Object p1, Object p2);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            return call(target, params[0], params[1], params[2]);
+        }
+    }
+
+    interface Call4 extends DirectInvoker {
+        Object call(Object target, Object p0, Object p1, Object p2, Object p3);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            return call(target, params[0], params[1], params[2], params[3]);
+        }
+    }
+
+    interface Run0 extends DirectInvoker {
+        void call(Object target);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            call(target);
+            return null;
+        }
+    }
+
+    interface Run1 extends DirectInvoker {
+        void call(Object target, Object p0);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            call(target, params[0]);
+            return null;
+        }
+    }
+
+    interface Run2 extends DirectInvoker {
+        void call(Object target, Object p0, Object p1);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            call(target, params[0], params[1]);
+            return null;
+        }
+    }
+
+    interface Run3 extends DirectInvoker {
+        void call(Object target, Object p0, Object p1, Object p2);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            call(target, params[0], params[1], params[2]);
+            return null;
+        }
+    }
+
+    interface Run4 extends DirectInvoker {
+        void call(Object target, Object p0, Object p1, Object p2, Object p3);
+
+        @Override
+        default Object invoke(Object target, Object[] params){
+            call(target, params[0], params[1], params[2], params[3]);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The InvocationHandler behind the proxies created by
+ * FindAndInvoke.proxy(...). Every method of the interface
+ * is bound to the matching methods on the targets when the
+ * handler is created, so an invocation of the proxy is only
+ * a map lookup before the bound methods are invoked.
+ *
+ * A method on a target is bound to an interface method if it
+ * has the same name and number of params, each of its param
+ * types accepts the matching interface param type, and its
+ * return type can be returned from the interface method. If
+ * more than one method on a target could be bound, the most
+ * specific one is used.
+ *
+ * Static interface methods are never bound. Default methods are
+ * bound like any other method, but if no target matches one, its
+ * default implementation is invoked on the proxy instead.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class DispatchHandler implements InvocationHandler {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<?> iface;
+    private final int targetCount;
+
+    /**
+     * The bound methods for each interface method. The map
+     * is never modified after the handler is created.
+     */
+    private final Map<Method,ObjectAndMethod[]> bindings;
+
+    /**
+     * The default implementations of the default methods that
+     * aren't bound to any target. The map is never modified
+     * after the handler is created.
+     */
+    private final Map<Method,MethodHandle> defaults;
+
+    DispatchHandler(Class<?> iface, Collection<?> targets) throws NoMethodException{
+        this.iface = iface;
+        this.targetCount = targets.size();
+        this.bindings = new HashMap<>();
+        this.defaults = new HashMap<>();
+
+        List<String> unbound = new ArrayList<>();
+        for(Method method : ReflectionMetadata.forClass(iface).getMethods()){
+            if(Modifier.isStatic(method.getModifiers())){
+                continue;
+            }
+
+            ObjectAndMethod[] bound = bind(method, targets);
+            if(bound.length > 0){
+                bindings.put(method, bound);
+            }
+            else if(method.isDefault()){
+                MethodHandle handle = unreflectDefault(method);
+                if(handle != null){
+                    defaults.put(method, handle);
+                }
+                else{
+                    unbound.add(method.toString());
+                }
+            }
+            else{
+                unbound.add(method.toString());
+            }
+        }
+
+        if(unbound.size() > 0){
+            throw new NoMethodException(String.format("No methods in provided objects match the interface methods. " +
+                    "Interface: %1$s | Methods: %2$s", iface.getName(), unbound));
+        }
+    }
+
+    /**
+     * Find the method on each target to bind to the interface method.
+     *
+     * @param method the interface method.
+     * @param targets the targets.
+     * @return the bound methods, in the order of the targets.
+     */
+    private static ObjectAndMethod[] bind(Method method, Collection<?> targets){
+        Class<?>[] paramTypes = ReflectionMetadata.getParameterTypes(method);
+        List<ObjectAndMethod> bound = new ArrayList<>();
+        for(Object target : targets){
+            //The candidates are ordered most specific first, so the first compatible one is chosen
+            Method[] candidates = MethodIndex.forClass(target.getClass()).getCandidates(method.getName(), paramTypes.length);
+            for(Method candidate : candidates){
+                if(isCompatible(method, paramTypes, candidate)){
+                    bound.add(new ObjectAndMethod(target, candidate));
+                    break;
+                }
+            }
+        }
+        return bound.toArray(new ObjectAndMethod[bound.size()]);
+    }
+
+    /**
+     * Test if a candidate method can be bound to the interface method.
+     * Params of the interface method are passed to the candidate without
+     * any conversion, so a param type is only compatible if it accepts
+     * the interface's param type as it is, or the two are the primitive
+     * and wrapper forms of the same type.
+     */
+    private static boolean isCompatible(Method method, Class<?>[] paramTypes, Method candidate){
+        Class<?>[] candidateTypes = ReflectionMetadata.getParameterTypes(candidate);
+        if(candidateTypes.length != paramTypes.length){
+            return false;
+        }
+
+        for(int i = 0; i < paramTypes.length; i++){
+            if(!isAssignable(candidateTypes[i], paramTypes[i])){
+                return false;
+            }
+        }
+
+        return method.getReturnType() == void.class || isAssignable(method.getReturnType(), candidate.getReturnType());
+    }
+
+    private static boolean isAssignable(Class<?> expected, Class<?> actual){
+        return expected.isAssignableFrom(actual) || ParamUtils.wrap(expected) == ParamUtils.wrap(actual);
+    }
+
+    /**
+     * Create a MethodHandle that invokes the default implementation of
+     * an interface method, taking the proxy as its first param.
+     *
+     * @param method the default method.
+     * @return the MethodHandle, or null if the runtime doesn't allow access to it.
+     */
+    private static MethodHandle unreflectDefault(Method method){
+        Class<?> declaringClass = method.getDeclaringClass();
+        try{
+            MethodHandles.Lookup lookup;
+            try{
+                //Equivalent to MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup()), which only exists on Java 9+
+                Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+                lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, declaringClass, MethodHandles.lookup());
+            }
+            catch(NoSuchMethodException ex){
+                //On Java 8, only a Lookup in the interface itself can invoke its default implementations
+                Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+                constructor.setAccessible(true);
+                lookup = constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE);
+            }
+            return lookup.unreflectSpecial(method, declaringClass);
+        }
+        catch(ReflectiveOperationException | RuntimeException ex){
+            return null;
+        }
+    }
+
+    /**
+     * Invoke all the methods bound to the interface method, in the order
+     * of the targets, returning the result from the first of them.
+     *
+     * Exceptions thrown by a bound method are rethrown as they are, the
+     * same as calling it directly, if they are unchecked or the interface
+     * method declares them. Only undeclared checked exceptions, which the
+     * proxy can't throw, stay wrapped in an InvocationException.
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object[] params = args != null ? args : NO_ARGS;
+        ObjectAndMethod[] bound = bindings.get(method);
+        if(bound == null){
+            MethodHandle handle = defaults.get(method);
+            if(handle != null){
+                return invokeDefault(handle, proxy, params);
+            }
+            return invokeObjectMethod(proxy, method, args);
+        }
+
+        try{
+            Object result = RemoteInvoke.invokeMethod(bound[0], params);
+            for(int i = 1; i < bound.length; i++){
+                RemoteInvoke.invokeMethod(bound[i], params);
+            }
+            return result;
+        }
+        catch(InvocationException ex){
+            Throwable cause = ex.getCause();
+            if(cause != null && (cause instanceof RuntimeException || cause instanceof Error || isDeclared(method, cause))){
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static boolean isDeclared(Method method, Throwable ex){
+        for(Class<?> exceptionType : method.getExceptionTypes()){
+            if(exceptionType.isInstance(ex)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object invokeDefault(MethodHandle handle, Object proxy, Object[] params) throws Throwable{
+        Object[] handleParams = new Object[params.length + 1];
+        handleParams[0] = proxy;
+        System.arraycopy(params, 0, handleParams, 1, params.length);
+        return handle.invokeWithArguments(handleParams);
+    }
+
+    /**
+     * Handle the methods from Object that every proxy receives.
+     * Proxies are only equal to themselves.
+     */
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args){
+        switch(method.getName()){
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return String.format("FindAndInvoke proxy of %1$s for %2$d targets", iface.getName(), targetCount);
+            default:
+                throw new NoMethodException("No method bound to proxy method: " + method);
+        }
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the cached MethodHandles used to read and write
+ * a single Field. Like MethodInvoker, instances are cached
+ * per field, and are stored against the class that declares
+ * the field using a ClassValue.
+ *
+ * Every handle takes the target object as its first param,
+ * which is ignored for static fields, so the same handles
+ * work for both.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class FieldAccessor {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final MethodType GENERIC_GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType GENERIC_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final TypedHandle[] NO_TYPED_HANDLES = new TypedHandle[0];
+
+    private static final ClassValue<ConcurrentMap<Field,FieldAccessor>> accessors = new ClassValue<ConcurrentMap<Field,FieldAccessor>>() {
+        @Override
+        protected ConcurrentMap<Field,FieldAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Field field;
+
+    /**
+     * The handles with the exact types of the field, which the
+     * typed handles are adapted from so they never box the value.
+     * The setter is null if the field is final and can't be set.
+     */
+    private final MethodHandle exactGetter;
+    private final MethodHandle exactSetter;
+
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    /**
+     * The exact-typed handles created for this field. Each typed entry
+     * point uses its own type, so there are only ever a few of them. The
+     * arrays are never modified, they are replaced by larger copies when
+     * a handle is added.
+     */
+    private volatile TypedHandle[] typedGetters = NO_TYPED_HANDLES;
+    private volatile TypedHandle[] typedSetters = NO_TYPED_HANDLES;
+
+    private FieldAccessor(Field field) throws ReflectiveException{
+        this.field = field;
+        this.exactGetter = createGetter(field);
+        this.exactSetter = createSetter(field);
+        this.getter = exactGetter.asType(GENERIC_GETTER);
+        this.setter = exactSetter != null ? exactSetter.asType(GENERIC_SETTER) : null;
+    }
+
+    /**
+     * Get the accessor for the provided field.
+     *
+     * @param field the field.
+     * @return the accessor for the field.
+     * @throws ReflectiveException if the field can't be accessed.
+     */
+    static FieldAccessor forField(Field field) throws ReflectiveException{
+        ConcurrentMap<Field,FieldAccessor> classAccessors = accessors.get(field.getDeclaringClass());
+        FieldAccessor accessor = classAccessors.get(field);
+        if(accessor == null){
+            accessor = new FieldAccessor(field);
+            FieldAccessor existing = classAccessors.putIfAbsent(field, accessor);
+            if(existing != null){
+                accessor = existing;
+            }
+        }
+        return accessor;
+    }
+
+    Field getField(){
+        return field;
+    }
+
+    /**
+     * Get the getter for the field, adapted to the generic
+     * type (Object)Object. Primitive values are boxed.
+     *
+     * @return the getter.
+     */
+    MethodHandle getGetter(){
+        return getter;
+    }
+
+    /**
+     * Get the setter for the field, adapted to the generic
+     * type (Object,Object)void. Primitive values are unboxed.
+     *
+     * @return the setter.
+     * @throws ReflectiveException if the field is final.
+     */
+    MethodHandle getSetter() throws ReflectiveException{
+        if(setter == null){
+            throw new ReflectiveException("Unable to set final field: " + field);
+        }
+        return setter;
+    }
+
+    /**
+     * Get the getter for the field adapted to exactly the provided type,
+     * which must be (Object)R. Like MethodInvoker.getTypedHandle(...),
+     * only conversions that can't lose information are allowed.
+     *
+     * @param type the exact type of the getter.
+     * @return the adapted getter.
+     * @throws ReflectiveException if the field can't be read as that type.
+     */
+    MethodHandle getTypedGetter(MethodType type) throws ReflectiveException{
+        for(TypedHandle typed : typedGetters){
+            if(typed.type == type){
+                return typed.handle;
+            }
+        }
+        return addTypedGetter(type);
+    }
+
+    /**
+     * Get the setter for the field adapted to exactly the provided type,
+     * which must be (Object,V)void. Like MethodInvoker.getTypedHandle(...),
+     * only conversions that can't lose information are allowed.
+     *
+     * @param type the exact type of the setter.
+     * @return the adapted setter.
+     * @throws ReflectiveException if the field is final, or can't be written as that type.
+     */
+    MethodHandle getTypedSetter(MethodType type) throws ReflectiveException{
+        for(TypedHandle typed : typedSetters){
+            if(typed.type == type){
+                return typed.handle;
+            }
+        }
+        return addTypedSetter(type);
+    }
+
+    private synchronized MethodHandle addTypedGetter(MethodType type) throws ReflectiveException{
+        TypedHandle[] current = typedGetters;
+        for(TypedHandle typed : current){
+            if(typed.type == type){
+                return typed.handle;
+            }
+        }
+
+        MethodHandle typedGetter = adapt(exactGetter, type);
+        typedGetters = TypedHandle.append(current, type, typedGetter);
+        return typedGetter;
+    }
+
+    private synchronized MethodHandle addTypedSetter(MethodType type) throws ReflectiveException{
+        if(exactSetter == null){
+            throw new ReflectiveException("Unable to set final field: " + field);
+        }
+
+        TypedHandle[] current = typedSetters;
+        for(TypedHandle typed : current){
+            if(typed.type == type){
+                return typed.handle;
+            }
+        }
+
+        MethodHandle typedSetter = adapt(exactSetter, type);
+        typedSetters = TypedHandle.append(current, type, typedSetter);
+        return typedSetter;
+    }
+
+    private MethodHandle adapt(MethodHandle handle, MethodType type) throws ReflectiveException{
+        try{
+            return handle.asType(type);
+        }
+        catch(WrongMethodTypeException ex){
+            throw new ReflectiveException("Field can't be accessed with type " + type + ". Field: " + field, ex);
+        }
+    }
+
+    /**
+     * Create the getter for the field, with the target as its first
+     * param even if the field is static.
+     */
+    private static MethodHandle createGetter(Field field) throws ReflectiveException{
+        MethodHandle mh;
+        try{
+            mh = lookup.unreflectGetter(field);
+        }
+        catch(IllegalAccessException ex){
+            try{
+                mh = lookup.unreflectGetter(accessibleCopy(field));
+            }
+            catch(IllegalAccessException | RuntimeException ex2){
+                throw new ReflectiveException("Unable to create a getter for field: " + field, ex2);
+            }
+        }
+
+        if(Modifier.isStatic(field.getModifiers())){
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
+        }
+        return mh;
+    }
+
+    private static MethodHandle createSetter(Field field) throws ReflectiveException{
+        //Static final fields can never be set, and instance final fields shouldn't be
+        if(Modifier.isFinal(field.getModifiers())){
+            return null;
+        }
+
+        MethodHandle mh;
+        try{
+            mh = lookup.unreflectSetter(field);
+        }
+        catch(IllegalAccessException ex){
+            try{
+                mh = lookup.unreflectSetter(accessibleCopy(field));
+            }
+            catch(IllegalAccessException | RuntimeException ex2){
+                throw new ReflectiveException("Unable to create a setter for field: " + field, ex2);
+            }
+        }
+
+        if(Modifier.isStatic(field.getModifiers())){
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
+        }
+        return mh;
+    }
+
+    /**
+     * Get an accessible copy of the field, so the
+     * accessibility of the original isn't changed.
+     */
+    private static Field accessibleCopy(Field field) throws ReflectiveException{
+        try{
+            Field copy = field.getDeclaringClass().getDeclaredField(field.getName());
+            copy.setAccessible(true);
+            return copy;
+        }
+        catch(NoSuchFieldException | RuntimeException ex){
+            throw new ReflectiveException("Unable to access field: " + field, ex);
+        }
+    }
+
+    /**
+     * An exact-typed MethodHandle, and the type it was created for.
+     */
+    private static final class TypedHandle {
+
+        private final MethodType type;
+        private final MethodHandle handle;
+
+        TypedHandle(MethodType type, MethodHandle handle){
+            this.type = type;
+            this.handle = handle;
+        }
+
+        static TypedHandle[] append(TypedHandle[] handles, MethodType type, MethodHandle handle){
+            TypedHandle[] updated = Arrays.copyOf(handles, handles.length + 1);
+            updated[handles.length] = new TypedHandle(type, handle);
+            return updated;
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * A utility class for finding fields and reading and writing
+ * their values reflectively. Fields are found by name, with any
+ * visibility, on a class or its superclasses. They are accessed
+ * with MethodHandles that are created once per field and cached,
+ * so accessing a field performs no lookups or access checks.
+ *
+ * The typed getters and setters, such as getInt(...) and setInt(...),
+ * use MethodHandles adapted to exactly that type, so the values are
+ * never boxed. Like the primitive invocations in RemoteInvoke, they
+ * allow widening conversions, but not narrowing ones.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class FieldUtils {
+
+    private static final MethodType INT_GETTER = MethodType.methodType(int.class, Object.class);
+    private static final MethodType LONG_GETTER = MethodType.methodType(long.class, Object.class);
+    private static final MethodType DOUBLE_GETTER = MethodType.methodType(double.class, Object.class);
+    private static final MethodType BOOLEAN_GETTER = MethodType.methodType(boolean.class, Object.class);
+    private static final MethodType INT_SETTER = MethodType.methodType(void.class, Object.class, int.class);
+    private static final MethodType LONG_SETTER = MethodType.methodType(void.class, Object.class, long.class);
+    private static final MethodType DOUBLE_SETTER = MethodType.methodType(void.class, Object.class, double.class);
+    private static final MethodType BOOLEAN_SETTER = MethodType.methodType(void.class, Object.class, boolean.class);
+
+    FieldUtils(){}
+
+    /**
+     * Find the field with the provided name on the class or any
+     * of its superclasses. The field can have any visibility.
+     *
+     * @param type the class to find the field on.
+     * @param fieldName the name of the field.
+     * @return the holder of the field and the class.
+     * @throws NoFieldException if the class has no field with that name.
+     */
+    public static ClassAndField findField(Class<?> type, String fieldName) throws NoFieldException{
+        Field field = ReflectionMetadata.forClass(type).getField(fieldName);
+        if(field == null){
+            throw new NoFieldException("No field exists with the name " + fieldName + " on class " + type.getName());
+        }
+        return new ClassAndField(type, field);
+    }
+
+    /**
+     * Find the field with the provided name on the object's
+     * class or any of its superclasses. The field can have any visibility.
+     *
+     * @param obj the object to find the field on.
+     * @param fieldName the name of the field.
+     * @return the holder of the field and the object.
+     * @throws NoFieldException if the object has no field with that name.
+     */
+    public static ObjectAndField findField(Object obj, String fieldName) throws NoFieldException{
+        Field field = ReflectionMetadata.forClass(obj.getClass()).getField(fieldName);
+        if(field == null){
+            throw new NoFieldException("No field exists with the name " + fieldName + " on class " + obj.getClass().getName());
+        }
+        return new ObjectAndField(obj, field);
+    }
+
+    /**
+     * Get the value of the field. Primitive values are boxed.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @return the value of the field.
+     * @throws ReflectiveException if unable to get the value.
+     */
+    public static Object getValue(ObjectAndField oaf) throws ReflectiveException{
+        MethodHandle getter = FieldAccessor.forField(oaf.getReflectiveComponent()).getGetter();
+        try{
+            return (Object) getter.invokeExact(oaf.getSource());
+        }
+        catch(Throwable ex){
+            throw createException("get", oaf, ex);
+        }
+    }
+
+    /**
+     * Set the value of the field. The value must be assignable to the
+     * type of the field, or for a primitive field, must be a wrapper
+     * that can be unboxed and widened to it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @param value the new value of the field.
+     * @throws ReflectiveException if the field is final, or if unable to set the value.
+     */
+    public static void setValue(ObjectAndField oaf, Object value) throws ReflectiveException{
+        MethodHandle setter = FieldAccessor.forField(oaf.getReflectiveComponent()).getSetter();
+        try{
+            setter.invokeExact(oaf.getSource(), value);
+        }
+        catch(Throwable ex){
+            throw createException("set", oaf, ex);
+        }
+    }
+
+    /**
+     * Get the value of an int field, or of any field whose
+     * type can be unboxed or widened to an int, without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @return the value of the field.
+     * @throws ReflectiveException if the field can't be read as an int, or if unable to get the value.
+     */
+    public static int getInt(ObjectAndField oaf) throws ReflectiveException{
+        MethodHandle getter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedGetter(INT_GETTER);
+        try{
+            return (int) getter.invokeExact(oaf.getSource());
+        }
+        catch(Throwable ex){
+            throw createException("get", oaf, ex);
+        }
+    }
+
+    /**
+     * Get the value of a long field, or of any field whose
+     * type can be unboxed or widened to a long, without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @return the value of the field.
+     * @throws ReflectiveException if the field can't be read as a long, or if unable to get the value.
+     */
+    public static long getLong(ObjectAndField oaf) throws ReflectiveException{
+        MethodHandle getter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedGetter(LONG_GETTER);
+        try{
+            return (long) getter.invokeExact(oaf.getSource());
+        }
+        catch(Throwable ex){
+            throw createException("get", oaf, ex);
+        }
+    }
+
+    /**
+     * Get the value of a double field, or of any field whose
+     * type can be unboxed or widened to a double, without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @return the value of the field.
+     * @throws ReflectiveException if the field can't be read as a double, or if unable to get the value.
+     */
+    public static double getDouble(ObjectAndField oaf) throws ReflectiveException{
+        MethodHandle getter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedGetter(DOUBLE_GETTER);
+        try{
+            return (double) getter.invokeExact(oaf.getSource());
+        }
+        catch(Throwable ex){
+            throw createException("get", oaf, ex);
+        }
+    }
+
+    /**
+     * Get the value of a boolean field without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @return the value of the field.
+     * @throws ReflectiveException if the field can't be read as a boolean, or if unable to get the value.
+     */
+    public static boolean getBoolean(ObjectAndField oaf) throws ReflectiveException{
+        MethodHandle getter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedGetter(BOOLEAN_GETTER);
+        try{
+            return (boolean) getter.invokeExact(oaf.getSource());
+        }
+        catch(Throwable ex){
+            throw createException("get", oaf, ex);
+        }
+    }
+
+    /**
+     * Set the value of an int field, or of any field whose type
+     * an int can be widened or boxed to, without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @param value the new value of the field.
+     * @throws ReflectiveException if the field is final or can't be written as an int, or if unable to set the value.
+     */
+    public static void setInt(ObjectAndField oaf, int value) throws ReflectiveException{
+        MethodHandle setter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedSetter(INT_SETTER);
+        try{
+            setter.invokeExact(oaf.getSource(), value);
+        }
+        catch(Throwable ex){
+            throw createException("set", oaf, ex);
+        }
+    }
+
+    /**
+     * Set the value of a long field, or of any field whose type
+     * a long can be widened or boxed to, without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @param value the new value of the field.
+     * @throws ReflectiveException if the field is final or can't be written as a long, or if unable to set the value.
+     */
+    public static void setLong(ObjectAndField oaf, long value) throws ReflectiveException{
+        MethodHandle setter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedSetter(LONG_SETTER);
+        try{
+            setter.invokeExact(oaf.getSource(), value);
+        }
+        catch(Throwable ex){
+            throw createException("set", oaf, ex);
+        }
+    }
+
+    /**
+     * Set the value of a double field, or of any field whose type
+     * a double can be boxed to, without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @param value the new value of the field.
+     * @throws ReflectiveException if the field is final or can't be written as a double, or if unable to set the value.
+     */
+    public static void setDouble(ObjectAndField oaf, double value) throws ReflectiveException{
+        MethodHandle setter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedSetter(DOUBLE_SETTER);
+        try{
+            setter.invokeExact(oaf.getSource(), value);
+        }
+        catch(Throwable ex){
+            throw createException("set", oaf, ex);
+        }
+    }
+
+    /**
+     * Set the value of a boolean field without boxing it.
+     *
+     * @param oaf the holder of the field and its source object.
+     * @param value the new value of the field.
+     * @throws ReflectiveException if the field is final or can't be written as a boolean, or if unable to set the value.
+     */
+    public static void setBoolean(ObjectAndField oaf, boolean value) throws ReflectiveException{
+        MethodHandle setter = FieldAccessor.forField(oaf.getReflectiveComponent()).getTypedSetter(BOOLEAN_SETTER);
+        try{
+            setter.invokeExact(oaf.getSource(), value);
+        }
+        catch(Throwable ex){
+            throw createException("set", oaf, ex);
+        }
+    }
+
+    /**
+     * Create the exception for a failed field access. Errors are
+     * rethrown as they are. Anything else, such as a ClassCastException
+     * for a value of the wrong type, is wrapped in a ReflectiveException.
+     */
+    private static ReflectiveException createException(String operation, ObjectAndField oaf, Throwable ex){
+        if(ex instanceof Error){
+            throw (Error) ex;
+        }
+        if(ex instanceof ReflectiveException){
+            return (ReflectiveException) ex;
+        }
+        return new ReflectiveException("Unable to " + operation + " field " + oaf.getReflectiveComponent() + " on " +
+                oaf.getSourceType().getName(), ex);
+    }
+
+}
@@ -16,10 +16,10 @@
 
 package io.craigmiller160.utils.reflect;
 
-import io.craigmiller160.utils.util.ArrayUtil;
 import io.craigmiller160.utils.util.Pair;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -27,6 +27,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Parse the provided Object or Objects and find the specified method,
@@ -58,10 +61,185 @@ public class FindAndInvoke {
     // 3) Actual duplicate methods - should cause exception for the invokeOne
 
 
+    /**
+     * The value returned by tryFindInvokeOneMethod(...) when
+     * no method can be invoked. It can be compared by identity.
+     */
+    public static final Object NO_METHOD = new Object(){
+        @Override
+        public String toString() {
+            return "FindAndInvoke.NO_METHOD";
+        }
+    };
+
+    /**
+     * The cache of resolved methods, used to skip discovery
+     * and overload selection for repeated calls.
+     */
+    private static final ResolutionCache resolutionCache = new ResolutionCache();
+
+    /**
+     * If a failed resolution throws a shared NoMethodException
+     * without a stack trace, instead of creating a new one.
+     */
+    private static volatile boolean lightweightMisses = false;
+
+    /**
+     * The metrics that invocations are recorded with.
+     */
+    private static volatile InvocationMetrics metrics = InvocationMetrics.NO_OP;
+
+    /**
+     * The executor used for concurrent invocations that don't specify one.
+     * It is a dedicated pool rather than the common ForkJoinPool, so
+     * invocations that block can't starve other work in the common pool,
+     * and callers running in the common pool can't deadlock waiting on it.
+     */
+    private static volatile Executor defaultExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Get the cache used to store the methods resolved by
+     * this class. It can be used to monitor how effective the
+     * cache is, or to clear it.
+     *
+     * @return the resolution cache.
+     */
+    public static ResolutionCache getResolutionCache(){
+        return resolutionCache;
+    }
+
+    /**
+     * Set whether failing to find a method to invoke throws a lightweight
+     * NoMethodException. Failed resolutions are cached the same as successful
+     * ones, so when this is enabled every call of the same shape throws the
+     * same shared exception, which has no stack trace and can't have any
+     * exceptions suppressed by it. This makes probing objects for methods
+     * that may not exist cheap, at the cost of the stack trace showing
+     * where the call was made from. It is disabled by default.
+     *
+     * @param lightweight true to enable lightweight misses.
+     */
+    public static void setLightweightMisses(boolean lightweight){
+        lightweightMisses = lightweight;
+    }
+
+    public static boolean isLightweightMisses(){
+        return lightweightMisses;
+    }
+
+    /**
+     * Create a reusable call site for invoking a method by name, with a
+     * fixed number of arguments, on any object. The call site caches the
+     * methods it resolves for each receiver class, so repeated calls on
+     * the same few classes skip resolution entirely. It is thread-safe,
+     * and intended to be kept in a field.
+     *
+     * @param methodName the name of the method.
+     * @param arity the number of arguments the method will be invoked with.
+     * @return the call site.
+     */
+    public static ReflectiveCallSite bind(String methodName, int arity){
+        return new ReflectiveCallSite(methodName, arity);
+    }
+
+    /**
+     * Create an implementation of an interface that dispatches to the
+     * provided targets. Each method of the interface is bound to the
+     * matching methods on the targets when the proxy is created, so
+     * invoking the proxy doesn't look up or validate any methods.
+     *
+     * A target method matches an interface method if it has the same name,
+     * accepts the interface method's param types as they are, and returns
+     * a compatible type. When more than one target has a matching method,
+     * all of them are invoked in the order of the targets, and the result
+     * from the first one is returned.
+     *
+     * Static interface methods are ignored. A default method that no target
+     * matches invokes its default implementation. Exceptions thrown by the
+     * targets are rethrown as they are if they are unchecked or the interface
+     * method declares them, and wrapped in an InvocationException otherwise.
+     *
+     * @param iface the interface to implement.
+     * @param targets the objects to dispatch to.
+     * @param <I> the type of the interface.
+     * @return the proxy implementing the interface.
+     * @throws NoMethodException if any interface method has no matching method on any target.
+     */
+    public static <I> I proxy(Class<I> iface, Collection<?> targets) throws NoMethodException{
+        if(!iface.isInterface()){
+            throw new IllegalArgumentException("Only interfaces can be proxied. Type: " + iface.getName());
+        }
+        DispatchHandler handler = new DispatchHandler(iface, targets);
+        return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, handler));
+    }
+
+    /**
+     * Prepare the provided classes for reflective invocation ahead of
+     * time, on the common ForkJoinPool. This builds the method index of
+     * each class and the MethodHandles for its public methods, which
+     * would otherwise be built the first time each class is used. It is
+     * safe to call while the classes are already being used.
+     *
+     * @param classes the classes to warm up.
+     * @return the report of what was warmed up.
+     */
+    public static WarmUpReport warmUp(Collection<Class<?>> classes){
+        return WarmUp.warmUp(ForkJoinPool.commonPool(), classes);
+    }
+
+    /**
+     * Prepare the provided classes for reflective invocation ahead
+     * of time, on the provided ForkJoinPool.
+     *
+     * @param pool the pool to warm up the classes on.
+     * @param classes the classes to warm up.
+     * @return the report of what was warmed up.
+     */
+    public static WarmUpReport warmUp(ForkJoinPool pool, Collection<Class<?>> classes){
+        return WarmUp.warmUp(pool, classes);
+    }
+
+    /**
+     * Prepare every class in a package and its subpackages for reflective
+     * invocation ahead of time, on the common ForkJoinPool. The classes
+     * are found using the context ClassLoader of the current thread,
+     * and are not initialized.
+     *
+     * @param packageName the name of the package.
+     * @return the report of what was warmed up.
+     * @throws ReflectiveException if unable to scan the package for classes.
+     */
+    public static WarmUpReport warmUpPackage(String packageName) throws ReflectiveException{
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if(loader == null){
+            loader = FindAndInvoke.class.getClassLoader();
+        }
+        return WarmUp.warmUpPackage(ForkJoinPool.commonPool(), loader, packageName);
+    }
+
+    /**
+     * Prepare every class in a package and its subpackages for reflective
+     * invocation ahead of time, on the provided ForkJoinPool. The classes
+     * are found using the provided ClassLoader, and are not initialized.
+     *
+     * @param pool the pool to warm up the classes on.
+     * @param loader the ClassLoader to find the classes with.
+     * @param packageName the name of the package.
+     * @return the report of what was warmed up.
+     * @throws ReflectiveException if unable to scan the package for classes.
+     */
+    public static WarmUpReport warmUpPackage(ForkJoinPool pool, ClassLoader loader, String packageName) throws ReflectiveException{
+        return WarmUp.warmUpPackage(pool, loader, packageName);
+    }
+
     /**
      * Find and invoke the method on a single matching object, identified from the
      * array of Objects passed to this method.
      *
+     * The method chosen for each combination of object types, method signature, and
+     * parameter types is cached, so repeated calls skip the discovery and selection
+     * of the method.
+     *
      * @param objects the objects to find and invoke the method on.
      * @param methodSig the signature of the method, minus params.
      * @param newParams the parameters to pass to the method.
@@ -69,10 +247,206 @@ public class FindAndInvoke {
      * @throws ReflectiveException If unable to reflectively invoke the method.
      */
     public static Object findInvokeOneMethod(String methodSig, Object[] objects, Object... newParams) throws ReflectiveException{
+        return invokeOneMethod(metrics, false, methodSig, objects, newParams);
+    }
+
+    /**
+     * Find and invoke the method on a single matching object, the same
+     * as findInvokeOneMethod(...), except that if no method can be invoked
+     * NO_METHOD is returned instead of throwing an exception. This is
+     * intended for probing objects for methods that may not exist, where
+     * the miss is expected and shouldn't cost the creation of an exception.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find and invoke the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return the result of the invocation, or NO_METHOD if no method can be invoked.
+     * @throws ReflectiveException If unable to reflectively invoke the method that was found.
+     */
+    public static Object tryFindInvokeOneMethod(String methodSig, Object[] objects, Object... newParams) throws ReflectiveException{
+        return invokeOneMethod(metrics, true, methodSig, objects, newParams);
+    }
+
+    /**
+     * Find and invoke the method on a single matching object. Every
+     * invocation of a single method by its signature goes through here.
+     * Unless the metrics are NO_OP, each stage of the invocation is
+     * timed and recorded with them.
+     *
+     * @param currentMetrics the metrics to record the invocation with.
+     * @param probe if NO_METHOD is returned when no method can be invoked, instead of throwing an exception.
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find and invoke the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return the result of the invocation, or NO_METHOD if probing and no method can be invoked.
+     * @throws ReflectiveException If unable to reflectively invoke the method.
+     */
+    private static Object invokeOneMethod(InvocationMetrics currentMetrics, boolean probe, String methodSig, Object[] objects,
+                                          Object... newParams) throws ReflectiveException{
+        boolean timed = currentMetrics != InvocationMetrics.NO_OP;
+        long start = timed ? System.nanoTime() : 0;
+        ResolutionCache.Resolution resolution = getResolution(methodSig, objects, newParams);
+        long resolved = timed ? System.nanoTime() : 0;
+        if(!resolution.isSuccess()){
+            if(timed){
+                currentMetrics.record(methodSig, resolution.getCandidateCount(), resolved - start, 0, 0, InvocationMetrics.Outcome.NO_METHOD);
+            }
+            if(probe){
+                return NO_METHOD;
+            }
+            throw resolution.createException(lightweightMisses, newParams);
+        }
+
+        ObjectAndMethod oam = new ObjectAndMethod(objects[resolution.getObjectIndex()], resolution.getMethod());
+        Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
+        if(!timed){
+            return RemoteInvoke.invokeMethod(oam, finalParams);
+        }
+
+        long converted = System.nanoTime();
+        Object result;
+        try{
+            result = RemoteInvoke.invokeMethod(oam, finalParams);
+        }
+        catch(RuntimeException | Error ex){
+            currentMetrics.record(methodSig, resolution.getCandidateCount(), resolved - start, converted - resolved,
+                    System.nanoTime() - converted, InvocationMetrics.Outcome.FAILURE);
+            throw ex;
+        }
+
+        currentMetrics.record(methodSig, resolution.getCandidateCount(), resolved - start, converted - resolved,
+                System.nanoTime() - converted, InvocationMetrics.Outcome.SUCCESS);
+        return result;
+    }
+
+    /**
+     * Find the method on a single matching object, identified from the array
+     * of Objects passed to this method, and invoke it asynchronously using the
+     * default executor.
+     *
+     * The method is found on the calling thread, so if no method can be invoked
+     * an exception is thrown immediately, rather than through the returned future.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find and invoke the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return a future that completes with the result of the invocation.
+     * @throws ReflectiveException If unable to find the method.
+     */
+    public static CompletableFuture<Object> findInvokeOneMethodAsync(String methodSig, Object[] objects, Object... newParams) throws ReflectiveException{
+        return findInvokeOneMethodAsync(defaultExecutor, methodSig, objects, newParams);
+    }
+
+    /**
+     * Find the method on a single matching object, identified from the array
+     * of Objects passed to this method, and invoke it asynchronously using the
+     * provided executor.
+     *
+     * The method is found on the calling thread, so if no method can be invoked
+     * an exception is thrown immediately, rather than through the returned future.
+     * If the invocation fails, the future is completed exceptionally with the same
+     * exception that findInvokeOneMethod() would throw.
+     *
+     * @param executor the executor to perform the invocation with.
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find and invoke the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return a future that completes with the result of the invocation.
+     * @throws ReflectiveException If unable to find the method.
+     */
+    public static CompletableFuture<Object> findInvokeOneMethodAsync(Executor executor, String methodSig, Object[] objects,
+                                                                     Object... newParams) throws ReflectiveException{
+        Pair<ObjectAndMethod,Object[]> singleInvoke = findOneInvocation(methodSig, objects, newParams);
+        return RemoteInvoke.invokeMethodAsync(executor, singleInvoke.getFirst(), singleInvoke.getSecond());
+    }
+
+    /**
+     * Find the method to invoke and the converted parameters to invoke it
+     * with, using the cached resolution for calls of the same shape if
+     * there is one.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return the method to invoke and the converted params.
+     * @throws NoMethodException if no method can be invoked.
+     */
+    private static Pair<ObjectAndMethod,Object[]> findOneInvocation(String methodSig, Object[] objects, Object... newParams) throws NoMethodException{
+        ResolutionCache.Resolution resolution = getResolution(methodSig, objects, newParams);
+        if(!resolution.isSuccess()){
+            throw resolution.createException(lightweightMisses, newParams);
+        }
+
+        ObjectAndMethod oam = new ObjectAndMethod(objects[resolution.getObjectIndex()], resolution.getMethod());
+        Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
+        return new Pair<>(oam, finalParams);
+    }
+
+    /**
+     * Get the resolution for the call, from the cache if calls
+     * of the same shape have been resolved before.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return the resolution of the method to invoke.
+     */
+    static ResolutionCache.Resolution getResolution(String methodSig, Object[] objects, Object... newParams){
+        ResolutionCache.Key key = ResolutionCache.createKey(methodSig, objects, newParams);
+        ResolutionCache.Resolution resolution = resolutionCache.get(key);
+        if(resolution == null){
+            resolution = resolveOneMethod(methodSig, objects, newParams);
+            resolutionCache.put(key, resolution);
+        }
+        return resolution;
+    }
+
+    /**
+     * Resolve which method on which object should be invoked
+     * for the provided signature and parameters, without invoking it.
+     * If no method can be invoked, a failed resolution with the
+     * reason is returned instead of throwing an exception, so that
+     * the failure can be cached as well.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to find the method on.
+     * @param newParams the parameters to pass to the method.
+     * @return the resolution of the method to invoke.
+     */
+    private static ResolutionCache.Resolution resolveOneMethod(String methodSig, Object[] objects, Object... newParams){
         int actualParamCount = newParams != null ? newParams.length : 0;
-        List<ObjectAndMethod> potentialMatches = getPotentialMatchingMethods(methodSig, actualParamCount, objects);
+        List<ObjectAndMethod> potentialMatches;
+        try{
+            potentialMatches = getPotentialMatchingMethods(methodSig, actualParamCount, objects);
+        }
+        catch(NoMethodException ex){
+            return ResolutionCache.Resolution.failure(ex.getMessage(), false, 0);
+        }
 
-        return performInvocation(methodSig, potentialMatches, true, newParams);
+        //The failure messages only describe the shape of the call, so they can be reused for every call with it
+        int candidateCount = potentialMatches.size();
+        ObjectAndMethod oam;
+        try{
+            oam = OverloadResolver.choose(methodSig, potentialMatches, newParams);
+        }
+        catch(NoMethodException ex){
+            return ResolutionCache.Resolution.failure("Ambiguous Method call: Multiple methods match signature " + methodSig + ".",
+                    true, candidateCount);
+        }
+
+        if(oam == null){
+            return ResolutionCache.Resolution.failure("No provided method can be invoked with the provided params.", true, candidateCount);
+        }
+
+        int objectIndex = 0;
+        for(int i = 0; i < objects.length; i++){
+            if(objects[i] == oam.getSource()){
+                objectIndex = i;
+                break;
+            }
+        }
+
+        return ResolutionCache.Resolution.success(objectIndex, oam.getReflectiveComponent(), candidateCount);
     }
 
     /**
@@ -105,103 +479,83 @@ public class FindAndInvoke {
      */
     private static Object performInvocation(String methodSig, Collection<ObjectAndMethod> oams,
                                             boolean single, Object...newParams) throws ReflectiveException{
-        long start = System.currentTimeMillis(); //TODO delete this
-        Object result = null;
-        boolean success = false;
+        InvocationMetrics currentMetrics = metrics;
+        if(single){
+            return performSingleInvocation(currentMetrics, methodSig, oams, newParams);
+        }
 
-        Pair<ObjectAndMethod,Object[]> singleInvoke = null;
-        for(ObjectAndMethod oam : oams){
-            Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
-            //If the params weren't valid, don't perform any of the additional validation
-            if(finalParams == null){
-                continue;
-            }
+        attemptToInvokeAllMethods(currentMetrics, methodSig, startTiming(currentMetrics), oams, newParams);
+        return null;
+    }
 
-            //Parse multiple options for invocation if single is true, or just invoke if single is false
-            if(single){
-                if(singleInvoke == null){
-                    singleInvoke = new Pair<>(oam, finalParams);
-                }
-                else{
-                    singleInvoke = chooseInvocation(methodSig, singleInvoke.getFirst(), singleInvoke.getSecond(), oam, finalParams);
-                }
-            }
-            else{
-                RemoteInvoke.invokeMethod(oam, finalParams);
-                success = true;
-            }
+    /**
+     * Choose and perform a single invocation from the potentially matching
+     * methods. Unless the metrics are NO_OP, each stage is timed and recorded
+     * with them. Choosing the invocation also converts the params, so the
+     * conversion time is included in the resolution time.
+     *
+     * @param currentMetrics the metrics to record the invocation with.
+     * @param methodSig the method signature, or null to use the name of the method.
+     * @param oams the potentially matching methods.
+     * @param newParams the parameters to use for invocation.
+     * @return the result of the invocation.
+     * @throws ReflectiveException if unable to reflectively invoke the method.
+     */
+    private static Object performSingleInvocation(InvocationMetrics currentMetrics, String methodSig,
+                                                  Collection<ObjectAndMethod> oams, Object...newParams) throws ReflectiveException{
+        if(currentMetrics == InvocationMetrics.NO_OP){
+            Pair<ObjectAndMethod,Object[]> singleInvoke = chooseSingleInvocation(methodSig, oams, newParams);
+            return RemoteInvoke.invokeMethod(singleInvoke.getFirst(), singleInvoke.getSecond());
         }
 
-        if(single && singleInvoke != null){
-            result = RemoteInvoke.invokeMethod(singleInvoke.getFirst(), singleInvoke.getSecond());
-            success = true;
+        long start = System.nanoTime();
+        Pair<ObjectAndMethod,Object[]> singleInvoke;
+        try{
+            singleInvoke = chooseSingleInvocation(methodSig, oams, newParams);
         }
-
-        if(!success){
-            throw new NoMethodException(String.format("No provided method can be invoked with the provided params. " +
-                    "Params: %s", Arrays.toString(newParams)));
+        catch(NoMethodException ex){
+            currentMetrics.record(getSignature(methodSig, oams), oams.size(), System.nanoTime() - start, 0, 0, InvocationMetrics.Outcome.NO_METHOD);
+            throw ex;
         }
+        long resolved = System.nanoTime();
 
-        long end = System.currentTimeMillis(); //TODO delete this
-        System.out.println("MAIN: " + (end - start)); //TODO delete this
+        String sig = methodSig != null ? methodSig : singleInvoke.getFirst().getReflectiveComponent().getName();
+        Object result;
+        try{
+            result = RemoteInvoke.invokeMethod(singleInvoke.getFirst(), singleInvoke.getSecond());
+        }
+        catch(RuntimeException | Error ex){
+            currentMetrics.record(sig, oams.size(), resolved - start, 0, System.nanoTime() - resolved, InvocationMetrics.Outcome.FAILURE);
+            throw ex;
+        }
 
+        currentMetrics.record(sig, oams.size(), resolved - start, 0, System.nanoTime() - resolved, InvocationMetrics.Outcome.SUCCESS);
         return result;
     }
 
     /**
-     * Compare two potential invocations to find the one that should actually
-     * be invoked.
+     * Parse all potentially matching methods and choose the single
+     * one that should be invoked, along with the (possibly converted)
+     * parameters to invoke it with. No invocation is performed. The
+     * choice is made by the OverloadResolver, so it doesn't depend on
+     * the order of the methods.
      *
      * @param methodSig the signature of the method.
-     * @param invokeOam the currently selected method to invoke.
-     * @param invokeParams the currently selected params to invoke.
-     * @param otherOam the other possible method to invoke.
-     * @param otherParams the other possible params to invoke.
+     * @param oams the potentially matching methods.
+     * @param newParams the parameters to use for the invocation.
      * @return the Pair of method and params to invoke.
-     * @throws ReflectiveException if the comparison is ambiguous and an invocation cannot be made.
+     * @throws NoMethodException if no method can be invoked, or if the choice is ambiguous.
      */
-    private static Pair<ObjectAndMethod,Object[]> chooseInvocation(String methodSig, ObjectAndMethod invokeOam, Object[] invokeParams,
-                                                                   ObjectAndMethod otherOam, Object[] otherParams) throws ReflectiveException{
-        Class<?>[] invokeParamTypes = invokeOam.getReflectiveComponent().getParameterTypes();
-        Class<?>[] otherParamTypes = otherOam.getReflectiveComponent().getParameterTypes();
-
-        //If only one is varargs, go with the non-varargs one, because if they both matched then the varargs params just include an empty array
-        if(invokeOam.isVarArgs() && !otherOam.isVarArgs()){
-            return new Pair<>(otherOam, otherParams);
-        }
-        else if(!invokeOam.isVarArgs() && otherOam.isVarArgs()){
-            return new Pair<>(invokeOam, invokeParams);
+    private static Pair<ObjectAndMethod,Object[]> chooseSingleInvocation(String methodSig, Collection<ObjectAndMethod> oams,
+                                                                         Object...newParams) throws NoMethodException{
+        ObjectAndMethod oam = OverloadResolver.choose(methodSig, oams, newParams);
+        if(oam == null){
+            throw new NoMethodException(String.format("No provided method can be invoked with the provided params. " +
+                    "Params: %s", Arrays.toString(newParams)));
         }
-        //Otherwise, parse the param types. default to the more specific type. if a null argument is provided to any position, an exception will ultimately be thrown
-        else{
-            for(int i = 0; i < invokeParamTypes.length; i++){
-                if(invokeParamTypes[i].equals(otherParamTypes[i]) || ParamUtils.isAcceptablePrimitive(invokeParamTypes[i], otherParamTypes[i])){
-                    continue;
-                }
-                else if(invokeParamTypes[i].isAssignableFrom(otherParamTypes[i])){
-                    if(otherParams != null && otherParams[i] != null){
-                        return new Pair<>(otherOam, otherParams);
-                    }
-                    //if the above condition isn't met, the ambiguous exception will be thrown
-                }
-                else if(otherParamTypes[i].isAssignableFrom(invokeParamTypes[i])){
-                    if(invokeParams != null && invokeParams[i] != null){
-                        return new Pair<>(invokeOam, invokeParams);
-                    }
-                    //if the above condition isn't met, the ambiguous exception will be thrown
-                }
-            }
 
-            //If it gets here, then it's an ambiguous call and an exception should be thrown
-            if(methodSig != null){
-                throw new NoMethodException(String.format("Ambiguous Method call: Multiple methods match signature %1$s with params %2$s",
-                        methodSig, ArrayUtil.deepToString(invokeParams)));
-            }
-            else{
-                throw new NoMethodException(String.format("Ambiguous Method call: Multiple methods could be called with params %1$s",
-                        ArrayUtil.deepToString(invokeParams)));
-            }
-        }
+        Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
+        return new Pair<>(oam, finalParams);
     }
 
     //TODO ultimately, merge this with the invokeAll stuff as well
@@ -231,6 +585,28 @@ public class FindAndInvoke {
         return performInvocation(null, oams, true, newParams);
     }
 
+    /**
+     * Find a single method that matches the provided parameters and can be
+     * successfully invoked, and invoke it asynchronously using the provided
+     * executor.
+     *
+     * The method is found on the calling thread, so if no method can be invoked
+     * an exception is thrown immediately, rather than through the returned future.
+     * If the invocation fails, the future is completed exceptionally with the same
+     * exception that findInvokeOneMethod() would throw.
+     *
+     * @param executor the executor to perform the invocation with.
+     * @param oams the group of ObjectAndMethod objects to find a method in.
+     * @param newParams the new parameters to use to invoke
+     * @return a future that completes with the result of the invocation.
+     * @throws ReflectiveException If unable to find the method.
+     */
+    public static CompletableFuture<Object> findInvokeOneMethodAsync(Executor executor, Collection<ObjectAndMethod> oams,
+                                                                     Object... newParams) throws ReflectiveException{
+        Pair<ObjectAndMethod,Object[]> singleInvoke = chooseSingleInvocation(null, oams, newParams);
+        return RemoteInvoke.invokeMethodAsync(executor, singleInvoke.getFirst(), singleInvoke.getSecond());
+    }
+
     /**
      * Find any matching methods in the provided array of objects and invoke all matches.
      * No value will be returned, because potentially invoking more than one
@@ -242,14 +618,16 @@ public class FindAndInvoke {
      * @throws ReflectiveException if unable to find or invoke the method.
      */
     public static void findInvokeAllMethods(String methodSig, Object[] objects, Object... newParams) throws ReflectiveException{
+        InvocationMetrics currentMetrics = metrics;
+        long start = startTiming(currentMetrics);
         int actualParamCount = newParams != null ? newParams.length : 0;
-        List<ObjectAndMethod> potentialMatches = getPotentialMatchingMethods(methodSig, actualParamCount, objects);
+        List<ObjectAndMethod> potentialMatches = findPotentialMatchingMethods(currentMetrics, start, methodSig, actualParamCount, objects);
 
         if(potentialMatches == null || potentialMatches.size() == 0){ //TODO needs to be modified to better handle multiples
             throw new NoMethodException(String.format("No method in provided objects match signature %1$s.", methodSig));
         }
 
-        attemptToInvokeAllMethods(potentialMatches, newParams);
+        attemptToInvokeAllMethods(currentMetrics, methodSig, start, potentialMatches, newParams);
     }
 
     /**
@@ -276,7 +654,251 @@ public class FindAndInvoke {
      * @throws ReflectiveException if unable to find or invoke the method.
      */
     public static void findInvokeAllMethods(Collection<ObjectAndMethod> oams, Object... newParams) throws ReflectiveException{
-        attemptToInvokeAllMethods(oams, newParams);
+        InvocationMetrics currentMetrics = metrics;
+        attemptToInvokeAllMethods(currentMetrics, null, startTiming(currentMetrics), oams, newParams);
+    }
+
+    /**
+     * Set the metrics to record invocations with. A call that invokes
+     * all matching methods is recorded once, covering every method it
+     * invoked. Use InvocationMetrics.NO_OP to stop recording.
+     *
+     * @param invocationMetrics the metrics to record invocations with.
+     */
+    public static void setInvocationMetrics(InvocationMetrics invocationMetrics){
+        if(invocationMetrics == null){
+            throw new IllegalArgumentException("InvocationMetrics cannot be null");
+        }
+        metrics = invocationMetrics;
+    }
+
+    public static InvocationMetrics getInvocationMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Set the executor to use for concurrent invocations that
+     * don't explicitly specify one. The default is a dedicated
+     * ForkJoinPool with one thread per processor, which isn't suited
+     * to many methods that block, such as ones that perform I/O.
+     *
+     * @param executor the new default executor.
+     */
+    public static void setDefaultExecutor(Executor executor){
+        if(executor == null){
+            throw new IllegalArgumentException("Default Executor cannot be null");
+        }
+        defaultExecutor = executor;
+    }
+
+    public static Executor getDefaultExecutor(){
+        return defaultExecutor;
+    }
+
+    /**
+     * Find any matching methods in the provided array of objects and invoke all
+     * matches concurrently, using the default executor. This method waits for all
+     * of the invocations to complete before returning.
+     *
+     * If any of the invocations fail, the first failure is rethrown once all
+     * invocations have completed, with all other failures added to it as
+     * suppressed exceptions.
+     *
+     * @param methodSig the signature of the method to find and invoke.
+     * @param objects the array of objects to find and invoke methods on.
+     * @param newParams the parameters to use for the method invocation.
+     * @throws ReflectiveException if unable to find or invoke the method.
+     */
+    public static void findInvokeAllMethodsConcurrently(String methodSig, Object[] objects, Object... newParams) throws ReflectiveException{
+        findInvokeAllMethodsConcurrently(defaultExecutor, false, methodSig, objects, newParams);
+    }
+
+    /**
+     * Find any matching methods in the provided array of objects and invoke all
+     * matches concurrently, using the provided executor. This method waits for all
+     * of the invocations to complete before returning.
+     *
+     * If any of the invocations fail, the first failure is rethrown once all
+     * invocations have completed, with all other failures added to it as
+     * suppressed exceptions.
+     *
+     * @param executor the executor to perform the invocations with.
+     * @param ordered if true, failures are reported in the order of the objects,
+     *                otherwise they are reported in the order they occurred.
+     * @param methodSig the signature of the method to find and invoke.
+     * @param objects the array of objects to find and invoke methods on.
+     * @param newParams the parameters to use for the method invocation.
+     * @throws ReflectiveException if unable to find or invoke the method.
+     */
+    public static void findInvokeAllMethodsConcurrently(Executor executor, boolean ordered, String methodSig,
+                                                        Object[] objects, Object... newParams) throws ReflectiveException{
+        findInvokeAllMethodsConcurrently(executor, ordered, false, methodSig, objects, newParams);
+    }
+
+    /**
+     * Find any matching methods in the provided array of objects and invoke all
+     * matches concurrently, using the provided executor. This method waits for all
+     * of the invocations to complete before returning.
+     *
+     * If any of the invocations fail, the first failure is rethrown once all
+     * invocations have completed, with all other failures added to it as
+     * suppressed exceptions. If failFast is true, the first failure also cancels
+     * all other invocations, interrupting any that are running.
+     *
+     * @param executor the executor to perform the invocations with.
+     * @param ordered if true, failures are reported in the order of the objects,
+     *                otherwise they are reported in the order they occurred.
+     * @param failFast if the first failure should cancel the other invocations.
+     * @param methodSig the signature of the method to find and invoke.
+     * @param objects the array of objects to find and invoke methods on.
+     * @param newParams the parameters to use for the method invocation.
+     * @throws ReflectiveException if unable to find or invoke the method.
+     */
+    public static void findInvokeAllMethodsConcurrently(Executor executor, boolean ordered, boolean failFast, String methodSig,
+                                                        Object[] objects, Object... newParams) throws ReflectiveException{
+        InvocationMetrics currentMetrics = metrics;
+        long start = startTiming(currentMetrics);
+        int actualParamCount = newParams != null ? newParams.length : 0;
+        List<ObjectAndMethod> potentialMatches = findPotentialMatchingMethods(currentMetrics, start, methodSig, actualParamCount, objects);
+
+        attemptToInvokeAllMethodsConcurrently(currentMetrics, methodSig, start, executor, ordered, failFast, potentialMatches, newParams);
+    }
+
+    /**
+     * Find any matching methods in the provided array of objects and invoke all
+     * matches concurrently, each on its own virtual thread. This is intended for
+     * methods that block, allowing a very large number of them to run at once
+     * without sizing a thread pool. On runtimes without virtual threads, the
+     * default executor is used instead. This method waits for all of the
+     * invocations to complete before returning.
+     *
+     * If any of the invocations fail, the first failure is rethrown once all
+     * invocations have completed, with all other failures added to it as
+     * suppressed exceptions. If failFast is true, the first failure also cancels
+     * all other invocations, interrupting any that are running.
+     *
+     * @param failFast if the first failure should cancel the other invocations.
+     * @param methodSig the signature of the method to find and invoke.
+     * @param objects the array of objects to find and invoke methods on.
+     * @param newParams the parameters to use for the method invocation.
+     * @throws ReflectiveException if unable to find or invoke the method.
+     */
+    public static void findInvokeAllMethodsOnVirtualThreads(boolean failFast, String methodSig, Object[] objects,
+                                                            Object... newParams) throws ReflectiveException{
+        Executor executor = VirtualThreads.isSupported() ? VirtualThreads.getExecutor() : defaultExecutor;
+        findInvokeAllMethodsConcurrently(executor, true, failFast, methodSig, objects, newParams);
+    }
+
+    /**
+     * Whether or not the current runtime supports virtual threads,
+     * which are used by findInvokeAllMethodsOnVirtualThreads().
+     *
+     * @return true if virtual threads are supported.
+     */
+    public static boolean isVirtualThreadsSupported(){
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Find any matching methods in the provided collection of ObjectAndMethods and
+     * invoke all matches concurrently, using the provided executor. This method waits
+     * for all of the invocations to complete before returning.
+     *
+     * If any of the invocations fail, the first failure is rethrown once all
+     * invocations have completed, with all other failures added to it as
+     * suppressed exceptions.
+     *
+     * @param executor the executor to perform the invocations with.
+     * @param ordered if true, failures are reported in the order of the methods,
+     *                otherwise they are reported in the order they occurred.
+     * @param oams the objects and methods to find and invoke methods on.
+     * @param newParams the parameters to use for the method invocation.
+     * @throws ReflectiveException if unable to find or invoke the method.
+     */
+    public static void findInvokeAllMethodsConcurrently(Executor executor, boolean ordered, Collection<ObjectAndMethod> oams,
+                                                        Object... newParams) throws ReflectiveException{
+        findInvokeAllMethodsConcurrently(executor, ordered, false, oams, newParams);
+    }
+
+    /**
+     * Find any matching methods in the provided collection of ObjectAndMethods and
+     * invoke all matches concurrently, using the provided executor. This method waits
+     * for all of the invocations to complete before returning.
+     *
+     * If any of the invocations fail, the first failure is rethrown once all
+     * invocations have completed, with all other failures added to it as
+     * suppressed exceptions. If failFast is true, the first failure also cancels
+     * all other invocations, interrupting any that are running.
+     *
+     * @param executor the executor to perform the invocations with.
+     * @param ordered if true, failures are reported in the order of the methods,
+     *                otherwise they are reported in the order they occurred.
+     * @param failFast if the first failure should cancel the other invocations.
+     * @param oams the objects and methods to find and invoke methods on.
+     * @param newParams the parameters to use for the method invocation.
+     * @throws ReflectiveException if unable to find or invoke the method.
+     */
+    public static void findInvokeAllMethodsConcurrently(Executor executor, boolean ordered, boolean failFast,
+                                                        Collection<ObjectAndMethod> oams, Object... newParams) throws ReflectiveException{
+        InvocationMetrics currentMetrics = metrics;
+        attemptToInvokeAllMethodsConcurrently(currentMetrics, null, startTiming(currentMetrics), executor, ordered, failFast, oams, newParams);
+    }
+
+    /**
+     * Attempt to invoke all provided methods on their matching objects
+     * concurrently, using the parameters provided. Validation of the
+     * parameters happens on the calling thread, before any invocations
+     * are started. If no matching methods are found, an exception will
+     * be thrown.
+     *
+     * @param currentMetrics the metrics to record the call with.
+     * @param methodSig the signature to record the call under, or null.
+     * @param start the time the call started, if it is being timed.
+     * @param executor the executor to perform the invocations with.
+     * @param ordered if failures should be reported in the order of the methods.
+     * @param failFast if the first failure should cancel the other invocations.
+     * @param oams the objects and methods to attempt to invoke.
+     * @param newParams the parameters to use for the invocation.
+     * @throws NoMethodException if no matching methods are found.
+     */
+    private static void attemptToInvokeAllMethodsConcurrently(InvocationMetrics currentMetrics, String methodSig, long start,
+                                                              Executor executor, boolean ordered, boolean failFast,
+                                                              Collection<ObjectAndMethod> oams, Object... newParams) throws NoMethodException{
+        boolean timed = currentMetrics != InvocationMetrics.NO_OP;
+        long resolved = timed ? System.nanoTime() : 0;
+        Broadcast broadcast = new Broadcast();
+        for(ObjectAndMethod oam : oams){
+            Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
+            if(finalParams != null){
+                broadcast.add(oam, finalParams);
+            }
+        }
+        long converted = timed ? System.nanoTime() : 0;
+
+        if(broadcast.size() == 0){
+            if(timed){
+                currentMetrics.record(getSignature(methodSig, oams), oams.size(), resolved - start, converted - resolved, 0,
+                        InvocationMetrics.Outcome.NO_METHOD);
+            }
+            throw new NoMethodException(String.format("No provided method can be invoked with the provided params. " +
+                    "Params: %s", Arrays.toString(newParams)));
+        }
+
+        if(!timed){
+            broadcast.invokeAll(executor, ordered, failFast);
+            return;
+        }
+
+        try{
+            broadcast.invokeAll(executor, ordered, failFast);
+        }
+        catch(RuntimeException | Error ex){
+            currentMetrics.record(getSignature(methodSig, oams), oams.size(), resolved - start, converted - resolved,
+                    System.nanoTime() - converted, InvocationMetrics.Outcome.FAILURE);
+            throw ex;
+        }
+        currentMetrics.record(getSignature(methodSig, oams), oams.size(), resolved - start, converted - resolved,
+                System.nanoTime() - converted, InvocationMetrics.Outcome.SUCCESS);
     }
 
     /**
@@ -288,18 +910,44 @@ public class FindAndInvoke {
      * that invoking multiple methods doesn't make clear which
      * value should be returned.
      *
+     * @param currentMetrics the metrics to record the call with.
+     * @param methodSig the signature to record the call under, or null.
+     * @param start the time the call started, if it is being timed.
      * @param oams the objects and methods to attempt to invoke.
      * @param newParams the parameters to use for the invocation.
      * @throws NoMethodException if no matching methods are found.
      */
-    private static void attemptToInvokeAllMethods(Collection<ObjectAndMethod> oams, Object... newParams) throws NoMethodException{
+    private static void attemptToInvokeAllMethods(InvocationMetrics currentMetrics, String methodSig, long start,
+                                                  Collection<ObjectAndMethod> oams, Object... newParams) throws NoMethodException{
+        boolean timed = currentMetrics != InvocationMetrics.NO_OP;
+        long resolved = timed ? System.nanoTime() : 0;
+        long conversionNanos = 0;
         boolean success = false;
-        for(ObjectAndMethod oam : oams){ //TODO needs to be modified to better handle multiples
-            Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
-            if(finalParams != null){
-                RemoteInvoke.invokeMethod(oam, newParams);
-                success = true;
+        try{
+            for(ObjectAndMethod oam : oams){ //TODO needs to be modified to better handle multiples
+                long converting = timed ? System.nanoTime() : 0;
+                Object[] finalParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), newParams);
+                if(timed){
+                    conversionNanos += System.nanoTime() - converting;
+                }
+
+                if(finalParams != null){
+                    RemoteInvoke.invokeMethod(oam, finalParams);
+                    success = true;
+                }
+            }
+        }
+        catch(RuntimeException | Error ex){
+            if(timed){
+                currentMetrics.record(getSignature(methodSig, oams), oams.size(), resolved - start, conversionNanos,
+                        System.nanoTime() - resolved - conversionNanos, InvocationMetrics.Outcome.FAILURE);
             }
+            throw ex;
+        }
+
+        if(timed){
+            currentMetrics.record(getSignature(methodSig, oams), oams.size(), resolved - start, conversionNanos,
+                    System.nanoTime() - resolved - conversionNanos, success ? InvocationMetrics.Outcome.SUCCESS : InvocationMetrics.Outcome.NO_METHOD);
         }
 
         if(!success){
@@ -308,11 +956,57 @@ public class FindAndInvoke {
         }
     }
 
+    /**
+     * Find the potentially matching methods for a call that invokes all
+     * of them, recording the call with the metrics if none are found.
+     *
+     * @param currentMetrics the metrics to record the call with.
+     * @param start the time the call started, if it is being timed.
+     * @param methodSig the signature of the method to search for.
+     * @param actualParamCount the count of parameters provided for the invocation.
+     * @param objects the objects to search for the method.
+     * @return the potentially matching methods.
+     * @throws NoMethodException if no potentially matching methods are found.
+     */
+    private static List<ObjectAndMethod> findPotentialMatchingMethods(InvocationMetrics currentMetrics, long start, String methodSig,
+                                                                      int actualParamCount, Object...objects) throws NoMethodException{
+        try{
+            return getPotentialMatchingMethods(methodSig, actualParamCount, objects);
+        }
+        catch(NoMethodException ex){
+            if(currentMetrics != InvocationMetrics.NO_OP){
+                currentMetrics.record(methodSig, 0, System.nanoTime() - start, 0, 0, InvocationMetrics.Outcome.NO_METHOD);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the time a call starts, if it is being recorded with
+     * the metrics. The clock isn't read while they are NO_OP.
+     */
+    private static long startTiming(InvocationMetrics currentMetrics){
+        return currentMetrics != InvocationMetrics.NO_OP ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Get the signature to record a call with the metrics under, using
+     * the name of the first method if there is no signature.
+     */
+    private static String getSignature(String methodSig, Collection<ObjectAndMethod> oams){
+        if(methodSig != null){
+            return methodSig;
+        }
+        return oams.isEmpty() ? "" : oams.iterator().next().getReflectiveComponent().getName();
+    }
+
     /**
      * Get all potentially matching methods from
      * objects provided to this method. A potential match is a method whose
-     * signature matches the provided String, but whose parameter types
-     * haven't been checked yet.
+     * signature matches the provided String and which could accept the
+     * number of parameters provided, but whose parameter types
+     * haven't been checked yet. The candidates are found using the
+     * MethodIndex of each object's class.
      *
      * @param objects the collection of objects to search for a matching method.
      * @param actualParamCount the count of parameters provided for the invocation.
@@ -324,8 +1018,19 @@ public class FindAndInvoke {
      */
     private static List<ObjectAndMethod> getPotentialMatchingMethods(String methodSig, int actualParamCount, Object...objects) {
         List<ObjectAndMethod> matchingMethods = new ArrayList<>();
+
+        //Objects often share a class, so the candidates are reused until the class changes
+        Class<?> lastType = null;
+        Method[] candidates = null;
         for(Object obj : objects){
-            matchingMethods.addAll(getPotentialMatchingMethodsFromSingle(methodSig, obj, actualParamCount));
+            if(obj.getClass() != lastType){
+                lastType = obj.getClass();
+                candidates = MethodIndex.forClass(lastType).getCandidates(methodSig, actualParamCount);
+            }
+
+            for(Method m : candidates){
+                matchingMethods.add(new ObjectAndMethod(obj, m));
+            }
         }
 
         //If no matches are found, throw an exception
@@ -336,35 +1041,4 @@ public class FindAndInvoke {
         return matchingMethods;
     }
 
-    /**
-     * Get all potentially matching methods from a single object.
-     * A potential match is a method whose signature matches the
-     * provided String, but whose parameter types haven't been
-     * checked yet.
-     *
-     * @param methodSig the signature of the method to find a match
-     *                  for.
-     * @param obj the object to search for methods with a matching
-     *            signature.
-     * @param actualParamCount the count of parameters provided for the invocation.
-     * @return a list of any potential matches found, or an empty
-     *          list if none are found.
-     */
-    private static List<ObjectAndMethod> getPotentialMatchingMethodsFromSingle(String methodSig, Object obj, int actualParamCount){
-        List<ObjectAndMethod> matches = new ArrayList<>();
-        Method[] methods = obj.getClass().getMethods();
-        for(Method m : methods){
-            if(m.getName().equals(methodSig)){
-                if(m.isVarArgs() && m.getParameterTypes().length >= actualParamCount - 1){
-                    matches.add(new ObjectAndMethod(obj, m));
-                }
-                else if(m.getParameterTypes().length == actualParamCount){
-                    matches.add(new ObjectAndMethod(obj, m));
-                }
-            }
-        }
-
-        return matches;
-    }
-
 }
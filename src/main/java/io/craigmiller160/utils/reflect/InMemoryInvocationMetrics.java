@@ -0,0 +1,301 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An implementation of InvocationMetrics that keeps the
+ * metrics for each method signature in memory. Recording
+ * is lock-free, so it can be left enabled in production
+ * to find slow invocations.
+ *
+ * Timings are kept in histograms with 8 buckets for every
+ * power of two, so percentiles are accurate to within
+ * 12.5% of the actual value.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class InMemoryInvocationMetrics implements InvocationMetrics {
+
+    private final ConcurrentMap<String,SignatureMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String methodSig, int candidateCount, long resolutionNanos, long conversionNanos,
+                       long invokeNanos, Outcome outcome) {
+        SignatureMetrics sigMetrics = metrics.get(methodSig);
+        if(sigMetrics == null){
+            sigMetrics = new SignatureMetrics();
+            SignatureMetrics existing = metrics.putIfAbsent(methodSig, sigMetrics);
+            sigMetrics = existing != null ? existing : sigMetrics;
+        }
+
+        sigMetrics.record(candidateCount, resolutionNanos, conversionNanos, invokeNanos, outcome);
+    }
+
+    /**
+     * Get a snapshot of the metrics for a single method signature.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @return the snapshot, or null if nothing has been recorded for the signature.
+     */
+    public Snapshot getSnapshot(String methodSig){
+        SignatureMetrics sigMetrics = metrics.get(methodSig);
+        return sigMetrics != null ? sigMetrics.snapshot(methodSig) : null;
+    }
+
+    /**
+     * Get snapshots of the metrics for every method signature
+     * that has been recorded.
+     *
+     * @return the snapshots, by method signature.
+     */
+    public Map<String,Snapshot> getSnapshots(){
+        Map<String,Snapshot> snapshots = new HashMap<>();
+        for(Map.Entry<String,SignatureMetrics> entry : metrics.entrySet()){
+            snapshots.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    /**
+     * Remove all recorded metrics.
+     */
+    public void reset(){
+        metrics.clear();
+    }
+
+    /**
+     * The metrics recorded for a single method signature.
+     */
+    private static class SignatureMetrics {
+
+        private final LongAdder[] outcomeCounts = new LongAdder[Outcome.values().length];
+        private final LongAdder candidateTotal = new LongAdder();
+        private final Histogram resolutionTimes = new Histogram();
+        private final Histogram conversionTimes = new Histogram();
+        private final Histogram invokeTimes = new Histogram();
+
+        SignatureMetrics(){
+            for(int i = 0; i < outcomeCounts.length; i++){
+                outcomeCounts[i] = new LongAdder();
+            }
+        }
+
+        void record(int candidateCount, long resolutionNanos, long conversionNanos, long invokeNanos, Outcome outcome){
+            outcomeCounts[outcome.ordinal()].increment();
+            candidateTotal.add(candidateCount);
+            resolutionTimes.record(resolutionNanos);
+            //Stages that weren't reached aren't recorded, so they don't skew the percentiles
+            if(outcome != Outcome.NO_METHOD){
+                conversionTimes.record(conversionNanos);
+                invokeTimes.record(invokeNanos);
+            }
+        }
+
+        Snapshot snapshot(String methodSig){
+            long[] counts = new long[outcomeCounts.length];
+            for(int i = 0; i < counts.length; i++){
+                counts[i] = outcomeCounts[i].sum();
+            }
+            return new Snapshot(methodSig, counts, candidateTotal.sum(), resolutionTimes.snapshot(),
+                    conversionTimes.snapshot(), invokeTimes.snapshot());
+        }
+    }
+
+    /**
+     * A lock-free histogram of times in nanoseconds. Values below 8 each
+     * have their own bucket. Above that, every power of two is split into
+     * 8 equal buckets.
+     */
+    static class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos){
+            long value = Math.max(nanos, 0);
+            counts.incrementAndGet(bucketIndex(value));
+            total.add(value);
+
+            long currentMax = max.get();
+            while(value > currentMax && !max.compareAndSet(currentMax, value)){
+                currentMax = max.get();
+            }
+        }
+
+        TimingSnapshot snapshot(){
+            long[] snapshotCounts = new long[BUCKET_COUNT];
+            for(int i = 0; i < BUCKET_COUNT; i++){
+                snapshotCounts[i] = counts.get(i);
+            }
+            return new TimingSnapshot(snapshotCounts, total.sum(), max.get());
+        }
+
+        static int bucketIndex(long value){
+            if(value < SUB_BUCKET_COUNT){
+                return (int) value;
+            }
+
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+            return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        static long bucketUpperBound(int index){
+            if(index < SUB_BUCKET_COUNT){
+                return index;
+            }
+
+            int shift = (index >>> SUB_BUCKET_BITS) - 1;
+            long lowerBound = ((long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1)))) << shift;
+            return lowerBound + (1L << shift) - 1;
+        }
+    }
+
+    /**
+     * A snapshot of the metrics for a single method signature.
+     */
+    public static final class Snapshot {
+
+        private final String methodSig;
+        private final long[] outcomeCounts;
+        private final long candidateTotal;
+        private final TimingSnapshot resolutionTimes;
+        private final TimingSnapshot conversionTimes;
+        private final TimingSnapshot invokeTimes;
+
+        private Snapshot(String methodSig, long[] outcomeCounts, long candidateTotal, TimingSnapshot resolutionTimes,
+                         TimingSnapshot conversionTimes, TimingSnapshot invokeTimes){
+            this.methodSig = methodSig;
+            this.outcomeCounts = outcomeCounts;
+            this.candidateTotal = candidateTotal;
+            this.resolutionTimes = resolutionTimes;
+            this.conversionTimes = conversionTimes;
+            this.invokeTimes = invokeTimes;
+        }
+
+        public String getMethodSig(){
+            return methodSig;
+        }
+
+        public long getCount(Outcome outcome){
+            return outcomeCounts[outcome.ordinal()];
+        }
+
+        public long getTotalCount(){
+            long count = 0;
+            for(long outcomeCount : outcomeCounts){
+                count += outcomeCount;
+            }
+            return count;
+        }
+
+        public double getAverageCandidateCount(){
+            long count = getTotalCount();
+            return count > 0 ? (double) candidateTotal / count : 0;
+        }
+
+        public TimingSnapshot getResolutionTimes(){
+            return resolutionTimes;
+        }
+
+        public TimingSnapshot getConversionTimes(){
+            return conversionTimes;
+        }
+
+        public TimingSnapshot getInvokeTimes(){
+            return invokeTimes;
+        }
+    }
+
+    /**
+     * A snapshot of the times recorded for a single stage
+     * of invocation, in nanoseconds.
+     */
+    public static final class TimingSnapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private TimingSnapshot(long[] counts, long total, long max){
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+
+            long sum = 0;
+            for(long bucketCount : counts){
+                sum += bucketCount;
+            }
+            this.count = sum;
+        }
+
+        public long getCount(){
+            return count;
+        }
+
+        public long getMax(){
+            return max;
+        }
+
+        public double getMean(){
+            return count > 0 ? (double) total / count : 0;
+        }
+
+        /**
+         * Get the time at the specified percentile. The time
+         * returned is the upper bound of the histogram bucket
+         * the percentile falls in, but never more than the max.
+         *
+         * @param percentile the percentile, from 0 to 100.
+         * @return the time at the percentile, or 0 if nothing was recorded.
+         */
+        public long getPercentile(double percentile){
+            if(percentile < 0 || percentile > 100){
+                throw new IllegalArgumentException("Percentile must be between 0 and 100. Percentile: " + percentile);
+            }
+            if(count == 0){
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long cumulative = 0;
+            for(int i = 0; i < counts.length; i++){
+                cumulative += counts[i];
+                if(cumulative >= target){
+                    return Math.min(Histogram.bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+/**
+ * The different mechanisms RemoteInvoke can use
+ * to perform a reflective method invocation.
+ *
+ * Created by craig on 10/16/26.
+ */
+public enum InvocationBackend {
+
+    /**
+     * Invoke the method using Method.invoke(...).
+     */
+    REFLECTION,
+
+    /**
+     * Invoke the method using a cached MethodHandle, adapted
+     * to accept the target object and an array of parameters.
+     * If a MethodHandle can't be created for a method, the
+     * invocation falls back to reflection.
+     */
+    METHOD_HANDLE,
+
+    /**
+     * Invoke the method using a DirectInvoker generated with the
+     * LambdaMetafactory. The invoker is only generated once the
+     * method has been invoked the number of times set in
+     * DirectInvokers, and until then the MethodHandle is used.
+     */
+    DIRECT
+
+}
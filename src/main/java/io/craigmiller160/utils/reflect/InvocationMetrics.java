@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+/**
+ * Receives timing information about the invocations
+ * performed by FindAndInvoke. An implementation can be
+ * installed with FindAndInvoke.setInvocationMetrics(...).
+ *
+ * The default is NO_OP, which records nothing. While it
+ * is installed, FindAndInvoke doesn't take any timings
+ * at all, so metrics have no cost unless they're enabled.
+ *
+ * A call that invokes all matching methods, either one
+ * after another or concurrently, is recorded once. Its
+ * conversion and invoke times are the totals across all
+ * the methods, and its outcome is SUCCESS only if every
+ * method that could be invoked succeeded.
+ *
+ * Implementations are called from every thread performing
+ * invocations, so they must be thread-safe, and should be
+ * as cheap as possible.
+ *
+ * Created by craig on 10/16/26.
+ */
+public interface InvocationMetrics {
+
+    /**
+     * The outcome of an invocation.
+     */
+    enum Outcome {
+        /**
+         * The method was found and invoked successfully.
+         */
+        SUCCESS,
+        /**
+         * No method could be found to invoke with the params.
+         */
+        NO_METHOD,
+        /**
+         * The method was found, but the invocation threw an exception.
+         */
+        FAILURE
+    }
+
+    /**
+     * An implementation that records nothing.
+     */
+    InvocationMetrics NO_OP = new InvocationMetrics() {
+        @Override
+        public void record(String methodSig, int candidateCount, long resolutionNanos, long conversionNanos,
+                           long invokeNanos, Outcome outcome) {
+            //Do nothing
+        }
+    };
+
+    /**
+     * Record a single invocation. All times are in nanoseconds. If the
+     * invocation didn't reach a stage, the time for that stage is 0.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param candidateCount the number of candidate methods considered when finding the method.
+     * @param resolutionNanos the time spent finding the method to invoke.
+     * @param conversionNanos the time spent validating and converting the params.
+     * @param invokeNanos the time spent invoking the method.
+     * @param outcome the outcome of the invocation.
+     */
+    void record(String methodSig, int candidateCount, long resolutionNanos, long conversionNanos,
+                long invokeNanos, Outcome outcome);
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the public methods of a class, by name and
+ * by the number of parameters they can be invoked with. The
+ * index is built once per class, and is stored in the class's
+ * ReflectionMetadata so it doesn't prevent the class from being unloaded.
+ *
+ * For each method name, the index holds the candidate methods for
+ * every possible number of parameters, so finding the methods that
+ * could be invoked with a given number of parameters is a single lookup.
+ * The candidates are sorted with the most specific methods first.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class MethodIndex {
+
+    private static final Method[] NO_METHODS = new Method[0];
+
+    /**
+     * For each method name, an array of candidate methods for each number
+     * of parameters. The final element holds the candidates for any
+     * number of parameters beyond the end of the array, which can only
+     * be varargs methods.
+     */
+    private final Map<String,Method[][]> candidatesByName;
+
+    MethodIndex(Method[] methods){
+        Map<String,List<Method>> methodsByName = new HashMap<>();
+        for(Method m : methods){
+            List<Method> named = methodsByName.get(m.getName());
+            if(named == null){
+                named = new ArrayList<>();
+                methodsByName.put(m.getName(), named);
+            }
+            named.add(m);
+        }
+
+        Map<String,Method[][]> candidates = new HashMap<>();
+        for(Map.Entry<String,List<Method>> entry : methodsByName.entrySet()){
+            candidates.put(entry.getKey(), buildCandidates(entry.getValue()));
+        }
+        this.candidatesByName = candidates;
+    }
+
+    /**
+     * Get the index for the provided class.
+     *
+     * @param type the class.
+     * @return the index of the class's public methods.
+     */
+    static MethodIndex forClass(Class<?> type){
+        return ReflectionMetadata.forClass(type).getMethodIndex();
+    }
+
+    /**
+     * Get the methods with the provided name that could be invoked
+     * with the provided number of parameters. A method is a candidate
+     * if it has exactly that many parameters, or if it is varargs and
+     * the parameters could fill every position before the varargs one.
+     * The types of the parameters are not checked. The methods are
+     * sorted so that each one comes before any it is more specific than.
+     *
+     * The array returned is shared, and must not be modified.
+     *
+     * @param name the name of the method.
+     * @param paramCount the number of parameters provided.
+     * @return the candidate methods, or an empty array if there are none.
+     */
+    Method[] getCandidates(String name, int paramCount){
+        Method[][] byParamCount = candidatesByName.get(name);
+        if(byParamCount == null){
+            return NO_METHODS;
+        }
+        return byParamCount[Math.min(paramCount, byParamCount.length - 1)];
+    }
+
+    /**
+     * Build the candidate methods for each number of parameters
+     * from all the methods with a single name.
+     *
+     * @param methods the methods with the same name.
+     * @return the candidates for each number of parameters.
+     */
+    private static Method[][] buildCandidates(List<Method> methods){
+        int maxParamCount = 0;
+        for(Method m : methods){
+            maxParamCount = Math.max(maxParamCount, ReflectionMetadata.getParameterCount(m));
+        }
+
+        Method[][] byParamCount = new Method[maxParamCount + 2][];
+        for(int paramCount = 0; paramCount < byParamCount.length; paramCount++){
+            List<Method> candidates = new ArrayList<>();
+            for(Method m : methods){
+                int expectedCount = ReflectionMetadata.getParameterCount(m);
+                if(expectedCount == paramCount || (m.isVarArgs() && expectedCount - 1 <= paramCount)){
+                    candidates.add(m);
+                }
+            }
+            byParamCount[paramCount] = candidates.isEmpty() ? NO_METHODS : OverloadResolver.orderBySpecificity(candidates);
+        }
+
+        return byParamCount;
+    }
+
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the cached invocation state for a single Method,
+ * most importantly the MethodHandle and generated DirectInvoker
+ * used to invoke it.
+ *
+ * Instances are cached per method, and are stored against the
+ * class that declares the method using a ClassValue, so that
+ * the cache doesn't prevent classes from being unloaded.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class MethodInvoker {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    /**
+     * The invokers for each class, stored against the class that
+     * declares the methods.
+     */
+    private static final ClassValue<ConcurrentMap<Method,MethodInvoker>> invokers = new ClassValue<ConcurrentMap<Method,MethodInvoker>>() {
+        @Override
+        protected ConcurrentMap<Method,MethodInvoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * A placeholder for the handle of a method that
+     * a MethodHandle can't be created for.
+     */
+    private static final MethodHandle NO_HANDLE = MethodHandles.constant(Object.class, null);
+
+    private static final TypedHandle[] NO_TYPED_HANDLES = new TypedHandle[0];
+
+    private final Method method;
+    private volatile MethodHandle handle;
+    private volatile DirectInvoker directInvoker;
+
+    /**
+     * The exact-typed handles created for this method. Each typed entry
+     * point uses its own type, so there are only ever a few of them. The
+     * array is never modified, it is replaced by a larger copy when a
+     * handle is added.
+     */
+    private volatile TypedHandle[] typedHandles = NO_TYPED_HANDLES;
+
+    /**
+     * The number of invocations performed with the DIRECT backend
+     * before the invoker has been generated. Updates to this aren't
+     * atomic, because the threshold doesn't need to be exact.
+     */
+    private volatile int directInvocationCount = 0;
+
+    /**
+     * The indexes of the primitive params of the method, and the
+     * wrapper type of each one. The generated invoker casts each
+     * primitive param to exactly its wrapper type, so these are
+     * used to check that params can be passed to it without widening.
+     */
+    private final int[] primitiveParamIndexes;
+    private final Class<?>[] primitiveParamWrappers;
+
+    private MethodInvoker(Method method){
+        this.method = method;
+
+        Class<?>[] paramTypes = ReflectionMetadata.getParameterTypes(method);
+        int primitiveCount = 0;
+        for(Class<?> paramType : paramTypes){
+            if(paramType.isPrimitive()){
+                primitiveCount++;
+            }
+        }
+
+        this.primitiveParamIndexes = new int[primitiveCount];
+        this.primitiveParamWrappers = new Class<?>[primitiveCount];
+        int primitive = 0;
+        for(int i = 0; i < paramTypes.length; i++){
+            if(paramTypes[i].isPrimitive()){
+                primitiveParamIndexes[primitive] = i;
+                primitiveParamWrappers[primitive] = ParamUtils.wrap(paramTypes[i]);
+                primitive++;
+            }
+        }
+    }
+
+    /**
+     * Get the invoker for the provided method.
+     *
+     * @param method the method.
+     * @return the invoker for the method.
+     */
+    static MethodInvoker forMethod(Method method){
+        ConcurrentMap<Method,MethodInvoker> classInvokers = invokers.get(method.getDeclaringClass());
+        MethodInvoker invoker = classInvokers.get(method);
+        if(invoker == null){
+            invoker = new MethodInvoker(method);
+            MethodInvoker existing = classInvokers.putIfAbsent(method, invoker);
+            if(existing != null){
+                invoker = existing;
+            }
+        }
+        return invoker;
+    }
+
+    Method getMethod(){
+        return method;
+    }
+
+    /**
+     * Get the MethodHandle for this method. The handle is
+     * adapted to the generic type (Object,Object[])Object, where
+     * the first argument is the target of the invocation (ignored
+     * for static methods) and the second is the array of parameters.
+     * Void methods return null.
+     *
+     * @return the adapted MethodHandle, or null if one can't be
+     *          created for the method.
+     */
+    MethodHandle getHandle(){
+        MethodHandle result = handle;
+        if(result == null){
+            result = createHandle(method);
+            handle = result;
+        }
+        return result != NO_HANDLE ? result : null;
+    }
+
+    /**
+     * Get a MethodHandle for this method adapted to exactly the provided
+     * type, for invocations with primitive params and return values that
+     * avoid boxing. The first param of the type is the target of the
+     * invocation (ignored for static methods). Only conversions that can't
+     * lose information are allowed: the target and reference params are
+     * cast, primitives can be widened and boxed or unboxed, and the return
+     * value can be discarded if the type returns void.
+     *
+     * @param type the exact type of the handle.
+     * @return the adapted MethodHandle.
+     * @throws ReflectiveException if the method can't be invoked as that type.
+     */
+    MethodHandle getTypedHandle(MethodType type) throws ReflectiveException{
+        for(TypedHandle typed : typedHandles){
+            if(typed.type == type){
+                return typed.handle;
+            }
+        }
+        return addTypedHandle(type);
+    }
+
+    private synchronized MethodHandle addTypedHandle(MethodType type) throws ReflectiveException{
+        TypedHandle[] current = typedHandles;
+        for(TypedHandle typed : current){
+            if(typed.type == type){
+                return typed.handle;
+            }
+        }
+
+        MethodHandle typedHandle = createTypedHandle(method, type);
+        TypedHandle[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new TypedHandle(type, typedHandle);
+        typedHandles = updated;
+        return typedHandle;
+    }
+
+    /**
+     * Invoke the method using its MethodHandle, falling back
+     * to reflection if no MethodHandle could be created for it.
+     *
+     * Exceptions are reported the same way Method.invoke(...) reports
+     * them, so every backend has the same exception contract: anything
+     * thrown by the method is wrapped in an InvocationTargetException.
+     *
+     * @param target the object to invoke the method on.
+     * @param params the parameters to pass to the method.
+     * @return the result of the invocation, or null if there is none.
+     * @throws InvocationTargetException if the method throws an exception.
+     * @throws IllegalAccessException if falling back to reflection, and the method isn't accessible.
+     */
+    Object invokeWithHandle(Object target, Object[] params) throws InvocationTargetException, IllegalAccessException{
+        MethodHandle mh = getHandle();
+        if(mh == null){
+            return method.invoke(target, params);
+        }
+
+        try{
+            return (Object) mh.invokeExact(target, params);
+        }
+        catch(Throwable ex){
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Invoke the method using its generated DirectInvoker. If the method
+     * hasn't been invoked enough times for the invoker to be generated,
+     * the invocation uses the MethodHandle instead. The MethodHandle is
+     * also used if any primitive param isn't exactly its wrapper type,
+     * such as an Integer for a long param, because the invoker can't
+     * widen it, or if the invoker couldn't be generated.
+     *
+     * Exceptions are reported the same way as invokeWithHandle(...).
+     *
+     * @param target the object to invoke the method on.
+     * @param params the parameters to pass to the method.
+     * @return the result of the invocation, or null if there is none.
+     * @throws InvocationTargetException if the method throws an exception.
+     * @throws IllegalAccessException if falling back to reflection, and the method isn't accessible.
+     */
+    Object invokeDirect(Object target, Object[] params) throws InvocationTargetException, IllegalAccessException{
+        if(!hasExactPrimitiveParams(params)){
+            return invokeWithHandle(target, params);
+        }
+
+        DirectInvoker invoker = directInvoker;
+        if(invoker == null){
+            int count = directInvocationCount + 1;
+            directInvocationCount = count;
+            if(count < DirectInvokers.getGenerationThreshold()){
+                return invokeWithHandle(target, params);
+            }
+            invoker = getDirectInvoker();
+        }
+
+        if(invoker instanceof HandleInvoker){
+            return invokeWithHandle(target, params);
+        }
+
+        try{
+            return invoker.invoke(target, params);
+        }
+        catch(Throwable ex){
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Test if every primitive param is exactly the wrapper type of
+     * the primitive, so it can be passed to the generated invoker.
+     *
+     * @param params the parameters to pass to the method.
+     * @return true if no primitive params need to be widened.
+     */
+    private boolean hasExactPrimitiveParams(Object[] params){
+        for(int i = 0; i < primitiveParamIndexes.length; i++){
+            int index = primitiveParamIndexes[i];
+            if(params == null || index >= params.length || params[index] == null || params[index].getClass() != primitiveParamWrappers[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the DirectInvoker for this method, generating it if
+     * it hasn't been generated yet. If one can't be generated,
+     * an invoker that uses the MethodHandle is returned instead.
+     *
+     * @return the invoker for the method.
+     */
+    DirectInvoker getDirectInvoker(){
+        DirectInvoker invoker = directInvoker;
+        if(invoker == null){
+            synchronized (this){
+                invoker = directInvoker;
+                if(invoker == null){
+                    invoker = DirectInvokers.generate(method);
+                    if(invoker == null){
+                        invoker = new HandleInvoker();
+                    }
+                    directInvoker = invoker;
+                }
+            }
+        }
+        return invoker;
+    }
+
+    /**
+     * Create the adapted MethodHandle for the method. If the method isn't
+     * accessible to this package, no handle is created, and invocations
+     * fall back to reflection.
+     *
+     * @param method the method.
+     * @return the adapted MethodHandle, or NO_HANDLE if one can't be created.
+     */
+    private static MethodHandle createHandle(Method method){
+        MethodHandle mh = unreflect(method);
+        if(mh == null){
+            return NO_HANDLE;
+        }
+
+        int paramCount = ReflectionMetadata.getParameterCount(method);
+        return mh.asType(MethodType.genericMethodType(paramCount + 1))
+                .asSpreader(Object[].class, paramCount);
+    }
+
+    /**
+     * Create the MethodHandle for the method adapted to an exact type.
+     *
+     * @param method the method.
+     * @param type the exact type of the handle.
+     * @return the adapted MethodHandle.
+     * @throws ReflectiveException if the method can't be invoked as that type.
+     */
+    private static MethodHandle createTypedHandle(Method method, MethodType type) throws ReflectiveException{
+        MethodHandle mh = unreflect(method);
+        if(mh == null){
+            throw new ReflectiveException("Unable to create a MethodHandle for method: " + method);
+        }
+
+        try{
+            return mh.asType(type);
+        }
+        catch(WrongMethodTypeException ex){
+            throw new ReflectiveException("Method can't be invoked with type " + type + ". Method: " + method, ex);
+        }
+    }
+
+    /**
+     * Create the MethodHandle for the method, with a fixed arity and
+     * the target as its first param, even if the method is static.
+     *
+     * @param method the method.
+     * @return the MethodHandle, or null if one can't be created.
+     */
+    private static MethodHandle unreflect(Method method){
+        MethodHandle mh;
+        try{
+            mh = lookup.unreflect(method);
+        }
+        catch(IllegalAccessException ex){
+            //Access isn't overridden, so every backend can invoke exactly the methods reflection can
+            return null;
+        }
+
+        mh = mh.asFixedArity();
+        if(Modifier.isStatic(method.getModifiers())){
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
+        }
+        return mh;
+    }
+
+    /**
+     * The invoker used when a DirectInvoker can't be generated
+     * for the method, which invokes it with its MethodHandle.
+     */
+    private final class HandleInvoker implements DirectInvoker {
+
+        @Override
+        public Object invoke(Object target, Object[] params) throws Throwable {
+            //DirectInvokers throw the exceptions from the method directly
+            try{
+                return invokeWithHandle(target, params);
+            }
+            catch(InvocationTargetException ex){
+                throw ex.getCause();
+            }
+        }
+    }
+
+    /**
+     * An exact-typed MethodHandle, and the type it was created for.
+     */
+    private static final class TypedHandle {
+
+        private final MethodType type;
+        private final MethodHandle handle;
+
+        TypedHandle(MethodType type, MethodHandle handle){
+            this.type = type;
+            this.handle = handle;
+        }
+    }
+
+}
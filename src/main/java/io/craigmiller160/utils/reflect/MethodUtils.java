@@ -30,8 +30,19 @@ public class MethodUtils {
 
     MethodUtils(){}
 
+    /**
+     * Validate that the provided parameters can be used to invoke the method,
+     * and convert them for a varargs invocation if necessary. This follows the
+     * rules of ParamUtils.validateInvocationAndConvertParams(...), but uses a
+     * cached ConversionPlan for the method and the classes of the parameters.
+     *
+     * @param method the method to be invoked.
+     * @param newParams the parameters to use for the invocation.
+     * @return an array of (possibly converted) parameters if the validation
+     * passes, null if the validation fails.
+     */
     public static Object[] validateInvocationAndConvertParams(Method method, Object...newParams){
-        return ParamUtils.validateInvocationAndConvertParams(method.getParameterTypes(), method.isVarArgs(), newParams);
+        return ConversionPlan.forInvocation(method, newParams).apply(newParams);
     }
 
      /**
@@ -48,8 +59,8 @@ public class MethodUtils {
     public static boolean isDuplicateMethod(Method m1, Method m2){
         boolean duplicate = false;
         if(m1.getName().equals(m2.getName())){
-            Class<?>[] m1ParamTypes = m1.getParameterTypes();
-            Class<?>[] m2ParamTypes = m2.getParameterTypes();
+            Class<?>[] m1ParamTypes = ReflectionMetadata.getParameterTypes(m1);
+            Class<?>[] m2ParamTypes = ReflectionMetadata.getParameterTypes(m2);
             if(m1ParamTypes.length == m2ParamTypes.length){
                 if(Arrays.equals(m1ParamTypes, m2ParamTypes)){
                     duplicate = true;
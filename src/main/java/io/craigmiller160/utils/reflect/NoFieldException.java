@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.craigmiller160.utils.reflect;
+
+/**
+ * An exception for if a field cannot be found
+ * for a reflective access.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class NoFieldException extends ReflectiveException {
+
+    public NoFieldException() {
+    }
+
+    public NoFieldException(String message) {
+        super(message);
+    }
+
+    public NoFieldException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public NoFieldException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -38,4 +38,8 @@ public class NoMethodException  extends ReflectiveException{
     public NoMethodException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    public NoMethodException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
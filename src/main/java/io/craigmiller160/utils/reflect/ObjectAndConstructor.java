@@ -32,14 +32,20 @@ public class ObjectAndConstructor extends ReflectiveHolder<Object,Constructor> i
         return getSource().getClass();
     }
 
+    /**
+     * Get the parameter types of the constructor. The array is a copy,
+     * because the one used internally is shared by every holder.
+     *
+     * @return the parameter types.
+     */
     @Override
     public Class<?>[] getParamTypes() {
-        return getReflectiveComponent().getParameterTypes();
+        return ReflectionMetadata.getParameterTypes(getReflectiveComponent()).clone();
     }
 
     @Override
     public int getParamCount() {
-        return getReflectiveComponent().getParameterTypes().length;
+        return ReflectionMetadata.getParameterCount(getReflectiveComponent());
     }
 
     @Override
@@ -89,9 +95,10 @@ public class ObjectAndConstructor extends ReflectiveHolder<Object,Constructor> i
     }
 
     private String[] getParamTypeNames(){
-        String[] paramTypeNames = new String[getParamTypes().length];
+        Class<?>[] paramTypes = ReflectionMetadata.getParameterTypes(getReflectiveComponent());
+        String[] paramTypeNames = new String[paramTypes.length];
         for(int i = 0; i < paramTypeNames.length; i++){
-            paramTypeNames[i] = getParamTypes()[i].getName();
+            paramTypeNames[i] = paramTypes[i].getName();
         }
         return paramTypeNames;
     }
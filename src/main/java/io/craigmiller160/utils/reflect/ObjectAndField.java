@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Field;
+
+/**
+ * A container class for a Field and a single instance
+ * of the Class it is from, so the field can be quickly
+ * read or written on its owning object with FieldUtils.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class ObjectAndField extends ReflectiveFieldHolder<Object> {
+
+    public ObjectAndField(Object obj, Field field){
+        super(obj, field);
+    }
+
+    public ObjectAndField(ObjectAndField oaf){
+        this(oaf.getSource(), oaf.getReflectiveComponent());
+    }
+
+    /**
+     * Get the class of the source object. For a static
+     * field with no source object, this is the class that
+     * declares the field.
+     *
+     * @return the class of the source.
+     */
+    @Override
+    public Class<?> getSourceType(){
+        return getSource() != null ? getSource().getClass() : getReflectiveComponent().getDeclaringClass();
+    }
+
+    @Override
+    public String toString(){
+        return getSourceType().getName() + "." + getFieldName();
+    }
+
+}
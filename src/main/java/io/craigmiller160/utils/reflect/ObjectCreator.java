@@ -19,58 +19,532 @@ package io.craigmiller160.utils.reflect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A simple utility class to instantiate
  * objects, wrapping any exceptions that occur
  * in a ReflectiveException.
  *
+ * The constructor used for each class and combination
+ * of argument types is resolved once and cached as a
+ * Factory, which can also be retrieved directly with
+ * factoryFor(...) to skip the lookup entirely.
+ *
  * Created by craigmiller on 3/19/16.
  */
 public class ObjectCreator {
 
     private static final Logger logger = LoggerFactory.getLogger(ObjectCreator.class);
 
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    /**
+     * The minimum number of instances to create in a single
+     * task when splitting the work across a ForkJoinPool.
+     */
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    /**
+     * The cached factories for each class, by argument types.
+     * A ClassValue is used so the factories don't prevent the
+     * class from being unloaded.
+     */
+    private static final ClassValue<FactoryCache> factories = new ClassValue<FactoryCache>() {
+        @Override
+        protected FactoryCache computeValue(Class<?> type) {
+            return new FactoryCache();
+        }
+    };
+
     public static <T>  T instantiateClass(Class<T> type) throws ReflectiveException{
         return instantiateClassWithParams(type);
     }
 
     public static <T> T instantiateClassWithParams(Class<T> type, Object...params) throws ReflectiveException{
-        T result = null;
+        FactoryCache cache = factories.get(type);
+        @SuppressWarnings("unchecked")
+        Factory<T> previous = (Factory<T>) cache.last;
+        Factory<T> factory = getFactory(cache, type, previous, params);
+        if(factory.cacheable){
+            cache.last = factory;
+        }
+
+        T result = factory.newInstance(params);
+        if(logger.isTraceEnabled()){
+            logger.trace("Successfully instantiated new instance of class {} with parameters {}", type.getName(), Arrays.toString(params));
+        }
+        return result;
+    }
+
+    /**
+     * Get a factory for creating instances of the class with arguments
+     * of the specified types. The constructor is resolved once, using the
+     * same rules as instantiateClassWithParams(...), and the factory is
+     * cached, so this method returns the same factory for the same class
+     * and argument types.
+     *
+     * A null entry in the argument types means that argument will always
+     * be null.
+     *
+     * @param type the class to create instances of.
+     * @param argTypes the types of the arguments that will be passed to the factory.
+     * @param <T> the type of the class.
+     * @return the factory.
+     * @throws ReflectiveException if no constructor matches the argument types.
+     */
+    public static <T> Factory<T> factoryFor(Class<T> type, Class<?>...argTypes) throws ReflectiveException{
+        @SuppressWarnings("unchecked")
+        Factory<T> factory = (Factory<T>) factories.get(type).get(type, argTypes != null ? argTypes.clone() : new Class<?>[0]);
+        if(factory == null){
+            throw new ReflectiveException("No matching constructor found in class: " + type.getName() + " with param types: " + Arrays.toString(argTypes));
+        }
+        return factory;
+    }
+
+    /**
+     * Create the specified number of instances of the class, using
+     * its no-argument constructor. The constructor is only resolved once.
+     *
+     * @param type the class to create instances of.
+     * @param count the number of instances to create.
+     * @param <T> the type of the class.
+     * @return a list of the new instances.
+     * @throws ReflectiveException if unable to instantiate the class.
+     */
+    public static <T> List<T> instantiateMany(Class<T> type, int count) throws ReflectiveException{
+        Factory<T> factory = factoryFor(type);
+        List<T> results = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            results.add(factory.newInstance());
+        }
+
+        logger.trace("Successfully instantiated {} new instances of class {}", count, type.getName());
+        return results;
+    }
+
+    /**
+     * Fill the provided array with new instances of the class, using
+     * its no-argument constructor. The constructor is only resolved once.
+     *
+     * @param type the class to create instances of.
+     * @param target the array to fill with the new instances.
+     * @param <T> the type of the class.
+     * @return the filled array.
+     * @throws ReflectiveException if unable to instantiate the class.
+     */
+    public static <T> T[] instantiateMany(Class<T> type, T[] target) throws ReflectiveException{
+        Factory<T> factory = factoryFor(type);
+        for(int i = 0; i < target.length; i++){
+            target[i] = factory.newInstance();
+        }
+
+        logger.trace("Successfully instantiated {} new instances of class {}", target.length, type.getName());
+        return target;
+    }
+
+    /**
+     * Fill the provided array with new instances of the class, using its
+     * no-argument constructor, with the work split across the provided
+     * ForkJoinPool. The constructor is only resolved once.
+     *
+     * @param pool the pool to create the instances with.
+     * @param type the class to create instances of.
+     * @param target the array to fill with the new instances.
+     * @param <T> the type of the class.
+     * @return the filled array.
+     * @throws ReflectiveException if unable to instantiate the class.
+     */
+    public static <T> T[] instantiateMany(ForkJoinPool pool, Class<T> type, T[] target) throws ReflectiveException{
+        Factory<T> factory = factoryFor(type);
+        pool.invoke(new InstantiateTask<>(type, factory, null, target, 0, target.length, getThreshold(pool, target.length)));
+
+        logger.trace("Successfully instantiated {} new instances of class {}", target.length, type.getName());
+        return target;
+    }
+
+    /**
+     * Create a new instance of the class for every row of arguments
+     * provided. The constructor is only resolved once for each distinct
+     * combination of argument types, so rows with the same types as the
+     * previous row go straight to the same constructor.
+     *
+     * @param type the class to create instances of.
+     * @param argRows the rows of arguments to pass to the constructor.
+     * @param <T> the type of the class.
+     * @return a list of the new instances, in the order of the rows.
+     * @throws ReflectiveException if unable to instantiate the class.
+     */
+    public static <T> List<T> instantiateMany(Class<T> type, Iterable<Object[]> argRows) throws ReflectiveException{
+        List<T> results = new ArrayList<>();
+        instantiateMany(type, argRows, results);
+        return results;
+    }
+
+    /**
+     * Create a new instance of the class for every row of arguments
+     * provided, adding them to the provided collection. The constructor
+     * is only resolved once for each distinct combination of argument
+     * types, so rows with the same types as the previous row go straight
+     * to the same constructor.
+     *
+     * @param type the class to create instances of.
+     * @param argRows the rows of arguments to pass to the constructor.
+     * @param target the collection to add the new instances to.
+     * @param <T> the type of the class.
+     * @throws ReflectiveException if unable to instantiate the class.
+     */
+    public static <T> void instantiateMany(Class<T> type, Iterable<Object[]> argRows, Collection<? super T> target) throws ReflectiveException{
+        FactoryCache cache = factories.get(type);
+        Factory<T> factory = null;
+        int count = 0;
+        for(Object[] args : argRows){
+            factory = getFactory(cache, type, factory, args);
+            target.add(factory.newInstance(args));
+            count++;
+        }
+
+        logger.trace("Successfully instantiated {} new instances of class {}", count, type.getName());
+    }
+
+    /**
+     * Create a new instance of the class for every row of arguments
+     * provided, with the work split across the provided ForkJoinPool.
+     * Each instance is stored in the provided array at the same index
+     * as its row of arguments. The constructor is only resolved once for
+     * each distinct combination of argument types in each split.
+     *
+     * @param pool the pool to create the instances with.
+     * @param type the class to create instances of.
+     * @param argRows the rows of arguments to pass to the constructor.
+     * @param target the array to fill with the new instances, at least as long as the rows.
+     * @param <T> the type of the class.
+     * @return the filled array.
+     * @throws ReflectiveException if unable to instantiate the class.
+     */
+    public static <T> T[] instantiateMany(ForkJoinPool pool, Class<T> type, List<Object[]> argRows, T[] target) throws ReflectiveException{
+        if(target.length < argRows.size()){
+            throw new IllegalArgumentException("Target array is too small for the rows of arguments. Length: " +
+                    target.length + " | Rows: " + argRows.size());
+        }
+
+        pool.invoke(new InstantiateTask<>(type, null, argRows, target, 0, argRows.size(), getThreshold(pool, argRows.size())));
+
+        logger.trace("Successfully instantiated {} new instances of class {}", argRows.size(), type.getName());
+        return target;
+    }
+
+    private static int getThreshold(ForkJoinPool pool, int size){
+        //Enough chunks to balance the load across the pool, without the per-chunk overhead dominating
+        return Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * 4));
+    }
 
+    /**
+     * Get the factory for the arguments, reusing the previous
+     * factory if the arguments have the same types.
+     *
+     * @param cache the cached factories for the class.
+     * @param type the class to create instances of.
+     * @param previous the previously used factory, or null if there is none.
+     * @param params the arguments.
+     * @param <T> the type of the class.
+     * @return the factory for the arguments.
+     * @throws ReflectiveException if no constructor matches the arguments.
+     */
+    private static <T> Factory<T> getFactory(FactoryCache cache, Class<T> type, Factory<T> previous, Object[] params) throws ReflectiveException{
+        if(previous != null && previous.matches(params)){
+            return previous;
+        }
+
+        @SuppressWarnings("unchecked")
+        Factory<T> factory = (Factory<T>) cache.get(type, getTypes(params));
+        //If factory is still null, then no matching constructor was found
+        if(factory == null){
+            throw new ReflectiveException("No matching constructor found in class: " + type.getName() + " with params: " + Arrays.toString(params));
+        }
+        return factory;
+    }
+
+    private static Class<?>[] getTypes(Object[] params){
+        Class<?>[] types = new Class<?>[params.length];
+        for(int i = 0; i < params.length; i++){
+            types[i] = params[i] != null ? params[i].getClass() : null;
+        }
+        return types;
+    }
+
+    /**
+     * Resolve the constructor to use for the argument types. The first
+     * public constructor that can be invoked with those types is used.
+     *
+     * @param type the class to create instances of.
+     * @param argTypes the types of the arguments.
+     * @param <T> the type of the class.
+     * @return the factory using the constructor, or null if there is no match.
+     */
+    private static <T> Factory<T> createFactory(Class<T> type, Class<?>[] argTypes){
+        Constructor<?>[] constructors = ReflectionMetadata.forClass(type).getConstructors();
+        for(Constructor<?> constructor : constructors){
+            ConversionPlan plan = ConversionPlan.compile(ReflectionMetadata.getParameterTypes(constructor), constructor.isVarArgs(), argTypes);
+            if(!plan.isRejected()){
+                //The constructors of a class always create instances of that class
+                @SuppressWarnings("unchecked")
+                Constructor<T> typedConstructor = (Constructor<T>) constructor;
+                return new Factory<>(type, typedConstructor, argTypes, plan);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create a MethodHandle for the constructor, taking an array
+     * of arguments and returning an Object.
+     *
+     * @param constructor the constructor.
+     * @return the MethodHandle, or null if one can't be created.
+     */
+    private static MethodHandle createHandle(Constructor<?> constructor){
+        MethodHandle mh;
         try{
-            if(params.length == 0){
-                result = type.newInstance();
-                logger.trace("Successfully instantiated new instance of class {}", type.getName());
+            mh = lookup.unreflectConstructor(constructor);
+        }
+        catch(IllegalAccessException ex){
+            //Access isn't overridden, so the constructor is only used if reflection could use it too
+            return null;
+        }
+
+        int paramCount = ReflectionMetadata.getParameterCount(constructor);
+        return mh.asFixedArity()
+                .asType(MethodType.genericMethodType(paramCount))
+                .asSpreader(Object[].class, paramCount);
+    }
+
+    /**
+     * A task creating a range of the instances in a bulk
+     * instantiation, splitting itself in half until the range
+     * is small enough to create sequentially. If there are no
+     * rows of arguments, the no-argument factory is used.
+     */
+    private static class InstantiateTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Class<T> type;
+        private final Factory<T> factory;
+        private final List<Object[]> argRows;
+        private final T[] target;
+        private final int start;
+        private final int end;
+        private final int threshold;
+
+        InstantiateTask(Class<T> type, Factory<T> factory, List<Object[]> argRows, T[] target, int start, int end, int threshold){
+            this.type = type;
+            this.factory = factory;
+            this.argRows = argRows;
+            this.target = target;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start > threshold){
+                int middle = (start + end) >>> 1;
+                invokeAll(new InstantiateTask<>(type, factory, argRows, target, start, middle, threshold),
+                        new InstantiateTask<>(type, factory, argRows, target, middle, end, threshold));
+                return;
             }
-            else{
-                Constructor<?>[] constructors = type.getConstructors();
-                for(Constructor<?> constructor : constructors){
-                    Object[] newParams = ConstructorUtils.validateInvocationAndConvertParams(constructor, params);
-                    if(newParams != null){
-                        result = (T) constructor.newInstance(newParams);
-                        logger.trace("Successfully instantiated new instance of class {} with parameters {}", type.getName(), Arrays.toString(params));
-                        break;
-                    }
+
+            if(argRows == null){
+                for(int i = start; i < end; i++){
+                    target[i] = factory.newInstance();
                 }
+                return;
+            }
+
+            FactoryCache cache = factories.get(type);
+            Factory<T> rowFactory = null;
+            for(int i = start; i < end; i++){
+                Object[] args = argRows.get(i);
+                rowFactory = getFactory(cache, type, rowFactory, args);
+                target[i] = rowFactory.newInstance(args);
             }
         }
-        catch(InstantiationException | IllegalAccessException ex){
-            throw new ReflectiveException("Unable to instantiate class: " + type.getName() + " with params: " + Arrays.toString(params), ex);
+    }
+
+    /**
+     * The cached factories for a single class.
+     */
+    private static class FactoryCache {
+
+        private final ConcurrentMap<ArgTypes,Factory<?>> factories = new ConcurrentHashMap<>();
+
+        /**
+         * The most recently used factory, checked before the map
+         * because most callers use the same arguments repeatedly.
+         */
+        private volatile Factory<?> last;
+
+        <T> Factory<?> get(Class<T> type, Class<?>[] argTypes){
+            ArgTypes key = new ArgTypes(argTypes);
+            Factory<?> factory = factories.get(key);
+            if(factory == null){
+                factory = createFactory(type, argTypes);
+                if(factory != null && factory.cacheable){
+                    Factory<?> existing = factories.putIfAbsent(key, factory);
+                    factory = existing != null ? existing : factory;
+                }
+            }
+            return factory;
         }
-        catch(InvocationTargetException ex){
-            throw new InvocationException("Exception occurred while trying to instantiate class: " + type.getName() + " with params: " + Arrays.toString(params), ex);
+
+    }
+
+    private static class ArgTypes {
+
+        private final Class<?>[] types;
+        private final int hash;
+
+        ArgTypes(Class<?>[] types){
+            this.types = types;
+            this.hash = Arrays.hashCode(types);
         }
 
-        //If result is still null, and no exceptions were thrown, then no matching constructor was found
-        if(result == null){
-            throw new ReflectiveException("No matching constructor found in class: " + type.getName() + " with params: " + Arrays.toString(params));
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ArgTypes argTypes = (ArgTypes) o;
+
+            return hash == argTypes.hash && Arrays.equals(types, argTypes.types);
         }
 
-        return result;
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A thread-safe factory for creating instances of a class,
+     * using a constructor that has already been resolved for a
+     * specific set of argument types. Instances are created with
+     * a MethodHandle for the constructor where possible.
+     *
+     * @param <T> the type of the class.
+     */
+    public static final class Factory<T> {
+
+        private final Class<T> type;
+        private final Constructor<T> constructor;
+        private final Class<?>[] argTypes;
+        private final ConversionPlan plan;
+        private final MethodHandle handle;
+
+        /**
+         * If the factory can be cached against the class without
+         * keeping the classes of its arguments loaded.
+         */
+        private final boolean cacheable;
+
+        private Factory(Class<T> type, Constructor<T> constructor, Class<?>[] argTypes, ConversionPlan plan){
+            this.type = type;
+            this.constructor = constructor;
+            this.argTypes = argTypes;
+            this.plan = plan;
+            this.handle = createHandle(constructor);
+            this.cacheable = ReflectionMetadata.canReference(type, argTypes);
+        }
+
+        /**
+         * Create a new instance of the class. The arguments are expected
+         * to match the argument types this factory was created for.
+         *
+         * @param args the arguments to pass to the constructor.
+         * @return the new instance.
+         * @throws ReflectiveException if unable to instantiate the class.
+         * @throws InvocationException if the constructor throws an exception.
+         */
+        public T newInstance(Object...args) throws ReflectiveException{
+            int length = args != null ? args.length : 0;
+            if(length != argTypes.length){
+                throw new ReflectiveException("Wrong number of params to instantiate class: " + type.getName() +
+                        ". Expected: " + argTypes.length + " | Actual: " + length);
+            }
+
+            Object[] finalParams = plan.apply(args);
+            try{
+                if(handle != null){
+                    return invokeHandle(finalParams);
+                }
+                return constructor.newInstance(finalParams);
+            }
+            catch(InstantiationException | IllegalAccessException ex){
+                throw new ReflectiveException("Unable to instantiate class: " + type.getName() + " with params: " + Arrays.toString(args), ex);
+            }
+            catch(InvocationTargetException ex){
+                throw new InvocationException("Exception occurred while trying to instantiate class: " + type.getName() + " with params: " + Arrays.toString(args), ex);
+            }
+        }
+
+        /**
+         * Create a new instance with the MethodHandle. Exceptions from the
+         * constructor are wrapped the same way Constructor.newInstance(...)
+         * wraps them, so the cause of the InvocationException doesn't depend
+         * on whether a MethodHandle could be created.
+         */
+        private T invokeHandle(Object[] finalParams) throws InvocationTargetException{
+            try{
+                @SuppressWarnings("unchecked")
+                T instance = (T) (Object) handle.invokeExact(finalParams);
+                return instance;
+            }
+            catch(Throwable ex){
+                throw new InvocationTargetException(ex);
+            }
+        }
+
+        public Class<T> getType(){
+            return type;
+        }
+
+        public Constructor<T> getConstructor(){
+            return constructor;
+        }
+
+        /**
+         * Test if the arguments have exactly the types this
+         * factory was created for.
+         *
+         * @param args the arguments.
+         * @return true if the arguments match.
+         */
+        boolean matches(Object[] args){
+            if(args.length != argTypes.length){
+                return false;
+            }
+            for(int i = 0; i < args.length; i++){
+                Class<?> argType = args[i] != null ? args[i].getClass() : null;
+                if(argType != argTypes[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.util.ArrayUtil;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Chooses the most specific method to invoke out of a group
+ * of overloaded candidates, following rules similar to the
+ * ones the compiler uses:
+ *
+ * 1) A non-varargs method is more specific than a varargs one.
+ * 2) Otherwise, a method is more specific than another if every
+ *    one of its param types is a subtype of, or widens to, the
+ *    matching param type of the other, and at least one of them
+ *    is strictly more specific.
+ *
+ * A param type being more specific only counts if the argument
+ * passed in that position isn't null, because a null argument
+ * gives no information about which type was intended. If no
+ * single applicable method is more specific than all the others,
+ * the call is ambiguous.
+ *
+ * The result never depends on the order of the candidates. The
+ * candidates in the MethodIndex are also sorted with the most
+ * specific first, using orderBySpecificity(), so the order that
+ * candidates are found in is deterministic as well.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class OverloadResolver {
+
+    /**
+     * A deterministic order for methods that are equally specific,
+     * so the order doesn't depend on the order of Class.getMethods().
+     */
+    private static final Comparator<Method> tieBreaker = new Comparator<Method>() {
+        @Override
+        public int compare(Method m1, Method m2) {
+            if(m1.isVarArgs() != m2.isVarArgs()){
+                return m1.isVarArgs() ? 1 : -1;
+            }
+            return m1.toString().compareTo(m2.toString());
+        }
+    };
+
+    private OverloadResolver(){}
+
+    /**
+     * Choose the single method to invoke from the candidates. This is a
+     * single pass, and checks each candidate at most once to see if it can
+     * be invoked with the params.
+     *
+     * A candidate that the current best choice is more specific than is
+     * skipped without being checked. Otherwise, if it can be invoked, it
+     * either replaces the best choice or is kept as a rival to it. Rivals
+     * are dropped once a later choice is more specific than them, and any
+     * that remain at the end make the call ambiguous. No intermediate
+     * objects are created unless there is a rival.
+     *
+     * The result doesn't depend on the order of the candidates, but when
+     * they are in the order of the MethodIndex, the first one that can be
+     * invoked is usually the best, and every candidate after it that it is
+     * more specific than is skipped.
+     *
+     * @param methodSig the method signature, or null if there isn't one.
+     * @param oams the candidate methods and their sources.
+     * @param params the parameters for the invocation.
+     * @return the method to invoke, or null if none of them can be invoked.
+     * @throws NoMethodException if more than one method could be invoked, and none is most specific.
+     */
+    static ObjectAndMethod choose(String methodSig, Collection<ObjectAndMethod> oams, Object[] params) throws NoMethodException{
+        ObjectAndMethod best = null;
+        List<ObjectAndMethod> rivals = null;
+        for(ObjectAndMethod oam : oams){
+            Method method = oam.getReflectiveComponent();
+            if(best != null && isMoreSpecific(best.getReflectiveComponent(), method, params)){
+                continue;
+            }
+
+            if(!isApplicable(method, params)){
+                continue;
+            }
+
+            if(best == null || isMoreSpecific(method, best.getReflectiveComponent(), params)){
+                best = oam;
+                if(rivals != null){
+                    removeLessSpecific(rivals, method, params);
+                }
+            }
+            else{
+                if(rivals == null){
+                    rivals = new ArrayList<>();
+                }
+                rivals.add(oam);
+            }
+        }
+
+        if(rivals != null && !rivals.isEmpty()){
+            if(methodSig != null){
+                throw new NoMethodException(String.format("Ambiguous Method call: Multiple methods match signature %1$s with params %2$s",
+                        methodSig, ArrayUtil.deepToString(params)));
+            }
+            else{
+                throw new NoMethodException(String.format("Ambiguous Method call: Multiple methods could be called with params %1$s",
+                        ArrayUtil.deepToString(params)));
+            }
+        }
+
+        return best;
+    }
+
+    private static void removeLessSpecific(List<ObjectAndMethod> rivals, Method method, Object[] params){
+        Iterator<ObjectAndMethod> it = rivals.iterator();
+        while(it.hasNext()){
+            if(isMoreSpecific(method, it.next().getReflectiveComponent(), params)){
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Sort a group of overloaded methods so that every method comes
+     * before all the methods it is more specific than. Methods that are
+     * equally specific are sorted by their signatures.
+     *
+     * @param methods the methods to sort.
+     * @return the sorted methods.
+     */
+    static Method[] orderBySpecificity(List<Method> methods){
+        List<Method> remaining = new ArrayList<>(methods);
+        Collections.sort(remaining, tieBreaker);
+
+        Method[] ordered = new Method[remaining.size()];
+        for(int i = 0; i < ordered.length; i++){
+            int next = 0;
+            for(int j = 0; j < remaining.size(); j++){
+                if(!isDominated(remaining.get(j), remaining)){
+                    next = j;
+                    break;
+                }
+            }
+            ordered[i] = remaining.remove(next);
+        }
+
+        return ordered;
+    }
+
+    private static boolean isDominated(Method method, List<Method> others){
+        for(Method other : others){
+            if(other != method && isMoreSpecific(other, method, null)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isApplicable(Method method, Object[] params){
+        return !ConversionPlan.forInvocation(method, params).isRejected();
+    }
+
+    /**
+     * Test if the first method is strictly more specific than the
+     * second, for the provided params.
+     *
+     * @param m1 the first method.
+     * @param m2 the second method.
+     * @param params the params for the invocation, or null to ignore null arguments.
+     * @return true if the first method is strictly more specific.
+     */
+    static boolean isMoreSpecific(Method m1, Method m2, Object[] params){
+        if(m1.isVarArgs() != m2.isVarArgs()){
+            return !m1.isVarArgs();
+        }
+
+        Class<?>[] types1 = ReflectionMetadata.getParameterTypes(m1);
+        Class<?>[] types2 = ReflectionMetadata.getParameterTypes(m2);
+        int positions = Math.max(types1.length, types2.length);
+        boolean moreSpecific = false;
+        for(int i = 0; i < positions; i++){
+            Class<?> type1 = getParamType(m1, types1, i);
+            Class<?> type2 = getParamType(m2, types2, i);
+            if(type1 == type2){
+                continue;
+            }
+
+            boolean accepts1 = accepts(type1, type2);
+            boolean accepts2 = accepts(type2, type1);
+            if(accepts2 && !accepts1){
+                //A null argument doesn't show which of the types was intended
+                if(params == null || i >= params.length || params[i] != null){
+                    moreSpecific = true;
+                }
+            }
+            else if(!accepts2){
+                return false;
+            }
+        }
+
+        return moreSpecific;
+    }
+
+    /**
+     * Get the param type for a position, with any position at
+     * or beyond the varargs param having the varargs component type.
+     */
+    private static Class<?> getParamType(Method method, Class<?>[] types, int i){
+        if(method.isVarArgs() && i >= types.length - 1){
+            return types[types.length - 1].getComponentType();
+        }
+        return i < types.length ? types[i] : null;
+    }
+
+    /**
+     * Test if a param of the expected type accepts an argument
+     * of the actual type, either as a subtype or by primitive
+     * widening and boxing.
+     */
+    private static boolean accepts(Class<?> expected, Class<?> actual){
+        if(expected == null || actual == null){
+            return false;
+        }
+        return expected.isAssignableFrom(actual) || ParamUtils.isAcceptablePrimitive(expected, actual);
+    }
+
+}
@@ -16,15 +16,10 @@
 
 package io.craigmiller160.utils.reflect;
 
-import io.craigmiller160.utils.collection.MultiValueMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Array;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * A special utility class to parse
@@ -39,86 +34,53 @@ public class ParamUtils {
      */
     private static final Logger logger = LoggerFactory.getLogger(ParamUtils.class);
 
-    /**
-     * A special map for comparing primitive types to wrapper types.
-     * This map uses the primitive type as the key, and returns its
-     * wrapper type.
+    /*
+     * The index of each primitive type, used to look up
+     * its wrapper type and its entry in the widening table.
      */
-    private static final Map<Class<?>,Class<?>> primitiveToWrapperMap = new HashMap<Class<?>,Class<?>>(){{
-        put(int.class, Integer.class);
-        put(float.class, Float.class);
-        put(double.class, Double.class);
-        put(short.class, Short.class);
-        put(byte.class, Byte.class);
-        put(long.class, Long.class);
-        put(boolean.class, Boolean.class);
-        put(char.class, Character.class);
-    }};
+    private static final int BOOLEAN = 0;
+    private static final int BYTE = 1;
+    private static final int SHORT = 2;
+    private static final int CHAR = 3;
+    private static final int INT = 4;
+    private static final int LONG = 5;
+    private static final int FLOAT = 6;
+    private static final int DOUBLE = 7;
 
     /**
-     * A special map for comparing primitive types to wrapper types.
-     * This map uses the wrapper type as the key, and returns its
-     * primitive type.
+     * The wrapper types, in the order of their primitive indexes.
      */
-    private static final Map<Class<?>,Class<?>> wrapperToPrimitiveMap = new HashMap<Class<?>,Class<?>>(){{
-        put(Integer.class, int.class);
-        put(Float.class, float.class);
-        put(Double.class, double.class);
-        put(Short.class, short.class);
-        put(Byte.class, byte.class);
-        put(Long.class, long.class);
-        put(Boolean.class, boolean.class);
-        put(Character.class, char.class);
-    }};
+    private static final Class<?>[] wrapperTypes = {
+            Boolean.class, Byte.class, Short.class, Character.class,
+            Integer.class, Long.class, Float.class, Double.class
+    };
 
     /**
      * Because primitive values have their own assignability rules, this
-     * map contains them. It stores which primitive types can be safely passed
-     * to a method accepting a particular primitive.
+     * table contains them. For each primitive index, it stores a bitmask
+     * of the primitive types that can be safely passed to a method accepting
+     * that primitive, following the widening conversions of the JLS. Each
+     * primitive can always accept itself.
      */
-    private static final MultiValueMap<Class<?>,Class<?>> primitiveAssignableMap = new MultiValueMap<Class<?>,Class<?>>(){{
-        //int
-        putValue(int.class, int.class);
-        putValue(int.class, short.class);
-        putValue(int.class, byte.class);
-        putValue(int.class, char.class);
-
-        //float
-        putValue(float.class, float.class);
-        putValue(float.class, int.class);
-        putValue(float.class, short.class);
-        putValue(float.class, byte.class);
-        putValue(float.class, long.class);
-        putValue(float.class, char.class);
-
-        //double
-        putValue(double.class, double.class);
-        putValue(double.class, char.class);
-        putValue(double.class, int.class);
-        putValue(double.class, float.class);
-        putValue(double.class, short.class);
-        putValue(double.class, long.class);
-
-        //short
-        putValue(short.class, short.class);
-        putValue(short.class, byte.class);
-
-        //byte
-        putValue(byte.class, byte.class);
-
-        //long
-        putValue(long.class, long.class);
-        putValue(long.class, int.class);
-        putValue(long.class, short.class);
-        putValue(long.class, byte.class);
-        putValue(long.class, char.class);
-
-        //boolean
-        putValue(boolean.class, boolean.class);
-
-        //char
-        putValue(char.class, char.class);
-    }};
+    private static final int[] primitiveWideningTable = new int[8];
+    static {
+        primitiveWideningTable[BOOLEAN] = bits(BOOLEAN);
+        primitiveWideningTable[BYTE] = bits(BYTE);
+        primitiveWideningTable[SHORT] = bits(SHORT, BYTE);
+        primitiveWideningTable[CHAR] = bits(CHAR);
+        primitiveWideningTable[INT] = bits(INT, SHORT, BYTE, CHAR);
+        primitiveWideningTable[LONG] = bits(LONG, INT, SHORT, BYTE, CHAR);
+        primitiveWideningTable[FLOAT] = bits(FLOAT, LONG, INT, SHORT, BYTE, CHAR);
+        primitiveWideningTable[DOUBLE] = bits(DOUBLE, FLOAT, LONG, INT, SHORT, BYTE, CHAR);
+    }
+
+    private static int bits(int...indexes){
+        int result = 0;
+        for(int index : indexes){
+            result |= 1 << index;
+        }
+        return result;
+    }
 
     /**
      * Validate that the actual parameters can be safely passed to a method or
@@ -182,6 +144,9 @@ public class ParamUtils {
                 }
             }
             //If none of the above conditions are met, than the required number of params was not submitted and the method is not a match
+            else{
+                actualParams = null;
+            }
         }
         //No actual parameters have been provided to get to this point
         else{
@@ -193,12 +158,16 @@ public class ParamUtils {
             //If the expected number of params is 1, and we're dealing with varargs, convert the params to just have an empty varargs position
             else if(expectedTypeCount == 1 && isVarArgs){
                 actualParams = Arrays.copyOf(actualParams, 1);
-                actualParams[0] = Array.newInstance(expectedTypes[0].getComponentType(), 0);
+                actualParams[0] = VarArgsPacker.forComponentType(expectedTypes[0].getComponentType()).pack(actualParams, 0, 0);
             }
             //If the expectedTypeCount is greater than 0 and it's not varargs, then this is invalid and should return null
             else if(expectedTypeCount > 0 && !isVarArgs){
                 actualParams = null;
             }
+            //If the expectedTypeCount is greater than 1, then even with varargs there aren't enough params and this should return null
+            else if(expectedTypeCount > 1){
+                actualParams = null;
+            }
             //Otherwise, expectedTypeCount == 0 and no params were supplied, meaning everything is good to go
         }
 
@@ -253,21 +222,16 @@ public class ParamUtils {
                 }
                 //Otherwise, validate and convert the remaining actualParams to ensure they can fit the varargs
 
-                //Create a varargs Array reflectively, in order to handle primitives. If the varargs size is 0, an empty array will be created
-                Object varArgs = Array.newInstance(expectedTypes[finalIndex].getComponentType(), varArgsSize);
+                Class<?> componentType = expectedTypes[finalIndex].getComponentType();
                 for(int varArgsIndex = 0; varArgsIndex < actualParamCount - finalIndex; varArgsIndex++) {
                     //If any of the parameters for the varargs array don't match, return null because validation failed
-                    if(!validateParam(expectedTypes[finalIndex].getComponentType(), actualParams[finalIndex + varArgsIndex])){
+                    if(!validateParam(componentType, actualParams[finalIndex + varArgsIndex])){
                         return null;
                     }
-                    //Otherwise, set the array position reflectively to avoid weird issues
-                    else {
-                        Array.set(varArgs, varArgsIndex, actualParams[finalIndex + varArgsIndex]);
-                    }
-
                 }
 
-                finalParams[finalIndex] = varArgs;
+                //Pack the params with the packer for the component type, in order to handle primitives. If the varargs size is 0, an empty array will be created
+                finalParams[finalIndex] = VarArgsPacker.forComponentType(componentType).pack(actualParams, finalIndex, varArgsSize);
             }
         }
 
@@ -283,16 +247,28 @@ public class ParamUtils {
      * @return true if the actual parameter is acceptable for the expected type.
      */
     private static boolean validateParam(Class<?> expectedType, Object actualParam){
+        return validateParamType(expectedType, actualParam != null ? actualParam.getClass() : null);
+    }
+
+    /**
+     * Perform the validation of a parameter's type. Compare the actualType to the
+     * expectedType in every possible way, to determine if it is acceptable.
+     *
+     * @param expectedType the expected parameter type.
+     * @param actualType the class of the actual parameter, or null if the parameter is null.
+     * @return true if a parameter of the actual type is acceptable for the expected type.
+     */
+    static boolean validateParamType(Class<?> expectedType, Class<?> actualType){
         //If the param is null, and the expected type is a primitive, the validation fails because a null value can't be passed to a primitive index
-        if(actualParam == null && expectedType.isPrimitive()){
+        if(actualType == null && expectedType.isPrimitive()){
             return false;
         }
         //If the param is null, and the expected type is not a primitive, then just assign the null value to the final array because null values are acceptable
-        else if(actualParam == null){
+        else if(actualType == null){
             return true;
         }
         //If any parameter type is not assignable, the loop should end and method should return false, this is not a match
-        else if(!expectedType.isAssignableFrom(actualParam.getClass()) && !isAcceptablePrimitive(expectedType, actualParam.getClass())) {
+        else if(!expectedType.isAssignableFrom(actualType) && !isAcceptablePrimitive(expectedType, actualType)) {
             return false;
         }
         //If it doesn't fail the above test, add the param to the finalParams array
@@ -337,36 +313,120 @@ public class ParamUtils {
      * 3) Both types are primitives, but they are assignable to each other.
      *    For example, an int being passed to a method with a long.
      *
+     * This is done with the primitive widening table, so it allocates
+     * nothing. Any other combination of types, including ones with no
+     * primitive or wrapper types at all, returns false.
+     *
      * @param clazz1 the param type of the method itself
      * @param clazz2 the param type of the object trying to be passed to the method.
      * @return true if they pass one of the specified conditions.
      */
     public static boolean isAcceptablePrimitive(Class<?> clazz1, Class<?> clazz2){
-        boolean result = false;
-        if(clazz1.isPrimitive() && clazz2.isPrimitive()){
-            if(clazz1.equals(clazz2)){
-                result = true;
+        int index1 = primitiveIndex(clazz1);
+        int index2 = primitiveIndex(clazz2);
+
+        if(index1 >= 0){
+            //If the second type isn't a primitive, it can still be accepted if it's a wrapper type
+            if(index2 < 0){
+                index2 = wrapperIndex(clazz2);
             }
-            else{
-                Collection<Class<?>> assignableTypes = primitiveAssignableMap.get(clazz1);
-                result = assignableTypes.contains(clazz2);
+            return index2 >= 0 && (primitiveWideningTable[index1] & (1 << index2)) != 0;
+        }
+        else if(index2 >= 0){
+            index1 = wrapperIndex(clazz1);
+            if(index1 >= 0){
+                return (primitiveWideningTable[index1] & (1 << index2)) != 0;
             }
+            //If the first type isn't a wrapper, it can still accept the primitive if it's a supertype of the wrapper, ie Object or Number
+            return clazz1.isAssignableFrom(wrapperTypes[index2]);
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the index of the provided primitive type.
+     *
+     * @param type the type.
+     * @return the index of the primitive type, or -1 if it is
+     *          not a primitive type (or is void).
+     */
+    static int primitiveIndex(Class<?> type){
+        if(type == null || !type.isPrimitive()){
+            return -1;
         }
-        else if(clazz1.isPrimitive()){
-            Class<?> clazz1AsWrapper = primitiveToWrapperMap.get(clazz1);
-            Class<?> clazz2AsPrimitive = wrapperToPrimitiveMap.get(clazz2);
 
-            result = clazz1.isAssignableFrom(clazz2) || clazz1AsWrapper.isAssignableFrom(clazz2) ||
-                    primitiveAssignableMap.get(clazz1).contains(clazz2AsPrimitive);
+        if(type == int.class){
+            return INT;
+        }
+        else if(type == long.class){
+            return LONG;
+        }
+        else if(type == double.class){
+            return DOUBLE;
+        }
+        else if(type == boolean.class){
+            return BOOLEAN;
+        }
+        else if(type == float.class){
+            return FLOAT;
         }
-        else if(clazz2.isPrimitive()){
-            Class<?> clazz2AsWrapper = primitiveToWrapperMap.get(clazz2);
-            Class<?> clazz1AsPrimitive = wrapperToPrimitiveMap.get(clazz1);
-            result = clazz1.isAssignableFrom(clazz2) || clazz1.isAssignableFrom(clazz2AsWrapper) ||
-                    primitiveAssignableMap.get(clazz1AsPrimitive).contains(clazz2);
+        else if(type == short.class){
+            return SHORT;
         }
+        else if(type == byte.class){
+            return BYTE;
+        }
+        else if(type == char.class){
+            return CHAR;
+        }
+        return -1;
+    }
 
-        return result;
+    /**
+     * Get the primitive index of the provided wrapper type.
+     *
+     * @param type the type.
+     * @return the index of the primitive type the wrapper is for,
+     *          or -1 if it is not a wrapper type.
+     */
+    static int wrapperIndex(Class<?> type){
+        if(type == Integer.class){
+            return INT;
+        }
+        else if(type == Long.class){
+            return LONG;
+        }
+        else if(type == Double.class){
+            return DOUBLE;
+        }
+        else if(type == Boolean.class){
+            return BOOLEAN;
+        }
+        else if(type == Float.class){
+            return FLOAT;
+        }
+        else if(type == Short.class){
+            return SHORT;
+        }
+        else if(type == Byte.class){
+            return BYTE;
+        }
+        else if(type == Character.class){
+            return CHAR;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the wrapper type for the provided primitive type.
+     *
+     * @param type the type.
+     * @return the wrapper type, or the type itself if it isn't a primitive.
+     */
+    static Class<?> wrap(Class<?> type){
+        int index = primitiveIndex(type);
+        return index >= 0 ? wrapperTypes[index] : type;
     }
 
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The shared store of reflective metadata used by the utilities
+ * in this package. Class.getMethods(), Class.getConstructors() and
+ * Executable.getParameterTypes() all copy their arrays on every call,
+ * so this holds a single copy of each of them that is reused instead.
+ *
+ * The metadata for a class is stored using a ClassValue, and only
+ * ever references the class itself and the types in its signatures,
+ * so it doesn't prevent the class or its classloader from being unloaded.
+ *
+ * Every array returned from this class is shared, and must not be modified.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class ReflectionMetadata {
+
+    private static final ClassValue<ReflectionMetadata> metadata = new ClassValue<ReflectionMetadata>() {
+        @Override
+        protected ReflectionMetadata computeValue(Class<?> type) {
+            return new ReflectionMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    /**
+     * The parameter types of the methods and constructors
+     * declared by this class, added as they are first used.
+     */
+    private final ConcurrentMap<Executable,Class<?>[]> parameterTypes = new ConcurrentHashMap<>();
+
+    //These are created lazily, and creating one twice is harmless
+    private volatile Method[] methods;
+    private volatile Constructor<?>[] constructors;
+    private volatile MethodIndex methodIndex;
+    private volatile Map<String,Field> fields;
+
+    private ReflectionMetadata(Class<?> type){
+        this.type = type;
+    }
+
+    /**
+     * Get the metadata for the provided class.
+     *
+     * @param type the class.
+     * @return the metadata for the class.
+     */
+    static ReflectionMetadata forClass(Class<?> type){
+        return metadata.get(type);
+    }
+
+    /**
+     * Get the parameter types of a method or constructor.
+     *
+     * @param executable the method or constructor.
+     * @return the shared array of parameter types.
+     */
+    static Class<?>[] getParameterTypes(Executable executable){
+        return metadata.get(executable.getDeclaringClass()).getDeclaredParameterTypes(executable);
+    }
+
+    /**
+     * Get the number of parameters of a method or constructor.
+     *
+     * @param executable the method or constructor.
+     * @return the number of parameters.
+     */
+    static int getParameterCount(Executable executable){
+        return getParameterTypes(executable).length;
+    }
+
+    /**
+     * Test if metadata stored against the owner class can reference the
+     * provided types without preventing them from being unloaded. That is
+     * only the case if each type is loaded by the owner's classloader or
+     * one of its ancestors, because the owner already keeps those reachable.
+     * Caches stored against a class use this to avoid keeping classes from
+     * other classloaders, such as the classes of arguments, loaded.
+     *
+     * @param owner the class the metadata is stored against.
+     * @param types the types to reference, any of which may be null.
+     * @return true if the types can be referenced.
+     */
+    static boolean canReference(Class<?> owner, Class<?>[] types){
+        if(types == null){
+            return true;
+        }
+
+        ClassLoader ownerLoader = owner.getClassLoader();
+        for(Class<?> type : types){
+            if(type != null && !isVisibleLoader(ownerLoader, type.getClassLoader())){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisibleLoader(ClassLoader ownerLoader, ClassLoader loader){
+        //The bootstrap loader is null, and is never unloaded
+        if(loader == null || loader == ownerLoader){
+            return true;
+        }
+
+        for(ClassLoader ancestor = ownerLoader; ancestor != null; ancestor = ancestor.getParent()){
+            if(ancestor == loader){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Class<?>[] getDeclaredParameterTypes(Executable executable){
+        Class<?>[] types = parameterTypes.get(executable);
+        if(types == null){
+            types = executable.getParameterTypes();
+            Class<?>[] existing = parameterTypes.putIfAbsent(executable, types);
+            if(existing != null){
+                types = existing;
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Get the public methods of the class, including
+     * inherited ones, as returned by Class.getMethods().
+     *
+     * @return the shared array of methods.
+     */
+    Method[] getMethods(){
+        Method[] result = methods;
+        if(result == null){
+            result = type.getMethods();
+            methods = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the public constructors of the class, as
+     * returned by Class.getConstructors().
+     *
+     * @return the shared array of constructors.
+     */
+    Constructor<?>[] getConstructors(){
+        Constructor<?>[] result = constructors;
+        if(result == null){
+            result = type.getConstructors();
+            constructors = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the field with the provided name, of any visibility, declared by
+     * the class or any of its superclasses. If a superclass declares a field
+     * with the same name, the one declared by the subclass is used.
+     *
+     * @param name the name of the field.
+     * @return the field, or null if there is none with that name.
+     */
+    Field getField(String name){
+        return getFieldsByName().get(name);
+    }
+
+    /**
+     * Get all the fields, of any visibility, declared by the class and its
+     * superclasses, excluding synthetic ones and any hidden by a field with
+     * the same name in a subclass. The fields of the class come first, in
+     * the order of Class.getDeclaredFields(), followed by those of each
+     * superclass in turn.
+     *
+     * @return the unmodifiable map of fields, by name.
+     */
+    Map<String,Field> getFieldsByName(){
+        Map<String,Field> result = fields;
+        if(result == null){
+            Map<String,Field> byName = new LinkedHashMap<>();
+            for(Class<?> current = type; current != null; current = current.getSuperclass()){
+                for(Field field : current.getDeclaredFields()){
+                    if(!field.isSynthetic() && !byName.containsKey(field.getName())){
+                        byName.put(field.getName(), field);
+                    }
+                }
+            }
+            result = Collections.unmodifiableMap(byName);
+            fields = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the index of the public methods of the class.
+     *
+     * @return the method index.
+     */
+    MethodIndex getMethodIndex(){
+        MethodIndex result = methodIndex;
+        if(result == null){
+            result = new MethodIndex(getMethods());
+            methodIndex = result;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Method;
+
+/**
+ * A reusable, thread-safe call site for invoking a method by
+ * name on any object, created by FindAndInvoke.bind(...). It
+ * is intended to be kept in a field and used repeatedly.
+ *
+ * The call site caches the method resolved for each combination
+ * of receiver class and argument classes it sees, up to
+ * MAX_CACHED_SHAPES of them. While only one is cached, a call is
+ * a single comparison before the invocation. Once the cache is
+ * full, any call that misses it falls back to the resolution
+ * performed by FindAndInvoke.findInvokeOneMethod(...).
+ *
+ * Calls are recorded with the metrics installed by
+ * FindAndInvoke.setInvocationMetrics(...), the same as
+ * the calls made through FindAndInvoke itself.
+ *
+ * Created by craig on 10/16/26.
+ */
+public final class ReflectiveCallSite {
+
+    /**
+     * The maximum number of receiver and argument class
+     * combinations that a call site caches.
+     */
+    public static final int MAX_CACHED_SHAPES = 8;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final String methodName;
+    private final int arity;
+
+    /**
+     * The cached entries. The array is never modified, it is
+     * replaced by a larger copy when an entry is added.
+     */
+    private volatile Entry[] entries = NO_ENTRIES;
+
+    ReflectiveCallSite(String methodName, int arity){
+        if(arity < 0){
+            throw new IllegalArgumentException("ReflectiveCallSite arity cannot be negative. Arity: " + arity);
+        }
+        this.methodName = methodName;
+        this.arity = arity;
+    }
+
+    /**
+     * Invoke the method on the target object.
+     *
+     * @param target the object to invoke the method on.
+     * @param args the arguments to pass to the method.
+     * @return the result of the invocation.
+     * @throws NoMethodException if the target has no method that can be invoked with the arguments.
+     * @throws ReflectiveException if unable to reflectively invoke the method.
+     */
+    public Object invoke(Object target, Object...args) throws ReflectiveException{
+        if(args == null){
+            args = NO_ARGS;
+        }
+        if(args.length != arity){
+            throw new IllegalArgumentException("Wrong number of arguments for call site " + methodName +
+                    ". Expected: " + arity + " | Actual: " + args.length);
+        }
+
+        InvocationMetrics metrics = FindAndInvoke.getInvocationMetrics();
+        boolean timed = metrics != InvocationMetrics.NO_OP;
+        long start = timed ? System.nanoTime() : 0;
+
+        Class<?> targetType = target.getClass();
+        Entry[] current = entries;
+        Entry entry = null;
+        for(Entry cached : current){
+            if(cached.matches(targetType, args)){
+                entry = cached;
+                break;
+            }
+        }
+
+        if(entry == null){
+            //The global resolution records its own metrics
+            if(current.length >= MAX_CACHED_SHAPES){
+                return FindAndInvoke.findInvokeOneMethod(methodName, new Object[]{target}, args);
+            }
+
+            entry = resolve(metrics, start, target, args);
+            addEntry(entry);
+        }
+
+        if(!timed){
+            return RemoteInvoke.invoke(RemoteInvoke.getDefaultBackend(), entry.method, target, entry.plan.apply(args));
+        }
+        return invokeRecorded(metrics, start, entry, target, args);
+    }
+
+    private Object invokeRecorded(InvocationMetrics metrics, long start, Entry entry, Object target, Object[] args) throws ReflectiveException{
+        long resolved = System.nanoTime();
+        Object[] finalArgs = entry.plan.apply(args);
+        long converted = System.nanoTime();
+        Object result;
+        try{
+            result = RemoteInvoke.invoke(RemoteInvoke.getDefaultBackend(), entry.method, target, finalArgs);
+        }
+        catch(RuntimeException | Error ex){
+            metrics.record(methodName, entry.candidateCount, resolved - start, converted - resolved,
+                    System.nanoTime() - converted, InvocationMetrics.Outcome.FAILURE);
+            throw ex;
+        }
+
+        metrics.record(methodName, entry.candidateCount, resolved - start, converted - resolved,
+                System.nanoTime() - converted, InvocationMetrics.Outcome.SUCCESS);
+        return result;
+    }
+
+    public String getMethodName(){
+        return methodName;
+    }
+
+    public int getArity(){
+        return arity;
+    }
+
+    /**
+     * Get the number of receiver and argument class
+     * combinations currently cached by this call site.
+     *
+     * @return the number of cached combinations.
+     */
+    public int getCachedShapeCount(){
+        return entries.length;
+    }
+
+    /**
+     * Whether or not this call site has seen more combinations of
+     * receiver and argument classes than it can cache, meaning calls
+     * that miss the cache use the global resolution instead.
+     *
+     * @return true if the cache is full.
+     */
+    public boolean isMegamorphic(){
+        return entries.length >= MAX_CACHED_SHAPES;
+    }
+
+    private Entry resolve(InvocationMetrics metrics, long start, Object target, Object[] args) throws NoMethodException{
+        ResolutionCache.Resolution resolution = FindAndInvoke.getResolution(methodName, new Object[]{target}, args);
+        if(!resolution.isSuccess()){
+            if(metrics != InvocationMetrics.NO_OP){
+                metrics.record(methodName, resolution.getCandidateCount(), System.nanoTime() - start, 0, 0,
+                        InvocationMetrics.Outcome.NO_METHOD);
+            }
+            throw resolution.createException(FindAndInvoke.isLightweightMisses(), args);
+        }
+
+        Class<?>[] argTypes = new Class<?>[args.length];
+        for(int i = 0; i < args.length; i++){
+            argTypes[i] = args[i] != null ? args[i].getClass() : null;
+        }
+
+        Method method = resolution.getMethod();
+        return new Entry(target.getClass(), argTypes, method, ConversionPlan.forInvocation(method, args),
+                resolution.getCandidateCount());
+    }
+
+    private synchronized void addEntry(Entry entry){
+        Entry[] current = entries;
+        if(current.length >= MAX_CACHED_SHAPES){
+            return;
+        }
+        for(Entry existing : current){
+            if(existing.matches(entry.targetType, entry.argTypes)){
+                return;
+            }
+        }
+
+        Entry[] updated = new Entry[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = entry;
+        entries = updated;
+    }
+
+    /**
+     * A cached method, for a single combination of receiver
+     * and argument classes.
+     */
+    private static final class Entry {
+
+        private final Class<?> targetType;
+        private final Class<?>[] argTypes;
+        private final Method method;
+        private final ConversionPlan plan;
+        private final int candidateCount;
+
+        Entry(Class<?> targetType, Class<?>[] argTypes, Method method, ConversionPlan plan, int candidateCount){
+            this.targetType = targetType;
+            this.argTypes = argTypes;
+            this.method = method;
+            this.plan = plan;
+            this.candidateCount = candidateCount;
+        }
+
+        boolean matches(Class<?> type, Object[] args){
+            if(type != targetType){
+                return false;
+            }
+            for(int i = 0; i < args.length; i++){
+                Class<?> argType = args[i] != null ? args[i].getClass() : null;
+                if(argType != argTypes[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(Class<?> type, Class<?>[] types){
+            if(type != targetType){
+                return false;
+            }
+            for(int i = 0; i < types.length; i++){
+                if(types[i] != argTypes[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -39,4 +39,8 @@ public class ReflectiveException extends RuntimeException{
     public ReflectiveException(Throwable cause) {
         super(cause);
     }
+
+    public ReflectiveException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
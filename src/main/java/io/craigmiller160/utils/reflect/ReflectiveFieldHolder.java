@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Abstract superclass of the reflective field holder
+ * classes.
+ *
+ * Created by craig on 10/16/26.
+ */
+public abstract class ReflectiveFieldHolder<T> extends ReflectiveHolder<T,Field> {
+
+    protected ReflectiveFieldHolder(T source, Field field){
+        super(source, field);
+    }
+
+    public String getFieldName(){
+        return getReflectiveComponent().getName();
+    }
+
+    public Class<?> getFieldType(){
+        return getReflectiveComponent().getType();
+    }
+
+    public boolean isStatic(){
+        return Modifier.isStatic(getReflectiveComponent().getModifiers());
+    }
+
+    public boolean isFinal(){
+        return Modifier.isFinal(getReflectiveComponent().getModifiers());
+    }
+
+}
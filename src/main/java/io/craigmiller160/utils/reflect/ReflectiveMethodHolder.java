@@ -16,6 +16,7 @@
 
 package io.craigmiller160.utils.reflect;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 /**
@@ -30,12 +31,18 @@ public abstract class ReflectiveMethodHolder<T> extends ReflectiveHolder<T,Metho
 
     protected ReflectiveMethodHolder(T source, Method method){
         super(source, method);
-        this.paramTypes = method.getParameterTypes();
+        this.paramTypes = ReflectionMetadata.getParameterTypes(method);
     }
 
+    /**
+     * Get the parameter types of the method. The array is a copy,
+     * because the one used internally is shared by every holder.
+     *
+     * @return the parameter types.
+     */
     @Override
     public Class<?>[] getParamTypes(){
-        return paramTypes;
+        return paramTypes.clone();
     }
 
     @Override
@@ -48,6 +55,31 @@ public abstract class ReflectiveMethodHolder<T> extends ReflectiveHolder<T,Metho
         return getReflectiveComponent().isVarArgs();
     }
 
+    /**
+     * Get the cached MethodHandle for the method. The handle
+     * is adapted to the type (Object,Object[])Object, accepting
+     * the target object and the array of parameters, so it can
+     * be invoked with invokeExact(...) no matter the actual
+     * signature of the method.
+     *
+     * @return the MethodHandle, or null if one can't be created
+     *          for the method.
+     */
+    public MethodHandle getMethodHandle(){
+        return MethodInvoker.forMethod(getReflectiveComponent()).getHandle();
+    }
+
+    /**
+     * Get the DirectInvoker for the method, generating it
+     * if it hasn't been generated yet. If one can't be generated
+     * for the method, the invoker returned uses the MethodHandle.
+     *
+     * @return the DirectInvoker.
+     */
+    public DirectInvoker getDirectInvoker(){
+        return MethodInvoker.forMethod(getReflectiveComponent()).getDirectInvoker();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -19,8 +19,16 @@ package io.craigmiller160.utils.reflect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Special class for reflectively invoking methods.
@@ -34,6 +42,49 @@ public class RemoteInvoke {
      */
     private static final Logger logger = LoggerFactory.getLogger(RemoteInvoke.class);
 
+    /**
+     * The backend used for invocations that don't specify one.
+     */
+    private static volatile InvocationBackend defaultBackend = InvocationBackend.REFLECTION;
+
+    /**
+     * The minimum number of rows to invoke in a single
+     * task when splitting a batch across a ForkJoinPool.
+     */
+    private static final int BATCH_MIN_CHUNK_SIZE = 256;
+
+    //The exact types used by the primitive invocations, where the first param is the target
+    private static final MethodType INT_PARAM = MethodType.methodType(void.class, Object.class, int.class);
+    private static final MethodType LONG_PARAM = MethodType.methodType(void.class, Object.class, long.class);
+    private static final MethodType DOUBLE_PARAM = MethodType.methodType(void.class, Object.class, double.class);
+    private static final MethodType INT_RETURN = MethodType.methodType(int.class, Object.class);
+    private static final MethodType LONG_RETURN = MethodType.methodType(long.class, Object.class);
+    private static final MethodType DOUBLE_RETURN = MethodType.methodType(double.class, Object.class);
+    private static final MethodType DOUBLE_TO_DOUBLE = MethodType.methodType(double.class, Object.class, double.class);
+
+    /**
+     * Set the backend to use for all invocations that
+     * don't explicitly specify one.
+     *
+     * @param backend the new default backend.
+     */
+    public static void setDefaultBackend(InvocationBackend backend){
+        if(backend == null){
+            throw new IllegalArgumentException("Default InvocationBackend cannot be null");
+        }
+        defaultBackend = backend;
+    }
+
+    /**
+     * Get the backend used for all invocations that
+     * don't explicitly specify one.
+     *
+     * @return the default backend.
+     */
+    public static InvocationBackend getDefaultBackend(){
+        return defaultBackend;
+    }
+
     /**
      * Reflectively invoke a method, performing validation before
      * attempting to execute the invocation. Validation includes
@@ -48,26 +99,88 @@ public class RemoteInvoke {
      * @throws ReflectiveException if unable to reflectively invoke the method.
      */
     public static Object validateAndInvokeMethod(ObjectAndMethod oam, Object...params) throws ReflectiveException {
-        Object result = null;
+        return validateAndInvokeMethod(defaultBackend, oam, params);
+    }
+
+    /**
+     * Reflectively invoke a method with the specified backend, performing
+     * validation before attempting to execute the invocation. Validation
+     * includes determining if the method can be safely invoked, as well
+     * as doing any parameter conversions to ensure the invocation
+     * works just like a direct invocation.
+     *
+     * @param backend the backend to perform the invocation with.
+     * @param oam the holder of the method to invoke and its source.
+     * @param params the parameters to use to invoke the method.
+     * @return the result of the method invocation, or null if there
+     *          was none.
+     * @throws ReflectiveException if unable to reflectively invoke the method.
+     */
+    public static Object validateAndInvokeMethod(InvocationBackend backend, ObjectAndMethod oam, Object...params) throws ReflectiveException {
+        Object[] newParams = validateParams(oam, params);
+        return invokeMethod(backend, oam, newParams);
+    }
+
+    /**
+     * Reflectively invoke a method asynchronously, performing validation
+     * before attempting to execute the invocation. Validation happens on
+     * the calling thread, so invalid parameters are reported immediately
+     * by throwing an exception, rather than through the returned future.
+     * The invocation itself is performed using the provided executor.
+     *
+     * If the invocation fails, the future is completed exceptionally with
+     * the same exception that invokeMethod() would throw.
+     *
+     * @param executor the executor to perform the invocation with.
+     * @param oam the holder of the method to invoke and its source.
+     * @param params the parameters to use to invoke the method.
+     * @return a future that completes with the result of the method
+     *          invocation, or null if there was none.
+     * @throws ReflectiveException if the parameters are not valid for the method.
+     */
+    public static CompletableFuture<Object> validateAndInvokeMethodAsync(Executor executor, ObjectAndMethod oam, Object...params) throws ReflectiveException{
+        Object[] newParams = validateParams(oam, params);
+        return invokeMethodAsync(executor, oam, newParams);
+    }
+
+    /**
+     * Validate the parameters for the method, and do any conversions
+     * necessary for the invocation.
+     *
+     * @param oam the holder of the method to invoke and its source.
+     * @param params the parameters to use to invoke the method.
+     * @return the converted parameters.
+     * @throws ReflectiveException if the parameters are not valid for the method.
+     */
+    private static Object[] validateParams(ObjectAndMethod oam, Object...params) throws ReflectiveException{
         Object[] newParams = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), params);
-        if(newParams != null){
-            result = invokeMethod(oam, newParams);
+        if(newParams == null){
+            throw createInvalidParamsException(oam, params);
         }
-        else{
-            StringBuilder builder = new StringBuilder("[");
-            for(Object o : params){
-                builder.append(o.getClass() + ", ");
-            }
-            if(builder.length() > 2 && builder.substring(builder.length() - 2).equals(", ")){
-                builder.delete(builder.length() - 2, builder.length());
-                builder.append("]");
-            }
 
-            throw new ReflectiveException("Parameters provided for method " + oam.getReflectiveComponent().getName() + " do not match what is expected.\n" +
-                    "   Expected: " + Arrays.toString(oam.getReflectiveComponent().getParameterTypes()) + " | Actual: " + builder.toString());
+        return newParams;
+    }
+
+    /**
+     * Create the exception for parameters that are not valid
+     * for the method.
+     *
+     * @param oam the holder of the method to invoke and its source.
+     * @param params the invalid parameters.
+     * @return the exception to throw.
+     */
+    private static ReflectiveException createInvalidParamsException(ObjectAndMethod oam, Object...params){
+        StringBuilder builder = new StringBuilder("[");
+        for(Object o : params){
+            builder.append(o.getClass() + ", ");
+        }
+        if(builder.length() > 2 && builder.substring(builder.length() - 2).equals(", ")){
+            builder.delete(builder.length() - 2, builder.length());
+            builder.append("]");
         }
 
-        return result;
+        return new ReflectiveException("Parameters provided for method " + oam.getReflectiveComponent().getName() + " do not match what is expected.\n" +
+                "   Expected: " + Arrays.toString(oam.getReflectiveComponent().getParameterTypes()) + " | Actual: " + builder.toString());
     }
 
     /**
@@ -83,20 +196,396 @@ public class RemoteInvoke {
      * @throws ReflectiveException if the reflective invocation fails.
      */
     public static Object invokeMethod(ObjectAndMethod oam, Object...params) throws ReflectiveException{
+        return invokeMethod(defaultBackend, oam, params);
+    }
+
+    /**
+     * Reflectively invoke the method provided in the
+     * holder object with the specified backend, using
+     * the provided parameters. No validation or parameter
+     * conversion will occur in this method, so it's expected
+     * that all parameter arguments will be 100% valid for the method.
+     *
+     * @param backend the backend to perform the invocation with.
+     * @param oam the holder of the method and its source object.
+     * @param params the parameters to pass to the method.
+     * @return the result of the invocation, if there is any.
+     * @throws ReflectiveException if the reflective invocation fails.
+     */
+    public static Object invokeMethod(InvocationBackend backend, ObjectAndMethod oam, Object...params) throws ReflectiveException{
+        Object result = invoke(backend, oam, params);
+        //Only build the message when it will be logged, so a successful invocation allocates nothing of its own
+        if(logger.isTraceEnabled()){
+            logger.trace("Successfully invoked method. Method: {} | Params: {}", oam.getReflectiveComponent(), Arrays.toString(params));
+        }
+        return result;
+    }
+
+    /**
+     * Invoke a method that takes a single int param, such as a setter,
+     * without boxing the param. Any value returned by the method is
+     * discarded. The method can take any type the int can be widened or
+     * boxed to. The invocation uses a MethodHandle adapted to the exact
+     * type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @param value the param to pass to the method.
+     * @throws ReflectiveException if the method can't take a int param, or if the invocation fails.
+     */
+    public static void invokeInt(ObjectAndMethod oam, int value) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(INT_PARAM);
+        try{
+            handle.invokeExact(oam.getSource(), value);
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+        }
+    }
+
+    /**
+     * Invoke a method that takes a single long param, such as a setter,
+     * without boxing the param. Any value returned by the method is
+     * discarded. The method can take any type the long can be widened or
+     * boxed to. The invocation uses a MethodHandle adapted to the exact
+     * type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @param value the param to pass to the method.
+     * @throws ReflectiveException if the method can't take a long param, or if the invocation fails.
+     */
+    public static void invokeLong(ObjectAndMethod oam, long value) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(LONG_PARAM);
+        try{
+            handle.invokeExact(oam.getSource(), value);
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+        }
+    }
+
+    /**
+     * Invoke a method that takes a single double param, such as a setter,
+     * without boxing the param. Any value returned by the method is
+     * discarded. The method can take any type the double can be widened or
+     * boxed to. The invocation uses a MethodHandle adapted to the exact
+     * type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @param value the param to pass to the method.
+     * @throws ReflectiveException if the method can't take a double param, or if the invocation fails.
+     */
+    public static void invokeDouble(ObjectAndMethod oam, double value) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(DOUBLE_PARAM);
+        try{
+            handle.invokeExact(oam.getSource(), value);
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+        }
+    }
+
+    /**
+     * Invoke a method that takes no params and returns a int, such as a
+     * getter, without boxing the result. The method can return any type
+     * that can be unboxed or widened to a int. The invocation uses a
+     * MethodHandle adapted to the exact type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @return the result of the invocation.
+     * @throws ReflectiveException if the method can't return a int, or if the invocation fails.
+     */
+    public static int invokeReturningInt(ObjectAndMethod oam) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(INT_RETURN);
+        try{
+            return (int) handle.invokeExact(oam.getSource());
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    /**
+     * Invoke a method that takes no params and returns a long, such as a
+     * getter, without boxing the result. The method can return any type
+     * that can be unboxed or widened to a long. The invocation uses a
+     * MethodHandle adapted to the exact type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @return the result of the invocation.
+     * @throws ReflectiveException if the method can't return a long, or if the invocation fails.
+     */
+    public static long invokeReturningLong(ObjectAndMethod oam) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(LONG_RETURN);
+        try{
+            return (long) handle.invokeExact(oam.getSource());
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    /**
+     * Invoke a method that takes no params and returns a double, such as a
+     * getter, without boxing the result. The method can return any type
+     * that can be unboxed or widened to a double. The invocation uses a
+     * MethodHandle adapted to the exact type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @return the result of the invocation.
+     * @throws ReflectiveException if the method can't return a double, or if the invocation fails.
+     */
+    public static double invokeReturningDouble(ObjectAndMethod oam) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(DOUBLE_RETURN);
+        try{
+            return (double) handle.invokeExact(oam.getSource());
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    /**
+     * Invoke a method that takes a single double param and returns a
+     * double, without boxing either of them. The invocation uses a
+     * MethodHandle adapted to the exact type, regardless of the default backend.
+     *
+     * @param oam the holder of the method and its source object.
+     * @param value the param to pass to the method.
+     * @return the result of the invocation.
+     * @throws ReflectiveException if the method can't be invoked with that type, or if the invocation fails.
+     */
+    public static double invokeDoubleReturningDouble(ObjectAndMethod oam, double value) throws ReflectiveException{
+        MethodHandle handle = MethodInvoker.forMethod(oam.getReflectiveComponent()).getTypedHandle(DOUBLE_TO_DOUBLE);
+        try{
+            return (double) handle.invokeExact(oam.getSource(), value);
+        }
+        catch(Throwable ex){
+            ExceptionHandler.parseAndRethrowException(ex);
+            throw new IllegalStateException("Unreachable, the exception is always rethrown", ex);
+        }
+    }
+
+    /**
+     * Perform the invocation with the specified backend, mapping
+     * any exceptions with the ExceptionHandler. Nothing is logged,
+     * so callers performing many invocations can log once.
+     *
+     * @param backend the backend to perform the invocation with.
+     * @param oam the holder of the method and its source object.
+     * @param params the parameters to pass to the method.
+     * @return the result of the invocation, if there is any.
+     * @throws ReflectiveException if the reflective invocation fails.
+     */
+    private static Object invoke(InvocationBackend backend, ObjectAndMethod oam, Object...params) throws ReflectiveException{
+        return invoke(backend, oam.getReflectiveComponent(), oam.getSource(), params);
+    }
+
+    /**
+     * Perform the invocation with the specified backend, mapping
+     * any exceptions with the ExceptionHandler. Nothing is logged.
+     * This is for callers that have already resolved the method,
+     * so they don't need to create an ObjectAndMethod for it.
+     *
+     * @param backend the backend to perform the invocation with.
+     * @param method the method to invoke.
+     * @param source the object to invoke the method on.
+     * @param params the parameters to pass to the method.
+     * @return the result of the invocation, if there is any.
+     * @throws ReflectiveException if the reflective invocation fails.
+     */
+    static Object invoke(InvocationBackend backend, Method method, Object source, Object...params) throws ReflectiveException{
         Object result = null;
         try{
-            result = oam.getReflectiveComponent().invoke(oam.getSource(), params);
-            logger.trace("Successfully invoked method. Method: {} | Params: {}", oam.getReflectiveComponent(), Arrays.toString(params));
+            if(backend == InvocationBackend.METHOD_HANDLE){
+                result = MethodInvoker.forMethod(method).invokeWithHandle(source, params);
+            }
+            else if(backend == InvocationBackend.DIRECT){
+                result = MethodInvoker.forMethod(method).invokeDirect(source, params);
+            }
+            else{
+                result = method.invoke(source, params);
+            }
         }
         catch(InvocationTargetException ex){
+            //Every backend wraps the exceptions from the method the same way, so the backend doesn't change what callers get
             ExceptionHandler.parseAndRethrowException(ex);
         }
         catch(ReflectiveOperationException ex){
-            throw new ReflectiveException("Unable to reflectively invoke method " + oam.getReflectiveComponent().getName() +
-                    " on " + oam.getSource().getClass().getName(), ex);
+            throw new ReflectiveException("Unable to reflectively invoke method " + method.getName() +
+                    " on " + source.getClass().getName(), ex);
         }
 
         return result;
     }
 
+    /**
+     * Reflectively invoke the method provided in the
+     * holder object asynchronously, using the provided
+     * parameters and executor. No validation or parameter
+     * conversion will occur in this method, so it's expected
+     * that all parameter arguments will be 100% valid for the method.
+     *
+     * If the invocation fails, the future is completed exceptionally with
+     * the same exception that invokeMethod() would throw.
+     *
+     * @param executor the executor to perform the invocation with.
+     * @param oam the holder of the method and its source object.
+     * @param params the parameters to pass to the method.
+     * @return a future that completes with the result of the
+     *          invocation, if there is any.
+     */
+    public static CompletableFuture<Object> invokeMethodAsync(Executor executor, final ObjectAndMethod oam, final Object...params){
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    future.complete(invokeMethod(oam, params));
+                }
+                catch(Throwable ex){
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Reflectively invoke a method once for every row of arguments provided,
+     * performing validation before each invocation. The arguments in each row
+     * are validated and converted with a plan that is only compiled once for
+     * each distinct shape of arguments, so a batch where every row has the
+     * same types only performs the full validation once.
+     *
+     * The invocations are performed sequentially on the calling thread, in
+     * the order of the rows, with each result passed to the consumer. If any
+     * row is not valid or any invocation fails, the batch stops and the
+     * exception is thrown.
+     *
+     * @param oam the holder of the method to invoke and its source.
+     * @param rows the rows of arguments to invoke the method with.
+     * @param consumer the consumer for the results, or null if they aren't needed.
+     * @return the number of invocations performed.
+     * @throws ReflectiveException if a row is not valid, or if unable to reflectively invoke the method.
+     */
+    public static int invokeMethodBatch(ObjectAndMethod oam, Iterable<Object[]> rows, BatchResultConsumer consumer) throws ReflectiveException{
+        InvocationBackend backend = defaultBackend;
+        ConversionPlan plan = null;
+        int index = 0;
+        for(Object[] row : rows){
+            plan = getBatchPlan(plan, oam, row);
+            Object result = invoke(backend, oam, plan.apply(row));
+            if(consumer != null){
+                consumer.accept(index, result);
+            }
+            index++;
+        }
+
+        logger.trace("Successfully invoked method in batch. Method: {} | Invocations: {}", oam.getReflectiveComponent(), index);
+        return index;
+    }
+
+    /**
+     * Reflectively invoke a method once for every row of arguments provided,
+     * performing validation before each invocation, with the rows split across
+     * the provided ForkJoinPool. The arguments in each row are validated and
+     * converted with a plan that is only compiled once for each distinct shape
+     * of arguments.
+     *
+     * Results are passed to the consumer concurrently and in no particular
+     * order, so the consumer must be thread-safe. If any row is not valid or
+     * any invocation fails, the exception is thrown once the work in progress
+     * has stopped, though other rows may have already been invoked.
+     *
+     * @param pool the pool to perform the invocations with.
+     * @param oam the holder of the method to invoke and its source.
+     * @param rows the rows of arguments to invoke the method with.
+     * @param consumer the consumer for the results, or null if they aren't needed.
+     * @return the number of invocations performed.
+     * @throws ReflectiveException if a row is not valid, or if unable to reflectively invoke the method.
+     */
+    public static int invokeMethodBatch(ForkJoinPool pool, ObjectAndMethod oam, List<Object[]> rows, BatchResultConsumer consumer) throws ReflectiveException{
+        //Enough chunks to balance the load across the pool, without the per-chunk overhead dominating
+        int threshold = Math.max(BATCH_MIN_CHUNK_SIZE, rows.size() / (pool.getParallelism() * 4));
+        pool.invoke(new BatchTask(defaultBackend, oam, rows, consumer, 0, rows.size(), threshold));
+
+        logger.trace("Successfully invoked method in batch. Method: {} | Invocations: {}", oam.getReflectiveComponent(), rows.size());
+        return rows.size();
+    }
+
+    /**
+     * Get the conversion plan for a row in a batch, reusing the plan
+     * from the previous row if the row has the same shape.
+     *
+     * @param previous the plan from the previous row, or null if there is none.
+     * @param oam the holder of the method to invoke and its source.
+     * @param row the row of arguments.
+     * @return the plan for the row.
+     * @throws ReflectiveException if the row is not valid for the method.
+     */
+    private static ConversionPlan getBatchPlan(ConversionPlan previous, ObjectAndMethod oam, Object[] row) throws ReflectiveException{
+        if(previous != null && previous.matches(row)){
+            return previous;
+        }
+
+        ConversionPlan plan = ConversionPlan.forInvocation(oam.getReflectiveComponent(), row);
+        if(plan.isRejected()){
+            throw createInvalidParamsException(oam, row);
+        }
+        return plan;
+    }
+
+    /**
+     * A task invoking a range of the rows in a batch, splitting
+     * itself in half until the range is small enough to invoke
+     * sequentially.
+     */
+    private static class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final InvocationBackend backend;
+        private final ObjectAndMethod oam;
+        private final List<Object[]> rows;
+        private final BatchResultConsumer consumer;
+        private final int start;
+        private final int end;
+        private final int threshold;
+
+        BatchTask(InvocationBackend backend, ObjectAndMethod oam, List<Object[]> rows, BatchResultConsumer consumer,
+                  int start, int end, int threshold){
+            this.backend = backend;
+            this.oam = oam;
+            this.rows = rows;
+            this.consumer = consumer;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start > threshold){
+                int middle = (start + end) >>> 1;
+                invokeAll(new BatchTask(backend, oam, rows, consumer, start, middle, threshold),
+                        new BatchTask(backend, oam, rows, consumer, middle, end, threshold));
+                return;
+            }
+
+            ConversionPlan plan = null;
+            for(int i = start; i < end; i++){
+                Object[] row = rows.get(i);
+                plan = getBatchPlan(plan, oam, row);
+                Object result = RemoteInvoke.invoke(backend, oam, plan.apply(row));
+                if(consumer != null){
+                    consumer.accept(i, result);
+                }
+            }
+        }
+    }
+
 }
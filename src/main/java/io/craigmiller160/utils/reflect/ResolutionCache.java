@@ -0,0 +1,421 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe, bounded cache of the method resolutions
+ * performed by FindAndInvoke. A resolution is identified by
+ * the "shape" of a call: the method signature, the classes of
+ * the objects being searched, and the classes of the arguments
+ * being passed. Because the method that gets chosen depends only
+ * on those values, the result of the discovery and overload
+ * selection can be safely reused for every call with the same
+ * shape.
+ *
+ * Both successful resolutions and failed ones (where no method
+ * could be invoked) are cached.
+ *
+ * Once the cache grows beyond its maximum size, entries are
+ * evicted to make room for new ones. The order of eviction is
+ * arbitrary, it is not based on how old or how recently used
+ * an entry is. The entry that was just added is never evicted.
+ *
+ * The cache only holds weak references to the classes and methods
+ * in it, so it doesn't prevent classes from being unloaded. Once
+ * any of the classes or the method of an entry has been collected,
+ * the entry can never be used again, and is evicted like any other.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class ResolutionCache {
+
+    /**
+     * The default maximum number of resolutions held by the cache.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final int maxSize;
+    private final ConcurrentMap<Key,Resolution> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public ResolutionCache(){
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ResolutionCache(int maxSize){
+        if(maxSize < 1){
+            throw new IllegalArgumentException("ResolutionCache maxSize must be at least 1. MaxSize: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the cached resolution for the provided key, recording
+     * the lookup as either a hit or a miss.
+     *
+     * @param key the key identifying the shape of the call.
+     * @return the cached resolution, or null if there is none.
+     */
+    Resolution get(Key key){
+        Resolution resolution = cache.get(key);
+        if(resolution != null && resolution.isSuccess() && resolution.getMethod() == null){
+            //The method has been collected, so the resolution can't be used
+            resolution = null;
+        }
+
+        if(resolution != null){
+            hitCount.increment();
+        }
+        else{
+            missCount.increment();
+        }
+        return resolution;
+    }
+
+    /**
+     * Add a resolution to the cache. If this pushes the cache
+     * beyond its maximum size, other entries are evicted in
+     * an arbitrary order until it is back within its limit.
+     *
+     * @param key the key identifying the shape of the call.
+     * @param resolution the resolution for that call.
+     */
+    void put(Key key, Resolution resolution){
+        key = key.weaken();
+        cache.put(key, resolution);
+
+        if(cache.size() > maxSize){
+            Iterator<Key> it = cache.keySet().iterator();
+            while(cache.size() > maxSize && it.hasNext()){
+                Key evictKey = it.next();
+                if(!evictKey.equals(key)){
+                    it.remove();
+                    evictionCount.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all resolutions from the cache. The hit, miss,
+     * and eviction counts are not reset.
+     */
+    public void clear(){
+        cache.clear();
+    }
+
+    /**
+     * Get the number of resolutions currently in the cache.
+     *
+     * @return the number of cached resolutions.
+     */
+    public int size(){
+        return cache.size();
+    }
+
+    public int getMaxSize(){
+        return maxSize;
+    }
+
+    public long getHitCount(){
+        return hitCount.sum();
+    }
+
+    public long getMissCount(){
+        return missCount.sum();
+    }
+
+    public long getEvictionCount(){
+        return evictionCount.sum();
+    }
+
+    /**
+     * Create a key identifying the shape of a call.
+     *
+     * @param methodSig the signature of the method, minus params.
+     * @param objects the objects to search for the method.
+     * @param params the parameters being passed to the method.
+     * @return the key for the call.
+     */
+    static Key createKey(String methodSig, Object[] objects, Object[] params){
+        Class<?>[] objectTypes = new Class<?>[objects.length];
+        for(int i = 0; i < objects.length; i++){
+            objectTypes[i] = objects[i].getClass();
+        }
+
+        Class<?>[] paramTypes = null;
+        if(params != null){
+            paramTypes = new Class<?>[params.length];
+            for(int i = 0; i < params.length; i++){
+                //A null entry is a valid part of the shape, because null arguments affect which method can be chosen
+                paramTypes[i] = params[i] != null ? params[i].getClass() : null;
+            }
+        }
+
+        return new Key(methodSig, objectTypes, paramTypes);
+    }
+
+    /**
+     * The key identifying the shape of a call. If the array
+     * of param types is null, it means a null array of params
+     * was provided, which is handled differently from an empty one.
+     *
+     * The keys used for lookups reference the classes directly, while
+     * the keys stored in the cache reference them weakly, so the two
+     * kinds of keys compare their classes by identity rather than
+     * comparing the arrays.
+     */
+    static final class Key {
+
+        /**
+         * The placeholder for a class that has been collected,
+         * which is never equal to any class.
+         */
+        private static final Object COLLECTED = new Object();
+
+        private final String methodSig;
+        private final Object[] objectTypes;
+        private final Object[] paramTypes;
+        private final int hash;
+
+        Key(String methodSig, Class<?>[] objectTypes, Class<?>[] paramTypes){
+            this.methodSig = methodSig;
+            this.objectTypes = objectTypes;
+            this.paramTypes = paramTypes;
+
+            int result = methodSig != null ? methodSig.hashCode() : 0;
+            result = 31 * result + hashTypes(objectTypes);
+            result = 31 * result + (paramTypes != null ? hashTypes(paramTypes) : -1);
+            this.hash = result;
+        }
+
+        private Key(String methodSig, Object[] objectTypes, Object[] paramTypes, int hash){
+            this.methodSig = methodSig;
+            this.objectTypes = objectTypes;
+            this.paramTypes = paramTypes;
+            this.hash = hash;
+        }
+
+        /**
+         * Create a copy of this key that references its classes weakly,
+         * to be stored in the cache.
+         *
+         * @return the weak copy of this key.
+         */
+        Key weaken(){
+            return new Key(methodSig, weaken(objectTypes), paramTypes != null ? weaken(paramTypes) : null, hash);
+        }
+
+        private static Object[] weaken(Object[] types){
+            Object[] weakTypes = new Object[types.length];
+            for(int i = 0; i < types.length; i++){
+                if(types[i] instanceof Class){
+                    weakTypes[i] = new WeakReference<Class<?>>((Class<?>) types[i]);
+                }
+                else{
+                    weakTypes[i] = types[i];
+                }
+            }
+            return weakTypes;
+        }
+
+        private static int hashTypes(Class<?>[] types){
+            int result = 1;
+            for(Class<?> type : types){
+                result = 31 * result + System.identityHashCode(type);
+            }
+            return result;
+        }
+
+        /**
+         * Get the class at a position of the types, which may be
+         * referenced weakly. A null entry is a null argument.
+         */
+        private static Object typeAt(Object[] types, int index){
+            Object type = types[index];
+            if(type instanceof WeakReference){
+                type = ((WeakReference<?>) type).get();
+                return type != null ? type : COLLECTED;
+            }
+            return type;
+        }
+
+        private static boolean typesEqual(Object[] types1, Object[] types2){
+            if(types1 == types2){
+                return true;
+            }
+            if(types1 == null || types2 == null || types1.length != types2.length){
+                return false;
+            }
+            for(int i = 0; i < types1.length; i++){
+                Object type1 = typeAt(types1, i);
+                if(type1 == COLLECTED || type1 != typeAt(types2, i)){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (hash != key.hash) return false;
+            if (methodSig != null ? !methodSig.equals(key.methodSig) : key.methodSig != null) return false;
+            if (!typesEqual(objectTypes, key.objectTypes)) return false;
+            return typesEqual(paramTypes, key.paramTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The result of resolving a call. If the resolution
+     * succeeded, it holds the index of the object the method
+     * was found on and a weak reference to the method itself.
+     * If it failed, it holds the message explaining why no method
+     * could be invoked. The message only describes the shape of the
+     * call, and the params are added to it when the exception is created.
+     * Either way, it holds the number of candidate methods that
+     * were considered.
+     */
+    static final class Resolution {
+
+        private final int objectIndex;
+        private final WeakReference<Method> method;
+        private final String failureMessage;
+        private final boolean includesParams;
+        private final int candidateCount;
+
+        /**
+         * The shared exception thrown for a failed resolution
+         * when lightweight misses are enabled. It is created lazily,
+         * and creating it twice is harmless.
+         */
+        private volatile NoMethodException sharedException;
+
+        private Resolution(int objectIndex, Method method, String failureMessage, boolean includesParams, int candidateCount){
+            this.objectIndex = objectIndex;
+            this.method = method != null ? new WeakReference<>(method) : null;
+            this.failureMessage = failureMessage;
+            this.includesParams = includesParams;
+            this.candidateCount = candidateCount;
+        }
+
+        static Resolution success(int objectIndex, Method method, int candidateCount){
+            return new Resolution(objectIndex, method, null, false, candidateCount);
+        }
+
+        /**
+         * Create a failed resolution.
+         *
+         * @param failureMessage the message explaining the failure, without any param values.
+         * @param includesParams true if the params should be added to the message.
+         * @param candidateCount the number of candidate methods that were considered.
+         * @return the failed resolution.
+         */
+        static Resolution failure(String failureMessage, boolean includesParams, int candidateCount){
+            return new Resolution(-1, null, failureMessage, includesParams, candidateCount);
+        }
+
+        boolean isSuccess(){
+            return method != null;
+        }
+
+        int getObjectIndex(){
+            return objectIndex;
+        }
+
+        /**
+         * Get the method of a successful resolution.
+         *
+         * @return the method, or null if the resolution failed
+         *          or the method has been collected.
+         */
+        Method getMethod(){
+            return method != null ? method.get() : null;
+        }
+
+        String getFailureMessage(){
+            return failureMessage;
+        }
+
+        int getCandidateCount(){
+            return candidateCount;
+        }
+
+        /**
+         * Create the exception to throw for a failed resolution, with
+         * the params of the current call in its message. If lightweight
+         * misses are enabled, this is a single shared exception with no
+         * stack trace, which costs nothing to throw. Because it is shared
+         * by every call with the same shape, its message has the types
+         * of the params instead of their values.
+         *
+         * @param lightweight true if lightweight misses are enabled.
+         * @param params the params of the call that failed.
+         * @return the exception to throw.
+         */
+        NoMethodException createException(boolean lightweight, Object[] params){
+            if(!lightweight){
+                return new NoMethodException(includesParams ? failureMessage + " Params: " + Arrays.toString(params) : failureMessage);
+            }
+
+            NoMethodException ex = sharedException;
+            if(ex == null){
+                String message = includesParams ? failureMessage + " Param types: " + describeTypes(params) : failureMessage;
+                //Suppression and the stack trace are disabled, so the shared instance can never be modified
+                ex = new NoMethodException(message, null, false, false);
+                sharedException = ex;
+            }
+            return ex;
+        }
+
+        private static String describeTypes(Object[] params){
+            if(params == null){
+                return "null";
+            }
+
+            StringBuilder builder = new StringBuilder("[");
+            for(int i = 0; i < params.length; i++){
+                if(i > 0){
+                    builder.append(", ");
+                }
+                builder.append(params[i] != null ? params[i].getClass().getName() : "null");
+            }
+            return builder.append("]").toString();
+        }
+    }
+
+}
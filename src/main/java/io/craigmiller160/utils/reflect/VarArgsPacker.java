@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Packs parameters into the array for a varargs parameter. There is
+ * a specialized packer for each primitive component type, which fills
+ * the primitive array directly, and one for reference types, which
+ * copies the parameters in bulk. This avoids Array.set(...), which
+ * looks up the component type and unboxes each element reflectively.
+ *
+ * The parameters must already have been validated for the component
+ * type, so for primitives each one is either the matching wrapper or a
+ * wrapper that widens to it. Packers are cached per component type
+ * using a ClassValue.
+ *
+ * Created by craig on 10/16/26.
+ */
+abstract class VarArgsPacker {
+
+    private static final ClassValue<VarArgsPacker> packers = new ClassValue<VarArgsPacker>() {
+        @Override
+        protected VarArgsPacker computeValue(Class<?> componentType) {
+            return create(componentType);
+        }
+    };
+
+    /**
+     * Get the packer for the provided component type.
+     *
+     * @param componentType the component type of the varargs array.
+     * @return the packer.
+     */
+    static VarArgsPacker forComponentType(Class<?> componentType){
+        return packers.get(componentType);
+    }
+
+    /**
+     * Pack a range of the parameters into a new varargs array.
+     *
+     * @param params the parameters.
+     * @param from the index of the first parameter to pack.
+     * @param count the number of parameters to pack.
+     * @return the new varargs array.
+     */
+    abstract Object pack(Object[] params, int from, int count);
+
+    private static VarArgsPacker create(Class<?> componentType){
+        if(!componentType.isPrimitive()){
+            return new ReferencePacker(Array.newInstance(componentType, 0).getClass());
+        }
+        else if(componentType == int.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    int[] result = new int[count];
+                    for(int i = 0; i < count; i++){
+                        Object param = params[from + i];
+                        result[i] = param instanceof Character ? (Character) param : ((Number) param).intValue();
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == long.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    long[] result = new long[count];
+                    for(int i = 0; i < count; i++){
+                        Object param = params[from + i];
+                        result[i] = param instanceof Character ? (Character) param : ((Number) param).longValue();
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == double.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    double[] result = new double[count];
+                    for(int i = 0; i < count; i++){
+                        Object param = params[from + i];
+                        result[i] = param instanceof Character ? (Character) param : ((Number) param).doubleValue();
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == float.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    float[] result = new float[count];
+                    for(int i = 0; i < count; i++){
+                        Object param = params[from + i];
+                        result[i] = param instanceof Character ? (Character) param : ((Number) param).floatValue();
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == short.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    short[] result = new short[count];
+                    for(int i = 0; i < count; i++){
+                        result[i] = ((Number) params[from + i]).shortValue();
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == byte.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    byte[] result = new byte[count];
+                    for(int i = 0; i < count; i++){
+                        result[i] = (Byte) params[from + i];
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == char.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    char[] result = new char[count];
+                    for(int i = 0; i < count; i++){
+                        result[i] = (Character) params[from + i];
+                    }
+                    return result;
+                }
+            };
+        }
+        else if(componentType == boolean.class){
+            return new VarArgsPacker() {
+                @Override
+                Object pack(Object[] params, int from, int count) {
+                    boolean[] result = new boolean[count];
+                    for(int i = 0; i < count; i++){
+                        result[i] = (Boolean) params[from + i];
+                    }
+                    return result;
+                }
+            };
+        }
+        throw new IllegalArgumentException("Invalid varargs component type: " + componentType);
+    }
+
+    /**
+     * The packer for a reference component type, which copies
+     * the parameters with a single bulk copy.
+     */
+    private static final class ReferencePacker extends VarArgsPacker {
+
+        private final Class<? extends Object[]> arrayType;
+
+        @SuppressWarnings("unchecked")
+        ReferencePacker(Class<?> arrayType){
+            this.arrayType = (Class<? extends Object[]>) arrayType;
+        }
+
+        @Override
+        Object pack(Object[] params, int from, int count) {
+            if(arrayType == Object[].class){
+                Object[] result = new Object[count];
+                System.arraycopy(params, from, result, 0, count);
+                return result;
+            }
+            return Arrays.copyOfRange(params, from, from + count, arrayType);
+        }
+    }
+
+}
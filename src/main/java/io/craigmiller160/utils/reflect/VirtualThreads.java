@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Detects whether the current runtime supports virtual
+ * threads, and if so provides an Executor that runs each
+ * task on its own virtual thread.
+ *
+ * This library is compiled for older versions of Java,
+ * so the virtual thread API is looked up reflectively,
+ * once, when this class is first used.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Executor executor = createExecutor();
+
+    private VirtualThreads(){}
+
+    /**
+     * Whether or not the current runtime supports virtual threads.
+     *
+     * @return true if virtual threads are supported.
+     */
+    static boolean isSupported(){
+        return executor != null;
+    }
+
+    /**
+     * Get an Executor that starts a new virtual thread
+     * for every task.
+     *
+     * @return the executor, or null if virtual threads aren't supported.
+     */
+    static Executor getExecutor(){
+        return executor;
+    }
+
+    private static Executor createExecutor(){
+        try{
+            //Equivalent to Thread.ofVirtual().factory(), which only exists on Java 21+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory").invoke(builder);
+
+            return new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    factory.newThread(command).start();
+                }
+            };
+        }
+        catch(ReflectiveOperationException | RuntimeException ex){
+            logger.debug("Virtual threads are not supported by this runtime");
+            return null;
+        }
+    }
+
+}
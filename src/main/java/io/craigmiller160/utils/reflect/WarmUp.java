@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Prepares the reflective metadata of classes ahead of time,
+ * so the first invocations on them don't have to. For each class,
+ * this builds its ReflectionMetadata and MethodIndex, which includes
+ * ordering overloaded methods by specificity, and creates the
+ * MethodHandles used to invoke its public methods.
+ *
+ * Everything prepared here is cached the same way as it is when
+ * it is created on demand, so warming up is safe to do while the
+ * same classes are being used by other threads.
+ *
+ * Created by craig on 10/16/26.
+ */
+final class WarmUp {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger classCount = new AtomicInteger();
+    private final AtomicInteger methodCount = new AtomicInteger();
+    private final AtomicInteger handleCount = new AtomicInteger();
+    private final AtomicLong workNanos = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> failedClasses = new ConcurrentLinkedQueue<>();
+
+    private WarmUp(){}
+
+    /**
+     * Warm up the provided classes on the pool.
+     *
+     * @param pool the pool to warm up the classes on.
+     * @param classes the classes to warm up.
+     * @return the report of the warm up.
+     */
+    static WarmUpReport warmUp(ForkJoinPool pool, Collection<Class<?>> classes){
+        WarmUp warmUp = new WarmUp();
+        warmUp.run(pool, new ArrayList<>(classes));
+        return warmUp.createReport();
+    }
+
+    /**
+     * Warm up every class in a package and its subpackages on the
+     * pool. The classes are found from the directories and jar files
+     * the classloader loads the package from, and are loaded without
+     * being initialized, so none of their static initializers are run.
+     *
+     * @param pool the pool to warm up the classes on.
+     * @param loader the classloader to find and load the classes with.
+     * @param packageName the name of the package.
+     * @return the report of the warm up.
+     * @throws ReflectiveException if unable to scan the package.
+     */
+    static WarmUpReport warmUpPackage(ForkJoinPool pool, ClassLoader loader, String packageName) throws ReflectiveException{
+        WarmUp warmUp = new WarmUp();
+        List<Class<?>> classes = new ArrayList<>();
+        for(String className : findClassNames(loader, packageName)){
+            try{
+                classes.add(Class.forName(className, false, loader));
+            }
+            catch(ClassNotFoundException | LinkageError ex){
+                warmUp.failedClasses.add(className);
+            }
+        }
+        warmUp.run(pool, classes);
+        return warmUp.createReport();
+    }
+
+    private void run(ForkJoinPool pool, List<Class<?>> classes){
+        if(classes.size() > 0){
+            int threshold = Math.max(1, classes.size() / (pool.getParallelism() * 4));
+            pool.invoke(new WarmUpTask(this, classes, 0, classes.size(), threshold));
+        }
+    }
+
+    private WarmUpReport createReport(){
+        return new WarmUpReport(classCount.get(), methodCount.get(), handleCount.get(),
+                new ArrayList<>(failedClasses), System.nanoTime() - startNanos, workNanos.get());
+    }
+
+    /**
+     * Warm up a single class. Any failure is recorded rather than
+     * thrown, so one bad class doesn't stop the others.
+     *
+     * @param type the class to warm up.
+     */
+    private void warmUpClass(Class<?> type){
+        long start = System.nanoTime();
+        try{
+            ReflectionMetadata metadata = ReflectionMetadata.forClass(type);
+            metadata.getMethodIndex();
+            for(Constructor<?> constructor : metadata.getConstructors()){
+                ReflectionMetadata.getParameterTypes(constructor);
+            }
+
+            Method[] methods = metadata.getMethods();
+            int handles = 0;
+            for(Method method : methods){
+                if(MethodInvoker.forMethod(method).getHandle() != null){
+                    handles++;
+                }
+            }
+
+            classCount.incrementAndGet();
+            methodCount.addAndGet(methods.length);
+            handleCount.addAndGet(handles);
+        }
+        catch(LinkageError | RuntimeException ex){
+            failedClasses.add(type.getName());
+        }
+        workNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Find the names of all the classes in a package and its subpackages.
+     *
+     * @param loader the classloader to find the classes with.
+     * @param packageName the name of the package.
+     * @return the names of the classes.
+     * @throws ReflectiveException if unable to scan the package.
+     */
+    static List<String> findClassNames(ClassLoader loader, String packageName) throws ReflectiveException{
+        String path = packageName.replace('.', '/');
+        List<String> classNames = new ArrayList<>();
+        try{
+            Enumeration<URL> resources = loader.getResources(path);
+            while(resources.hasMoreElements()){
+                URL resource = resources.nextElement();
+                if("file".equals(resource.getProtocol())){
+                    findClassNames(new File(resource.toURI()), packageName, classNames);
+                }
+                else if("jar".equals(resource.getProtocol())){
+                    findClassNames(resource, path, classNames);
+                }
+            }
+        }
+        catch(IOException | URISyntaxException ex){
+            throw new ReflectiveException("Unable to scan package for classes: " + packageName, ex);
+        }
+        return classNames;
+    }
+
+    private static void findClassNames(File directory, String packageName, List<String> classNames){
+        File[] files = directory.listFiles();
+        if(files == null){
+            return;
+        }
+
+        String prefix = packageName.isEmpty() ? "" : packageName + ".";
+        for(File file : files){
+            if(file.isDirectory()){
+                findClassNames(file, prefix + file.getName(), classNames);
+            }
+            else if(isClassFile(file.getName())){
+                classNames.add(prefix + file.getName().substring(0, file.getName().length() - CLASS_SUFFIX.length()));
+            }
+        }
+    }
+
+    private static void findClassNames(URL resource, String path, List<String> classNames) throws IOException{
+        URLConnection connection = resource.openConnection();
+        if(!(connection instanceof JarURLConnection)){
+            return;
+        }
+
+        //The jar isn't cached, so it can be closed without affecting other users of it
+        connection.setUseCaches(false);
+        try(JarFile jar = ((JarURLConnection) connection).getJarFile()){
+            String prefix = path.isEmpty() ? "" : path + "/";
+            Enumeration<JarEntry> entries = jar.entries();
+            while(entries.hasMoreElements()){
+                String name = entries.nextElement().getName();
+                if(name.startsWith(prefix) && isClassFile(name.substring(name.lastIndexOf('/') + 1))){
+                    classNames.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+                }
+            }
+        }
+    }
+
+    private static boolean isClassFile(String fileName){
+        return fileName.endsWith(CLASS_SUFFIX) && !fileName.equals("module-info.class") && !fileName.equals("package-info.class");
+    }
+
+    /**
+     * A task warming up a range of the classes, splitting itself
+     * in half until the range is small enough to warm up sequentially.
+     */
+    private static class WarmUpTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final WarmUp warmUp;
+        private final List<Class<?>> classes;
+        private final int start;
+        private final int end;
+        private final int threshold;
+
+        WarmUpTask(WarmUp warmUp, List<Class<?>> classes, int start, int end, int threshold){
+            this.warmUp = warmUp;
+            this.classes = classes;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start > threshold){
+                int middle = (start + end) >>> 1;
+                invokeAll(new WarmUpTask(warmUp, classes, start, middle, threshold),
+                        new WarmUpTask(warmUp, classes, middle, end, threshold));
+                return;
+            }
+
+            for(int i = start; i < end; i++){
+                warmUp.warmUpClass(classes.get(i));
+            }
+        }
+    }
+
+}
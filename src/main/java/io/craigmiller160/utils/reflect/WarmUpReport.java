@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of warming up the reflective metadata of a group
+ * of classes with FindAndInvoke.warmUp(...), with the number
+ * of classes and methods prepared, and how long it took.
+ *
+ * Created by craig on 10/16/26.
+ */
+public final class WarmUpReport {
+
+    private final int classCount;
+    private final int methodCount;
+    private final int handleCount;
+    private final List<String> failedClasses;
+    private final long elapsedNanos;
+    private final long workNanos;
+
+    WarmUpReport(int classCount, int methodCount, int handleCount, List<String> failedClasses, long elapsedNanos, long workNanos){
+        this.classCount = classCount;
+        this.methodCount = methodCount;
+        this.handleCount = handleCount;
+        this.failedClasses = Collections.unmodifiableList(failedClasses);
+        this.elapsedNanos = elapsedNanos;
+        this.workNanos = workNanos;
+    }
+
+    /**
+     * Get the number of classes that were warmed up successfully.
+     *
+     * @return the number of classes.
+     */
+    public int getClassCount(){
+        return classCount;
+    }
+
+    /**
+     * Get the number of public methods indexed
+     * across all the classes that were warmed up.
+     *
+     * @return the number of methods.
+     */
+    public int getMethodCount(){
+        return methodCount;
+    }
+
+    /**
+     * Get the number of methods that a MethodHandle
+     * was created for, to be used when invoking them.
+     *
+     * @return the number of MethodHandles.
+     */
+    public int getHandleCount(){
+        return handleCount;
+    }
+
+    /**
+     * Get the names of the classes that couldn't be warmed
+     * up, usually because they couldn't be loaded or linked.
+     *
+     * @return the names of the failed classes.
+     */
+    public List<String> getFailedClasses(){
+        return failedClasses;
+    }
+
+    /**
+     * Get the time from the start of the warm up until it
+     * completed, which includes scanning a package for classes.
+     *
+     * @return the elapsed time, in nanoseconds.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the total time spent warming up each class, added
+     * up across all the threads that did the work.
+     *
+     * @return the total time, in nanoseconds.
+     */
+    public long getWorkNanos(){
+        return workNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WarmUpReport{classes=%1$d, methods=%2$d, handles=%3$d, failed=%4$d, elapsedMs=%5$d, workMs=%6$d}",
+                classCount, methodCount, handleCount, failedClasses.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), TimeUnit.NANOSECONDS.toMillis(workNanos));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the BeanAccessor class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class BeanAccessorTest {
+
+    @Test
+    public void testDiscoverProperties(){
+        BeanAccessor<ModelOne> accessor = BeanAccessor.forClass(ModelOne.class);
+        assertSame("Accessor isn't cached", accessor, BeanAccessor.forClass(ModelOne.class));
+        assertEquals("Wrong properties", Arrays.asList("booleanField", "byteField", "charField", "doubleField", "fields",
+                "floatField", "intField", "longField", "objectField", "shortField", "stringField"), accessor.getPropertyNames());
+        assertEquals("Wrong property count", 11, accessor.getPropertyCount());
+
+        int intIndex = accessor.indexOf("intField");
+        assertEquals("Wrong property name", "intField", accessor.getPropertyName(intIndex));
+        assertEquals("Wrong property type", int.class, accessor.getPropertyType(intIndex));
+        assertTrue("Property should be readable", accessor.isReadable(intIndex));
+        assertTrue("Property should be writable", accessor.isWritable(intIndex));
+        assertEquals("Wrong index for missing property", -1, accessor.indexOf("noSuchProperty"));
+
+        int booleanIndex = accessor.indexOf("booleanField");
+        assertEquals("isXxx() getter not found", boolean.class, accessor.getPropertyType(booleanIndex));
+
+        int fieldsIndex = accessor.indexOf("fields");
+        assertFalse("Setter-only property shouldn't be readable", accessor.isReadable(fieldsIndex));
+        assertTrue("Setter-only property should be writable", accessor.isWritable(fieldsIndex));
+
+        BeanAccessor<Bean> beanAccessor = BeanAccessor.forClass(Bean.class);
+        assertEquals("Wrong bean properties", Arrays.asList("URL", "count", "name"), beanAccessor.getPropertyNames());
+        assertFalse("Property with mismatched setter should be read-only", beanAccessor.isWritable(beanAccessor.indexOf("count")));
+    }
+
+    @Test
+    public void testGetAndSet(){
+        BeanAccessor<ModelOne> accessor = BeanAccessor.forClass(ModelOne.class);
+        ModelOne model = new ModelOne();
+
+        int stringIndex = accessor.indexOf("stringField");
+        accessor.set(model, stringIndex, "Hello");
+        assertEquals("Wrong value set", "Hello", model.getStringField());
+        assertEquals("Wrong value read", "Hello", accessor.get(model, stringIndex));
+
+        accessor.set(model, "longField", 20L);
+        assertEquals("Wrong primitive value set", 20L, model.getLongField());
+        assertEquals("Wrong primitive value read", 20L, accessor.get(model, "longField"));
+
+        accessor.set(model, "fields", new Object[]{"Varargs", 3});
+        assertEquals("Wrong varargs value set", 3, model.getIntField());
+
+        try{
+            accessor.set(model, "longField", 20);
+            fail("Should have thrown ReflectiveException for a value of the wrong type");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+
+        try{
+            accessor.set(model, "intField", null);
+            fail("Should have thrown ReflectiveException for a null primitive");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+
+        try{
+            accessor.get(model, "fields");
+            fail("Should have thrown NoMethodException for a property without a getter");
+        }
+        catch(NoMethodException ex){
+            //Expected
+        }
+
+        try{
+            accessor.get(model, "noSuchProperty");
+            fail("Should have thrown NoMethodException for a missing property");
+        }
+        catch(NoMethodException ex){
+            //Expected
+        }
+    }
+
+    @Test
+    public void testCopy(){
+        BeanAccessor<ModelOne> accessor = BeanAccessor.forClass(ModelOne.class);
+        ModelOne src = new ModelOne();
+        src.setStringField("Copy");
+        src.setIntField(4);
+        src.setDoubleField(1.5);
+        src.setBooleanField(true);
+        src.setCharField('c');
+        Object obj = new Object();
+        src.setObjectField(obj);
+
+        ModelOne dst = new ModelOne();
+        accessor.copy(src, dst);
+        assertEquals("Wrong String copied", "Copy", dst.getStringField());
+        assertEquals("Wrong int copied", 4, dst.getIntField());
+        assertEquals("Wrong double copied", 1.5, dst.getDoubleField(), 0);
+        assertTrue("Wrong boolean copied", dst.isBooleanField());
+        assertEquals("Wrong char copied", 'c', dst.getCharField());
+        assertSame("Wrong Object copied", obj, dst.getObjectField());
+    }
+
+    @Test
+    public void testExceptions(){
+        BeanAccessor<Bean> accessor = BeanAccessor.forClass(Bean.class);
+        try{
+            accessor.get(new Bean(), "URL");
+            fail("Should have thrown InvocationException for a checked exception");
+        }
+        catch(InvocationException ex){
+            assertTrue("Wrong cause", ex.getCause() instanceof Exception);
+        }
+
+        try{
+            accessor.set(new Bean(), "name", "Bad");
+            fail("Should have rethrown IllegalArgumentException");
+        }
+        catch(IllegalArgumentException ex){
+            //Expected
+        }
+    }
+
+    public static class Bean {
+
+        private String name;
+
+        public String getName(){
+            return name;
+        }
+
+        public void setName(String name){
+            if("Bad".equals(name)){
+                throw new IllegalArgumentException("Bad name");
+            }
+            this.name = name;
+        }
+
+        public int getCount(){
+            return 0;
+        }
+
+        public void setCount(long count){}
+
+        public String getURL() throws Exception{
+            throw new Exception("No URL");
+        }
+    }
+
+}
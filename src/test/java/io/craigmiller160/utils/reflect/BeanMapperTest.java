@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import io.craigmiller160.utils.sample.ModelTwo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the BeanMapper class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class BeanMapperTest {
+
+    @Test
+    public void testToMap(){
+        BeanMapper<ModelOne> mapper = BeanMapper.forClass(ModelOne.class);
+        assertSame("Mapper isn't cached", mapper, BeanMapper.forClass(ModelOne.class));
+
+        ModelOne model = new ModelOne();
+        model.setStringField("Hello");
+        model.setIntField(3);
+        model.setBooleanField(true);
+
+        Map<String,Object> map = mapper.toMap(model);
+        assertEquals("Wrong property order", Arrays.asList("booleanField", "byteField", "charField", "doubleField", "floatField",
+                "intField", "longField", "objectField", "shortField", "stringField"), new ArrayList<>(map.keySet()));
+        assertEquals("Wrong String value", "Hello", map.get("stringField"));
+        assertEquals("Wrong int value", 3, map.get("intField"));
+        assertEquals("Wrong boolean value", true, map.get("booleanField"));
+        assertTrue("Null value should be included", map.containsKey("objectField"));
+    }
+
+    @Test
+    public void testFromMap(){
+        BeanMapper<ModelOne> mapper = BeanMapper.forClass(ModelOne.class);
+        Map<String,Object> map = new HashMap<>();
+        map.put("stringField", "World");
+        map.put("intField", 5);
+        map.put("longField", 6);
+        map.put("doubleField", 'a');
+        map.put("shortField", (byte) 2);
+        map.put("objectField", null);
+        map.put("unknownField", "Ignored");
+
+        ModelOne model = mapper.fromMap(map);
+        assertEquals("Wrong String value", "World", model.getStringField());
+        assertEquals("Wrong int value", 5, model.getIntField());
+        assertEquals("int should be widened to a long", 6L, model.getLongField());
+        assertEquals("char should be widened to a double", 97.0, model.getDoubleField(), 0);
+        assertEquals("byte should be widened to a short", 2, model.getShortField());
+
+        ModelOne roundTrip = mapper.fromMap(mapper.toMap(model));
+        assertEquals("Round trip failed", mapper.toMap(model), mapper.toMap(roundTrip));
+
+        map.clear();
+        map.put("intField", 5L);
+        try{
+            mapper.fromMap(map);
+            fail("Should have thrown ReflectiveException for narrowing a long to an int");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+
+        map.clear();
+        map.put("intField", null);
+        try{
+            mapper.populate(model, map);
+            fail("Should have thrown ReflectiveException for a null primitive");
+        }
+        catch(ReflectiveException ex){
+            assertEquals("Value shouldn't have changed", 5, model.getIntField());
+        }
+
+        try{
+            BeanMapper.forClass(NoDefaultConstructor.class).fromMap(new HashMap<String,Object>());
+            fail("Should have thrown ReflectiveException for a class without a no-arg constructor");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+    }
+
+    @Test
+    public void testStreaming(){
+        BeanMapper<ModelTwo> mapper = BeanMapper.forClass(ModelTwo.class);
+        List<ModelTwo> models = new ArrayList<>();
+        for(int i = 0; i < 3; i++){
+            ModelTwo model = new ModelTwo();
+            model.setStringField("Model" + i);
+            models.add(model);
+        }
+
+        final int[] consumed = {0};
+        Iterator<ModelTwo> source = new Iterator<ModelTwo>() {
+            private final Iterator<ModelTwo> delegate = models.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public ModelTwo next() {
+                consumed[0]++;
+                return delegate.next();
+            }
+        };
+
+        Iterator<Map<String,Object>> maps = mapper.toMaps(source);
+        assertEquals("Objects shouldn't be mapped until requested", 0, consumed[0]);
+        assertEquals("Wrong first map", "Model0", maps.next().get("stringField"));
+        assertEquals("Only one object should have been mapped", 1, consumed[0]);
+
+        Iterator<ModelTwo> objects = mapper.fromMaps(maps);
+        assertEquals("Wrong second object", "Model1", objects.next().getStringField());
+        assertEquals("Wrong third object", "Model2", objects.next().getStringField());
+        assertFalse("Iterator should be exhausted", objects.hasNext());
+    }
+
+    public static class NoDefaultConstructor {
+
+        public NoDefaultConstructor(String value){}
+
+        public String getValue(){
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for the ConversionPlan class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class ConversionPlanTest {
+
+    private static final Class<?>[][] expectedTypeOptions = {
+            {},
+            {String.class},
+            {int.class},
+            {String.class, Integer.class},
+            {String.class, int.class},
+            {String[].class},
+            {String.class, Integer[].class},
+            {String.class, int[].class},
+            {String.class, Object[].class},
+            {String.class, String.class, Object[].class},
+            {String.class, long[].class},
+            {String.class, double[].class},
+            {String.class, Number[].class}
+    };
+
+    private static final Object[][] actualParamOptions = {
+            null,
+            {},
+            {null},
+            {"Foo"},
+            {1},
+            {"Foo", 1},
+            {"Foo", null},
+            {null, 22},
+            {"Foo", 1, 2, 3},
+            {"Foo", 1, "Bar"},
+            {"Foo", new Integer[]{1, 2}},
+            {"Foo", new int[]{1, 2}},
+            {"Foo", (short) 1, 'c'},
+            {"Foo", 1L, 2},
+            {"Foo", 1.5f, (byte) 2}
+    };
+
+    /**
+     * Test that every plan produces exactly the same result
+     * as ParamUtils for the same parameters.
+     */
+    @Test
+    public void testPlanMatchesParamUtils(){
+        for(Class<?>[] expectedTypes : expectedTypeOptions){
+            for(boolean isVarArgs : new boolean[]{false, true}){
+                if(isVarArgs && (expectedTypes.length == 0 || !expectedTypes[expectedTypes.length - 1].isArray())){
+                    continue;
+                }
+
+                for(Object[] actualParams : actualParamOptions){
+                    Object[] copy = actualParams != null ? Arrays.copyOf(actualParams, actualParams.length) : null;
+                    Object[] expected = ParamUtils.validateInvocationAndConvertParams(expectedTypes, isVarArgs, actualParams);
+                    Object[] result = ConversionPlan.compile(expectedTypes, isVarArgs, copy).apply(copy);
+
+                    String message = "Plan result is wrong. Expected Types: " + Arrays.toString(expectedTypes) +
+                            " | VarArgs: " + isVarArgs + " | Actual Params: " + Arrays.deepToString(actualParams);
+                    assertEquals(message, expected == null, result == null);
+                    if(expected != null){
+                        assertEquals(message, Arrays.deepToString(expected), Arrays.deepToString(result));
+                        for(int i = 0; i < expected.length; i++){
+                            assertEquals(message, expected[i] != null ? expected[i].getClass() : null,
+                                    result[i] != null ? result[i].getClass() : null);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the varargs packers produce the same arrays as
+     * Array.set(...), for every primitive component type and
+     * every wrapper type that can be widened to it.
+     */
+    @Test
+    public void testVarArgsPackers(){
+        Class<?>[] componentTypes = {int.class, long.class, double.class, float.class, short.class,
+                byte.class, char.class, boolean.class, Object.class, Number.class, String.class};
+        Object[] values = {(byte) 1, (short) 2, 'c', 4, 5L, 6.5f, 7.5, true, "Foo"};
+
+        for(Class<?> componentType : componentTypes){
+            List<Object> accepted = new ArrayList<>();
+            accepted.add("Skipped");
+            for(Object value : values){
+                if(ParamUtils.validateParamType(componentType, value.getClass())){
+                    accepted.add(value);
+                }
+            }
+
+            Object expected = Array.newInstance(componentType, accepted.size() - 1);
+            for(int i = 1; i < accepted.size(); i++){
+                Array.set(expected, i - 1, accepted.get(i));
+            }
+
+            Object result = VarArgsPacker.forComponentType(componentType).pack(accepted.toArray(), 1, accepted.size() - 1);
+            String message = "Packed array is wrong for component type " + componentType;
+            assertEquals(message, expected.getClass(), result.getClass());
+            assertEquals(message, Arrays.deepToString(new Object[]{expected}), Arrays.deepToString(new Object[]{result}));
+        }
+    }
+
+    /**
+     * Test that plans are cached for each method, and are
+     * reused for parameters with the same classes.
+     *
+     * @throws Exception if unable to get the method.
+     */
+    @Test
+    public void testPlanCaching() throws Exception{
+        Method m = ModelOne.class.getMethod("getMultipleFields", int[].class);
+
+        ConversionPlan plan = ConversionPlan.forInvocation(m, 1, 2);
+        assertNotNull("No plan was returned", plan);
+        assertFalse("Plan rejected valid params", plan.isRejected());
+        assertSame("Plan was not cached", plan, ConversionPlan.forInvocation(m, 3, 4));
+
+        ConversionPlan rejected = ConversionPlan.forInvocation(m, "Foo");
+        assertTrue("Plan did not reject invalid params", rejected.isRejected());
+        assertNull("Rejected plan returned params", rejected.apply("Foo"));
+        assertSame("Plan was not cached", plan, ConversionPlan.forInvocation(m, 5, 6));
+
+        Object[] result = plan.apply(7, 8);
+        assertEquals("Result is the wrong size", 1, result.length);
+        assertArrayEquals("Varargs array is wrong", new int[]{7, 8}, (int[]) result[0]);
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the FieldUtils class,
+ * and the ObjectAndField and ClassAndField holders.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class FieldUtilsTest {
+
+    @Test
+    public void testFindField(){
+        ModelOne model = new ModelOne();
+        ObjectAndField oaf = FieldUtils.findField(model, "stringField");
+        assertSame("Wrong source", model, oaf.getSource());
+        assertEquals("Wrong field name", "stringField", oaf.getFieldName());
+        assertEquals("Wrong field type", String.class, oaf.getFieldType());
+        assertFalse("Field shouldn't be static", oaf.isStatic());
+
+        ClassAndField caf = FieldUtils.findField(ModelOne.class, "intField");
+        assertEquals("Wrong source", ModelOne.class, caf.getSource());
+        assertEquals("Wrong field type", int.class, caf.getFieldType());
+        assertTrue("Class should be assignable", caf.isAssignableFrom(model.getClass()));
+        assertEquals("Wrong field from ClassAndField", caf.getReflectiveComponent(), caf.forObject(model).getReflectiveComponent());
+
+        ObjectAndField shadowing = FieldUtils.findField(new SubModel(), "stringField");
+        assertEquals("Subclass field should hide superclass field", SubModel.class, shadowing.getReflectiveComponent().getDeclaringClass());
+        ObjectAndField inherited = FieldUtils.findField(new SubModel(), "intField");
+        assertEquals("Superclass field not found", ModelOne.class, inherited.getReflectiveComponent().getDeclaringClass());
+
+        try{
+            FieldUtils.findField(model, "noSuchField");
+            fail("Should have thrown NoFieldException");
+        }
+        catch(NoFieldException ex){
+            //Expected
+        }
+    }
+
+    @Test
+    public void testGetAndSetValue(){
+        ModelOne model = new ModelOne();
+        ObjectAndField stringField = FieldUtils.findField(model, "stringField");
+        FieldUtils.setValue(stringField, "Hello");
+        assertEquals("Wrong value set", "Hello", model.getStringField());
+        assertEquals("Wrong value read", "Hello", FieldUtils.getValue(stringField));
+
+        ObjectAndField intField = FieldUtils.findField(model, "intField");
+        FieldUtils.setValue(intField, 5);
+        assertEquals("Wrong primitive value set", 5, model.getIntField());
+        assertEquals("Wrong primitive value read", 5, FieldUtils.getValue(intField));
+
+        try{
+            FieldUtils.setValue(stringField, 10);
+            fail("Should have thrown ReflectiveException for a value of the wrong type");
+        }
+        catch(ReflectiveException ex){
+            assertTrue("Wrong cause", ex.getCause() instanceof ClassCastException);
+        }
+
+        try{
+            FieldUtils.setValue(intField, null);
+            fail("Should have thrown ReflectiveException for a null primitive");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+    }
+
+    @Test
+    public void testTypedAccess(){
+        ModelOne model = new ModelOne();
+        ObjectAndField intField = FieldUtils.findField(model, "intField");
+        FieldUtils.setInt(intField, 7);
+        assertEquals("Wrong int set", 7, model.getIntField());
+        assertEquals("Wrong int read", 7, FieldUtils.getInt(intField));
+        assertEquals("int can be widened to a long", 7L, FieldUtils.getLong(intField));
+        assertEquals("int can be widened to a double", 7.0, FieldUtils.getDouble(intField), 0);
+
+        ObjectAndField longField = FieldUtils.findField(model, "longField");
+        FieldUtils.setInt(longField, 3);
+        assertEquals("int can be widened to a long", 3L, model.getLongField());
+        FieldUtils.setLong(longField, Long.MAX_VALUE);
+        assertEquals("Wrong long read", Long.MAX_VALUE, FieldUtils.getLong(longField));
+
+        try{
+            FieldUtils.getInt(longField);
+            fail("Should have thrown ReflectiveException for narrowing a long to an int");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+
+        ObjectAndField doubleField = FieldUtils.findField(model, "doubleField");
+        FieldUtils.setDouble(doubleField, 2.5);
+        assertEquals("Wrong double read", 2.5, FieldUtils.getDouble(doubleField), 0);
+
+        ObjectAndField booleanField = FieldUtils.findField(model, "booleanField");
+        FieldUtils.setBoolean(booleanField, true);
+        assertTrue("Wrong boolean read", FieldUtils.getBoolean(booleanField));
+    }
+
+    @Test
+    public void testStaticAndFinalFields(){
+        ObjectAndField counter = new ObjectAndField(null, FieldUtils.findField(StaticModel.class, "counter").getReflectiveComponent());
+        assertTrue("Field should be static", counter.isStatic());
+        assertEquals("Wrong source type for static field", StaticModel.class, counter.getSourceType());
+        FieldUtils.setInt(counter, 12);
+        assertEquals("Wrong static value", 12, StaticModel.counter);
+        assertEquals("Wrong static value read", 12, FieldUtils.getInt(counter));
+
+        ObjectAndField constant = FieldUtils.findField(new ModelOne(), "STRING_FIELD");
+        assertTrue("Field should be final", constant.isFinal());
+        assertEquals("Wrong final value read", ModelOne.STRING_FIELD, FieldUtils.getInt(constant));
+        try{
+            FieldUtils.setInt(constant, 2);
+            fail("Should have thrown ReflectiveException for a final field");
+        }
+        catch(ReflectiveException ex){
+            //Expected
+        }
+    }
+
+    private static class SubModel extends ModelOne {
+        private String stringField;
+    }
+
+    private static class StaticModel {
+        private static int counter;
+    }
+
+    /**
+     * Test that alternating the typed getters and setters
+     * on the same field allocates nothing once they have
+     * warmed up.
+     */
+    @Test
+    public void testTypedAccessAllocationFree(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counting is not supported", bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ObjectAndField oaf = FieldUtils.findField(new ModelOne(), "longField");
+        for(int i = 0; i < 20; i++){
+            measureTypedAccessAllocation(threadBean, oaf);
+        }
+
+        //The minimum of several rounds is used, so a one-off allocation by the JVM itself doesn't fail the test
+        long allocated = Long.MAX_VALUE;
+        for(int round = 0; round < 5; round++){
+            allocated = Math.min(allocated, measureTypedAccessAllocation(threadBean, oaf));
+        }
+        assertEquals("Alternating typed access allocated memory", 0, allocated);
+    }
+
+    private long measureTypedAccessAllocation(com.sun.management.ThreadMXBean threadBean, ObjectAndField oaf){
+        long threadId = Thread.currentThread().getId();
+        //Measure the cost of measuring, so it can be excluded
+        long overheadStart = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for(int i = 100000; i < 101000; i++){
+            if(i % 2 == 0){
+                FieldUtils.setInt(oaf, i);
+                if(FieldUtils.getLong(oaf) != i){
+                    throw new AssertionError("LongField is the wrong value");
+                }
+            }
+            else{
+                FieldUtils.setLong(oaf, i);
+                if(FieldUtils.getDouble(oaf) != i){
+                    throw new AssertionError("LongField is the wrong value");
+                }
+            }
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - start - overhead;
+    }
+
+}
@@ -16,16 +16,31 @@
 
 package io.craigmiller160.utils.reflect;
 
+import io.craigmiller160.utils.sample.ModelOne;
+import io.craigmiller160.utils.sample.ModelTwo;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * A JUnit test class for the FindAndInvoke
@@ -83,6 +98,178 @@ public class FindAndInvokeTest {
         assertTrue("TestClass2 method wasn't invoked", tc3.getTc2Success());
     }
 
+    /**
+     * Test finding and invoking a method asynchronously,
+     * with resolution failures being thrown immediately.
+     *
+     * @throws Exception if unable to get the result of the invocation.
+     */
+    @Test
+    public void testFindAndInvokeAsync() throws Exception{
+        Object[] objects = getObjects();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            CompletableFuture<Object> future = FindAndInvoke.findInvokeOneMethodAsync(executor, "method1", objects, "One", "Two");
+            assertEquals("Result value is wrong", "One Two", future.get(5, TimeUnit.SECONDS));
+
+            future = FindAndInvoke.findInvokeOneMethodAsync(executor, getOams(), "One", 2);
+            assertEquals("Result value is wrong", "One 2", future.get(5, TimeUnit.SECONDS));
+
+            boolean exceptionThrown = false;
+            try{
+                FindAndInvoke.findInvokeOneMethodAsync(executor, "method1", objects, 1, 2);
+            }
+            catch(NoMethodException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("Resolution failure was not thrown immediately", exceptionThrown);
+        }
+        finally{
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test invoking multiple methods concurrently. Each
+     * method waits on a shared barrier, so the invocation
+     * can only complete if they all run at the same time.
+     */
+    @Test
+    public void testFindAndInvokeMultipleConcurrently(){
+        int count = 3;
+        CyclicBarrier barrier = new CyclicBarrier(count);
+        Object[] objects = new Object[count];
+        for(int i = 0; i < count; i++){
+            objects[i] = new TestClass4(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try{
+            FindAndInvoke.findInvokeAllMethodsConcurrently(executor, true, "await", objects, barrier);
+        }
+        finally{
+            executor.shutdownNow();
+        }
+
+        for(Object o : objects){
+            assertTrue("Method wasn't invoked", ((TestClass4) o).isInvoked());
+        }
+    }
+
+    /**
+     * Test that failures from concurrent invocations are
+     * aggregated, with the first one being rethrown and the
+     * rest suppressed. With ordering enabled, the first
+     * failure is the one from the first object.
+     */
+    @Test
+    public void testFindAndInvokeMultipleConcurrentlyFailures(){
+        Object[] objects = new Object[]{new TestClass4(0), new TestClass4(1), new TestClass4(2)};
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        InvocationException exception = null;
+        try{
+            FindAndInvoke.findInvokeAllMethodsConcurrently(executor, true, "fail", objects, "Failure");
+        }
+        catch(InvocationException ex){
+            exception = ex;
+        }
+        finally{
+            executor.shutdownNow();
+        }
+
+        assertNotNull("No exception was thrown", exception);
+        assertEquals("Wrong exception was rethrown first", "Failure 0", exception.getCause().getMessage());
+        assertEquals("Other failures were not suppressed", 2, exception.getSuppressed().length);
+        assertEquals("Suppressed failures out of order", "Failure 1", exception.getSuppressed()[0].getCause().getMessage());
+        assertEquals("Suppressed failures out of order", "Failure 2", exception.getSuppressed()[1].getCause().getMessage());
+    }
+
+    /**
+     * Test that with fail-fast enabled, the first failure
+     * cancels the other invocations, and they aren't
+     * reported as failures themselves.
+     */
+    @Test
+    public void testFindAndInvokeMultipleConcurrentlyFailFast(){
+        Object[] objects = new Object[]{new TestClass4(0), new TestClass4(1), new TestClass4(2)};
+        CountDownLatch started = new CountDownLatch(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        InvocationException exception = null;
+        long start = System.currentTimeMillis();
+        try{
+            FindAndInvoke.findInvokeAllMethodsConcurrently(executor, true, true, "failFirst", objects, started);
+        }
+        catch(InvocationException ex){
+            exception = ex;
+        }
+        finally{
+            executor.shutdownNow();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertNotNull("No exception was thrown", exception);
+        assertEquals("Wrong exception was rethrown", "Failure 0", exception.getCause().getMessage());
+        assertEquals("Cancelled invocations were reported as failures", 0, exception.getSuppressed().length);
+        assertTrue("Other invocations were not cancelled", elapsed < 5000);
+        assertTrue("Second invocation wasn't interrupted", ((TestClass4) objects[1]).isInterrupted());
+        assertTrue("Third invocation wasn't interrupted", ((TestClass4) objects[2]).isInterrupted());
+    }
+
+    /**
+     * Test that invoking multiple methods concurrently from a task
+     * running in the same pool doesn't deadlock, even when that
+     * task is occupying the pool's only thread.
+     */
+    @Test
+    public void testFindAndInvokeMultipleConcurrentlyFromPool() throws Exception{
+        final Object[] objects = new Object[]{new TestClass4(0), new TestClass4(1), new TestClass4(2)};
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try{
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    FindAndInvoke.findInvokeAllMethodsConcurrently(pool, true, "mark", objects);
+                }
+            }).get(5, TimeUnit.SECONDS);
+        }
+        catch(TimeoutException ex){
+            fail("Invocations deadlocked waiting on their own pool");
+        }
+        finally{
+            pool.shutdownNow();
+        }
+
+        for(Object o : objects){
+            assertTrue("Method wasn't invoked", ((TestClass4) o).isInvoked());
+        }
+        assertTrue("Default executor shouldn't be the common pool", FindAndInvoke.getDefaultExecutor() != ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Test invoking multiple methods on virtual threads. On
+     * runtimes without virtual threads, this falls back to
+     * the default executor, which may not run them at the same
+     * time, so only the invocations themselves are checked.
+     */
+    @Test
+    public void testFindAndInvokeMultipleOnVirtualThreads(){
+        Object[] objects = new Object[]{new TestClass4(0), new TestClass4(1)};
+
+        if(FindAndInvoke.isVirtualThreadsSupported()){
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            FindAndInvoke.findInvokeAllMethodsOnVirtualThreads(false, "await", objects, barrier);
+        }
+        else{
+            FindAndInvoke.findInvokeAllMethodsOnVirtualThreads(false, "mark", objects);
+        }
+
+        for(Object o : objects){
+            assertTrue("Method wasn't invoked", ((TestClass4) o).isInvoked());
+        }
+    }
+
     /**
      * Test invoking a method with multiple potential
      * matches, to ensure that the correct one is invoked.
@@ -92,19 +279,11 @@ public class FindAndInvokeTest {
         String value = "foo";
         Object[] objects = getObjects();
 
-        long start = System.currentTimeMillis(); //TODO delete this
-
         String result = (String) FindAndInvoke.findInvokeOneMethod("sameName", objects, value);
 
-        long end = System.currentTimeMillis(); //TODO delete this
-        System.out.println(end - start); //TODO delete this
-
-
         assertNotNull("First Result is null", result);
         assertEquals("First Result has the wrong value", SAME_NAME_STRING, result);
 
-
-
         result = (String) FindAndInvoke.findInvokeOneMethod("sameName", objects, value, "One", "Two");
         assertNotNull("Second Result is null", result);
         assertEquals("Second Result has the wrong value", SAME_NAME_VARARGS, result);
@@ -118,9 +297,215 @@ public class FindAndInvokeTest {
         }
 
         assertTrue("No exception was thrown for ambiguous method", exceptionThrown);
+    }
+
+    /**
+     * Test that repeated invocations with the same shape
+     * are resolved from the cache, including invocations
+     * where no method could be found.
+     */
+    @Test
+    public void testResolutionCache(){
+        Object[] objects = getObjects();
+        ResolutionCache cache = FindAndInvoke.getResolutionCache();
+
+        FindAndInvoke.findInvokeOneMethod("method1", objects, "One", "Two");
+        long hitCount = cache.getHitCount();
+
+        Object result = FindAndInvoke.findInvokeOneMethod("method1", objects, "Three", "Four");
+        assertEquals("Cached resolution was not used", hitCount + 1, cache.getHitCount());
+        assertEquals("Result value is wrong", "Three Four", result);
+
+        for(int i = 0; i < 2; i++){
+            boolean exceptionThrown = false;
+            try{
+                FindAndInvoke.findInvokeOneMethod("method1", objects, 1, 2);
+            }
+            catch(NoMethodException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("No exception was thrown for cached failed resolution", exceptionThrown);
+        }
+        assertEquals("Failed resolution was not cached", hitCount + 2, cache.getHitCount());
+
+        //The message of a cached failure has the params of the current call
+        for(int i = 3; i < 5; i++){
+            try{
+                FindAndInvoke.findInvokeOneMethod("method1", objects, i, i);
+                fail("No exception was thrown for cached failed resolution");
+            }
+            catch(NoMethodException ex){
+                assertTrue("Wrong params in message: " + ex.getMessage(), ex.getMessage().endsWith("Params: [" + i + ", " + i + "]"));
+            }
+        }
+    }
+
+    /**
+     * Test that the resolution cache never grows
+     * beyond its maximum size.
+     */
+    @Test
+    public void testResolutionCacheEviction(){
+        ResolutionCache cache = new ResolutionCache(2);
+        for(int i = 0; i < 5; i++){
+            ResolutionCache.Key key = ResolutionCache.createKey("method" + i, new Object[]{"Foo"}, new Object[0]);
+            cache.put(key, ResolutionCache.Resolution.failure("Failed", false, 0));
+        }
+
+        assertEquals("Cache is the wrong size", 2, cache.size());
+        assertEquals("Cache evicted the wrong number of entries", 3, cache.getEvictionCount());
+    }
+
+    /**
+     * Test creating a proxy of an interface, which
+     * dispatches to the matching methods of every target.
+     */
+    @Test
+    public void testProxy(){
+        ModelOne modelOne = new ModelOne();
+        ModelTwo modelTwo = new ModelTwo();
+        StringFieldHolder proxy = FindAndInvoke.proxy(StringFieldHolder.class, Arrays.asList(modelOne, modelTwo));
+
+        proxy.setStringField("Foo");
+        assertEquals("ModelOne StringField is the wrong value", "Foo", modelOne.getStringField());
+        assertEquals("ModelTwo StringField is the wrong value", "Foo", modelTwo.getStringField());
+
+        modelTwo.setStringField("Bar");
+        assertEquals("Proxy didn't return the value from the first target", "Foo", proxy.getStringField());
+        assertTrue("Proxy isn't equal to itself", proxy.equals(proxy));
+
+        boolean exceptionThrown = false;
+        try{
+            FindAndInvoke.proxy(IntFieldHolder.class, Arrays.asList(modelTwo));
+        }
+        catch(NoMethodException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception was thrown for an interface with unmatched methods", exceptionThrown);
+    }
 
-        end = System.currentTimeMillis(); //TODO delete this
-        System.out.println(end - start); //TODO delete this
+    /**
+     * Test that a proxy ignores static interface methods, invokes
+     * the default implementation of default methods no target
+     * matches, and rethrows the declared checked exceptions
+     * and the unchecked exceptions of the targets as they are,
+     * with every backend.
+     */
+    @Test
+    public void testProxyInterfaceMethods(){
+        Reader proxy = FindAndInvoke.proxy(Reader.class, Arrays.asList(new ReaderTarget()));
+        assertEquals("Bound default method wasn't invoked on the target", "Target greeting", proxy.greeting());
+        assertEquals("Unbound default method didn't use the default implementation", "Reader Target", proxy.describe());
+
+        try{
+            proxy.read();
+            fail("Should have thrown IOException");
+        }
+        catch(IOException ex){
+            assertEquals("Wrong exception was thrown", "Read failed", ex.getMessage());
+        }
+
+        InvocationBackend backend = RemoteInvoke.getDefaultBackend();
+        try{
+            for(InvocationBackend proxyBackend : InvocationBackend.values()){
+                RemoteInvoke.setDefaultBackend(proxyBackend);
+                try{
+                    proxy.close();
+                    fail("Should have thrown IllegalStateException with backend " + proxyBackend);
+                }
+                catch(IllegalStateException ex){
+                    assertEquals("Wrong exception was thrown with backend " + proxyBackend, "Already closed", ex.getMessage());
+                }
+            }
+        }
+        finally{
+            RemoteInvoke.setDefaultBackend(backend);
+        }
+    }
+
+    /**
+     * Test warming up classes, both from a list
+     * and by scanning directories and jars for them.
+     */
+    @Test
+    public void testWarmUp() throws Exception{
+        List<Class<?>> classes = new ArrayList<>();
+        classes.add(ModelOne.class);
+        classes.add(ModelTwo.class);
+        WarmUpReport report = FindAndInvoke.warmUp(classes);
+        assertEquals("Wrong number of classes warmed up", 2, report.getClassCount());
+        assertEquals("Wrong number of methods warmed up",
+                ModelOne.class.getMethods().length + ModelTwo.class.getMethods().length, report.getMethodCount());
+        assertEquals("Wrong number of handles created", report.getMethodCount(), report.getHandleCount());
+        assertEquals("Classes failed to warm up", 0, report.getFailedClasses().size());
+
+        report = FindAndInvoke.warmUpPackage("io.craigmiller160.utils.sample");
+        File sampleDirectory = new File(ModelOne.class.getClassLoader().getResource("io/craigmiller160/utils/sample").toURI());
+        assertEquals("Wrong number of classes warmed up from directory", countClassFiles(sampleDirectory), report.getClassCount());
+
+        report = FindAndInvoke.warmUpPackage("org.junit.runner");
+        assertTrue("No classes warmed up from jar", report.getClassCount() > 0);
+    }
+
+    private int countClassFiles(File directory){
+        int count = 0;
+        for(File file : directory.listFiles()){
+            if(file.isDirectory()){
+                count += countClassFiles(file);
+            }
+            else if(file.getName().endsWith(".class") && !file.getName().equals("package-info.class")){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Test probing for methods that may not exist,
+     * without an exception being thrown for a miss.
+     */
+    @Test
+    public void testTryFindInvokeOneMethod(){
+        Object[] objects = {new TestClass1(), new TestClass2()};
+        assertEquals("Wrong result for an existing method", "Foo Bar",
+                FindAndInvoke.tryFindInvokeOneMethod("method1", objects, "Foo", "Bar"));
+        assertSame("Wrong result for a missing method", FindAndInvoke.NO_METHOD,
+                FindAndInvoke.tryFindInvokeOneMethod("missingMethod", objects, "Foo"));
+        assertSame("Wrong result for a missing method on a cached resolution", FindAndInvoke.NO_METHOD,
+                FindAndInvoke.tryFindInvokeOneMethod("missingMethod", objects, "Foo"));
+    }
+
+    /**
+     * Test that lightweight misses throw a shared
+     * exception with no stack trace.
+     */
+    @Test
+    public void testLightweightMisses(){
+        Object[] objects = {new TestClass1()};
+        FindAndInvoke.setLightweightMisses(true);
+        try{
+            NoMethodException first = getNoMethodException(objects);
+            NoMethodException second = getNoMethodException(objects);
+            assertSame("The exception wasn't shared", first, second);
+            assertEquals("The exception has a stack trace", 0, first.getStackTrace().length);
+            assertNotNull("The exception has no message", first.getMessage());
+        }
+        finally{
+            FindAndInvoke.setLightweightMisses(false);
+        }
+
+        NoMethodException ex = getNoMethodException(objects);
+        assertTrue("The exception has no stack trace", ex.getStackTrace().length > 0);
+    }
+
+    private NoMethodException getNoMethodException(Object[] objects){
+        try{
+            FindAndInvoke.findInvokeOneMethod("missingMethod", objects, "Foo");
+        }
+        catch(NoMethodException ex){
+            return ex;
+        }
+        throw new AssertionError("No exception was thrown for a missing method");
     }
 
     private Collection<ObjectAndMethod> getOams() throws Exception{
@@ -170,6 +555,54 @@ public class FindAndInvokeTest {
 
     }
 
+    private interface StringFieldHolder{
+        void setStringField(String stringField);
+        String getStringField();
+    }
+
+    private interface IntFieldHolder{
+        void setIntField(int intField);
+    }
+
+    private interface Reader{
+        static Reader empty(){
+            return null;
+        }
+
+        String name();
+
+        String read() throws IOException;
+
+        void close();
+
+        default String describe(){
+            return "Reader " + name();
+        }
+
+        default String greeting(){
+            return "Default greeting";
+        }
+    }
+
+    public static class ReaderTarget{
+
+        public String name(){
+            return "Target";
+        }
+
+        public String read() throws IOException{
+            throw new IOException("Read failed");
+        }
+
+        public void close(){
+            throw new IllegalStateException("Already closed");
+        }
+
+        public String greeting(){
+            return "Target greeting";
+        }
+    }
+
     private class TestClass1 extends ParentTestClass{
 
         public String method1(String s1, String s2){
@@ -212,6 +645,54 @@ public class FindAndInvokeTest {
 
     }
 
+    private static class TestClass4{
+
+        private final int index;
+        private volatile boolean invoked = false;
+        private volatile boolean interrupted = false;
+
+        public TestClass4(int index){
+            this.index = index;
+        }
+
+        public void await(CyclicBarrier barrier) throws Exception{
+            barrier.await(5, TimeUnit.SECONDS);
+            invoked = true;
+        }
+
+        public void mark(){
+            invoked = true;
+        }
+
+        public void fail(String message){
+            throw new IllegalStateException(message + " " + index);
+        }
+
+        public void failFirst(CountDownLatch started) throws Exception{
+            if(index == 0){
+                started.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("Failure " + index);
+            }
+
+            started.countDown();
+            try{
+                Thread.sleep(10000);
+            }
+            catch(InterruptedException ex){
+                interrupted = true;
+            }
+        }
+
+        public boolean isInvoked(){
+            return invoked;
+        }
+
+        public boolean isInterrupted(){
+            return interrupted;
+        }
+
+    }
+
     private class TestClass3{
 
         private boolean tc1Success = false;
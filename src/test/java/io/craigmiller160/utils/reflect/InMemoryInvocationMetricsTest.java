@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import io.craigmiller160.utils.sample.ModelTwo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for the InMemoryInvocationMetrics
+ * class, and the recording of metrics by FindAndInvoke.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class InMemoryInvocationMetricsTest {
+
+    /**
+     * Test that every value falls in a bucket whose
+     * upper bound is within 12.5% of it.
+     */
+    @Test
+    public void testHistogramBuckets(){
+        long[] values = {0, 1, 7, 8, 15, 16, 100, 1000, 123456789L, Long.MAX_VALUE};
+        for(long value : values){
+            int index = InMemoryInvocationMetrics.Histogram.bucketIndex(value);
+            long upperBound = InMemoryInvocationMetrics.Histogram.bucketUpperBound(index);
+            assertTrue("Value is above its bucket: " + value, value <= upperBound);
+            assertTrue("Bucket is too wide for value: " + value, upperBound - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void testPercentiles(){
+        InMemoryInvocationMetrics metrics = new InMemoryInvocationMetrics();
+        assertNull("Snapshot exists for unrecorded signature", metrics.getSnapshot("method"));
+
+        for(int i = 1; i <= 1000; i++){
+            metrics.record("method", 2, i, 0, i * 1000, InvocationMetrics.Outcome.SUCCESS);
+        }
+        metrics.record("method", 2, 5, 0, 0, InvocationMetrics.Outcome.NO_METHOD);
+
+        InMemoryInvocationMetrics.Snapshot snapshot = metrics.getSnapshot("method");
+        assertNotNull("No snapshot for recorded signature", snapshot);
+        assertEquals("Wrong success count", 1000, snapshot.getCount(InvocationMetrics.Outcome.SUCCESS));
+        assertEquals("Wrong no method count", 1, snapshot.getCount(InvocationMetrics.Outcome.NO_METHOD));
+        assertEquals("Wrong average candidate count", 2.0, snapshot.getAverageCandidateCount(), 0.0);
+        assertEquals("Unreached stages were recorded", 1000, snapshot.getInvokeTimes().getCount());
+
+        long median = snapshot.getInvokeTimes().getPercentile(50);
+        assertTrue("Median is wrong: " + median, median >= 500000 && median <= 500000 * 9 / 8);
+        assertEquals("Max percentile is wrong", 1000000, snapshot.getInvokeTimes().getPercentile(100));
+        assertEquals("Max is wrong", 1000000, snapshot.getInvokeTimes().getMax());
+
+        metrics.reset();
+        assertTrue("Metrics were not reset", metrics.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testFindAndInvokeMetrics(){
+        InMemoryInvocationMetrics metrics = new InMemoryInvocationMetrics();
+        FindAndInvoke.setInvocationMetrics(metrics);
+        try{
+            ModelOne modelOne = new ModelOne();
+            FindAndInvoke.findInvokeOneMethod("setStringField", new Object[]{modelOne}, "Foo");
+            assertEquals("ModelOne StringField is the wrong value", "Foo", modelOne.getStringField());
+
+            boolean exceptionThrown = false;
+            try{
+                FindAndInvoke.findInvokeOneMethod("setStringField", new Object[]{modelOne}, 1, 2);
+            }
+            catch(NoMethodException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("No exception was thrown for missing method", exceptionThrown);
+
+            exceptionThrown = false;
+            try{
+                FindAndInvoke.findInvokeOneMethod("parseInt", new Object[]{0}, "Foo");
+            }
+            catch(RuntimeException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("No exception was thrown by method", exceptionThrown);
+        }
+        finally{
+            FindAndInvoke.setInvocationMetrics(InvocationMetrics.NO_OP);
+        }
+
+        InMemoryInvocationMetrics.Snapshot snapshot = metrics.getSnapshot("setStringField");
+        assertNotNull("Invocation was not recorded", snapshot);
+        assertEquals("Wrong success count", 1, snapshot.getCount(InvocationMetrics.Outcome.SUCCESS));
+        assertEquals("Wrong no method count", 1, snapshot.getCount(InvocationMetrics.Outcome.NO_METHOD));
+
+        snapshot = metrics.getSnapshot("parseInt");
+        assertNotNull("Invocation was not recorded", snapshot);
+        assertEquals("Wrong failure count", 1, snapshot.getCount(InvocationMetrics.Outcome.FAILURE));
+    }
+
+    @Test
+    public void testFindInvokeAllMethodsMetrics(){
+        InMemoryInvocationMetrics metrics = new InMemoryInvocationMetrics();
+        FindAndInvoke.setInvocationMetrics(metrics);
+        try{
+            ModelOne modelOne = new ModelOne();
+            ModelTwo modelTwo = new ModelTwo();
+            FindAndInvoke.findInvokeAllMethods("setStringField", new Object[]{modelOne, modelTwo}, "Foo");
+            FindAndInvoke.findInvokeAllMethodsConcurrently("setStringField", new Object[]{modelOne, modelTwo}, "Bar");
+            assertEquals("ModelOne StringField is the wrong value", "Bar", modelOne.getStringField());
+            assertEquals("ModelTwo StringField is the wrong value", "Bar", modelTwo.getStringField());
+
+            boolean exceptionThrown = false;
+            try{
+                FindAndInvoke.findInvokeAllMethodsConcurrently("setStringField", new Object[]{modelOne, modelTwo}, 1, 2);
+            }
+            catch(NoMethodException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("No exception was thrown for missing method", exceptionThrown);
+        }
+        finally{
+            FindAndInvoke.setInvocationMetrics(InvocationMetrics.NO_OP);
+        }
+
+        InMemoryInvocationMetrics.Snapshot snapshot = metrics.getSnapshot("setStringField");
+        assertNotNull("Invocations were not recorded", snapshot);
+        assertEquals("Wrong success count", 2, snapshot.getCount(InvocationMetrics.Outcome.SUCCESS));
+        assertEquals("Wrong no method count", 1, snapshot.getCount(InvocationMetrics.Outcome.NO_METHOD));
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * A JUnit test class for the MethodIndex class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class MethodIndexTest {
+
+    @Test
+    public void testFixedParamCandidates(){
+        MethodIndex index = MethodIndex.forClass(TestClass.class);
+        assertSame("Index was not cached", index, MethodIndex.forClass(TestClass.class));
+
+        assertEquals("Wrong candidate count for no params", 1, index.getCandidates("fixed", 0).length);
+        assertEquals("Wrong candidate count for one param", 1, index.getCandidates("fixed", 1).length);
+        assertEquals("Wrong candidate count for two params", 0, index.getCandidates("fixed", 2).length);
+        assertEquals("Wrong candidate count for unknown method", 0, index.getCandidates("unknown", 0).length);
+    }
+
+    @Test
+    public void testVarArgsCandidates(){
+        MethodIndex index = MethodIndex.forClass(TestClass.class);
+
+        assertEquals("Wrong candidate count for no params", 0, index.getCandidates("varArgs", 0).length);
+
+        Method[] candidates = index.getCandidates("varArgs", 1);
+        assertEquals("Wrong candidate count for one param", 2, candidates.length);
+
+        candidates = index.getCandidates("varArgs", 2);
+        assertEquals("Wrong candidate count for two params", 1, candidates.length);
+        assertEquals("Wrong candidate for two params", true, candidates[0].isVarArgs());
+
+        candidates = index.getCandidates("varArgs", 20);
+        assertEquals("Wrong candidate count for many params", 1, candidates.length);
+    }
+
+    public static class TestClass{
+
+        public void fixed(){}
+
+        public void fixed(String s){}
+
+        public void varArgs(String s){}
+
+        public void varArgs(String s, Object...args){}
+
+    }
+
+}
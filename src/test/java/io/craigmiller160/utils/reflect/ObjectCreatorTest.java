@@ -17,10 +17,18 @@
 package io.craigmiller160.utils.reflect;
 
 import io.craigmiller160.utils.sample.Custom1;
+import io.craigmiller160.utils.sample.Hidden;
 import org.junit.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * A JUnit test class for the ObjectCreator class.
@@ -62,4 +70,113 @@ public class ObjectCreatorTest {
         assertEquals("Custom1 two field has wrong value", 2, custom1.getTwo());
     }
 
+    @Test
+    public void testFactoryFor(){
+        ObjectCreator.Factory<Custom1> factory = ObjectCreator.factoryFor(Custom1.class, boolean.class, Integer.class, Integer.class);
+        assertSame("Factory was not cached", factory, ObjectCreator.factoryFor(Custom1.class, boolean.class, Integer.class, Integer.class));
+
+        Custom1 custom1 = factory.newInstance(true, 1, 2);
+        assertNotNull("Custom1 object is null", custom1);
+        assertEquals("Custom1 boolean field has wrong value", true, custom1.getBool());
+        assertEquals("Custom1 one field has wrong value", 1, custom1.getOne());
+        assertEquals("Custom1 two field has wrong value", 2, custom1.getTwo());
+
+        ObjectCreator.Factory<Custom1> stringFactory = ObjectCreator.factoryFor(Custom1.class, String.class);
+        assertEquals("Custom1 string field has wrong value", "Foo", stringFactory.newInstance("Foo").getString());
+
+        boolean exceptionThrown = false;
+        try{
+            ObjectCreator.factoryFor(Custom1.class, Integer.class);
+        }
+        catch(ReflectiveException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception thrown for missing constructor", exceptionThrown);
+    }
+
+    @Test
+    public void testInstantiateNoMatchingConstructor(){
+        boolean exceptionThrown = false;
+        try{
+            ObjectCreator.instantiateClassWithParams(Custom1.class, 1, 2);
+        }
+        catch(ReflectiveException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception thrown for missing constructor", exceptionThrown);
+    }
+
+    @Test
+    public void testInstantiateInaccessibleClass(){
+        boolean exceptionThrown = false;
+        try{
+            ObjectCreator.instantiateClass(Hidden.getModelClass());
+        }
+        catch(ReflectiveException ex){
+            exceptionThrown = true;
+        }
+
+        assertTrue("Class that isn't accessible was instantiated", exceptionThrown);
+    }
+
+    @Test
+    public void testInstantiateConstructorException(){
+        InvocationException exception = null;
+        try{
+            ObjectCreator.instantiateClassWithParams(Failing.class, "Failure");
+        }
+        catch(InvocationException ex){
+            exception = ex;
+        }
+
+        assertNotNull("No exception thrown for a failing constructor", exception);
+        assertTrue("Cause isn't an InvocationTargetException", exception.getCause() instanceof InvocationTargetException);
+        assertEquals("Wrong exception from constructor", "Failure", exception.getCause().getCause().getMessage());
+    }
+
+    @Test
+    public void testInstantiateMany(){
+        List<Custom1> list = ObjectCreator.instantiateMany(Custom1.class, 10);
+        assertEquals("Wrong number of instances created", 10, list.size());
+
+        List<Object[]> argRows = new ArrayList<>();
+        for(int i = 0; i < 1000; i++){
+            argRows.add(i % 2 == 0 ? new Object[]{"Foo" + i} : new Object[]{true, i});
+        }
+
+        list = ObjectCreator.instantiateMany(Custom1.class, argRows);
+        assertEquals("Wrong number of instances created", argRows.size(), list.size());
+        assertEquals("Custom1 string field has wrong value", "Foo0", list.get(0).getString());
+        assertEquals("Custom1 one field has wrong value", 1, list.get(1).getOne());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try{
+            Custom1[] array = ObjectCreator.instantiateMany(pool, Custom1.class, new Custom1[1000]);
+            for(Custom1 custom1 : array){
+                assertNotNull("Custom1 object is null", custom1);
+            }
+
+            array = ObjectCreator.instantiateMany(pool, Custom1.class, argRows, new Custom1[argRows.size()]);
+            for(int i = 0; i < array.length; i++){
+                if(i % 2 == 0){
+                    assertEquals("Custom1 string field has wrong value", "Foo" + i, array[i].getString());
+                }
+                else{
+                    assertEquals("Custom1 one field has wrong value", i, array[i].getOne());
+                }
+            }
+        }
+        finally{
+            pool.shutdown();
+        }
+    }
+
+    public static class Failing {
+
+        public Failing(String message){
+            throw new IllegalStateException(message);
+        }
+
+    }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for the OverloadResolver class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class OverloadResolverTest {
+
+    /**
+     * Test that candidates are ordered with the most
+     * specific first, and non-varargs before varargs.
+     */
+    @Test
+    public void testOrderBySpecificity(){
+        Method[] candidates = MethodIndex.forClass(TestClass.class).getCandidates("single", 1);
+        assertEquals("Wrong candidate count", 4, candidates.length);
+        assertEquals("Wrong first candidate", String.class, candidates[0].getParameterTypes()[0]);
+        assertEquals("Wrong second candidate", CharSequence.class, candidates[1].getParameterTypes()[0]);
+        assertEquals("Wrong third candidate", Object.class, candidates[2].getParameterTypes()[0]);
+        assertTrue("Varargs candidate wasn't last", candidates[3].isVarArgs());
+    }
+
+    /**
+     * Test that the chosen method is the most specific one,
+     * regardless of the order of the candidates.
+     */
+    @Test
+    public void testChooseIndependentOfOrder(){
+        TestClass tc = new TestClass();
+        List<ObjectAndMethod> oams = getOams(tc, "single");
+        for(int i = 0; i < 10; i++){
+            Collections.shuffle(oams);
+            ObjectAndMethod oam = OverloadResolver.choose("single", oams, new Object[]{"Foo"});
+            assertEquals("Wrong method chosen", String.class, oam.getReflectiveComponent().getParameterTypes()[0]);
+
+            oam = OverloadResolver.choose("single", oams, new Object[]{new StringBuilder()});
+            assertEquals("Wrong method chosen", CharSequence.class, oam.getReflectiveComponent().getParameterTypes()[0]);
+        }
+
+        assertNull("Method chosen when none are applicable", OverloadResolver.choose("single", oams, new Object[]{1, 2}));
+    }
+
+    /**
+     * Test that a primitive param is more specific than
+     * one it widens to.
+     */
+    @Test
+    public void testChoosePrimitiveWidening(){
+        List<ObjectAndMethod> oams = getOams(new TestClass(), "number");
+        ObjectAndMethod oam = OverloadResolver.choose("number", oams, new Object[]{1});
+        assertEquals("Wrong method chosen", int.class, oam.getReflectiveComponent().getParameterTypes()[0]);
+
+        oam = OverloadResolver.choose("number", oams, new Object[]{1L});
+        assertEquals("Wrong method chosen", long.class, oam.getReflectiveComponent().getParameterTypes()[0]);
+    }
+
+    /**
+     * Test that calls are ambiguous when neither method is
+     * more specific in every position, or when the only more
+     * specific position has a null argument.
+     */
+    @Test
+    public void testChooseAmbiguous(){
+        List<ObjectAndMethod> oams = getOams(new TestClass(), "crossed");
+        boolean exceptionThrown = false;
+        try{
+            OverloadResolver.choose("crossed", oams, new Object[]{"Foo", "Bar"});
+        }
+        catch(NoMethodException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception was thrown for ambiguous method", exceptionThrown);
+
+        oams = getOams(new TestClass(), "single");
+        exceptionThrown = false;
+        try{
+            OverloadResolver.choose("single", oams, new Object[]{null});
+        }
+        catch(NoMethodException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception was thrown for null argument", exceptionThrown);
+    }
+
+    /**
+     * Test that candidates which are ambiguous with each other
+     * aren't reported as ambiguous when another candidate is
+     * more specific than all of them, wherever it appears.
+     */
+    @Test
+    public void testChooseRivalsResolved(){
+        List<ObjectAndMethod> oams = getOams(new TestClass(), "crossed");
+        oams.addAll(getOams(new NarrowTestClass(), "crossed"));
+        for(int i = 0; i < 10; i++){
+            ObjectAndMethod oam = OverloadResolver.choose("crossed", oams, new Object[]{"Foo", "Bar"});
+            assertEquals("Wrong method chosen", NarrowTestClass.class, oam.getSource().getClass());
+            Collections.shuffle(oams);
+        }
+    }
+
+    private List<ObjectAndMethod> getOams(Object source, String name){
+        List<ObjectAndMethod> oams = new ArrayList<>();
+        for(Method m : source.getClass().getMethods()){
+            if(m.getName().equals(name)){
+                oams.add(new ObjectAndMethod(source, m));
+            }
+        }
+        return oams;
+    }
+
+    public static class TestClass {
+
+        public void single(Object o){}
+
+        public void single(CharSequence s){}
+
+        public void single(String s){}
+
+        public void single(String... s){}
+
+        public void number(long l){}
+
+        public void number(int i){}
+
+        public void crossed(Object o, String s){}
+
+        public void crossed(String s, Object o){}
+
+    }
+
+    public static class NarrowTestClass {
+
+        public void crossed(String s1, String s2){}
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JMH benchmark for ParamUtils.isAcceptablePrimitive(...),
+ * covering all 8x8 combinations of primitive and wrapper types.
+ * Run it with the main method, after compiling the test classes.
+ *
+ * Created by craig on 10/16/26.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class ParamUtilsBenchmark {
+
+    private static final int COMBINATIONS = 64;
+
+    private Class<?>[] primitives = {boolean.class, byte.class, short.class, char.class, int.class, long.class, float.class, double.class};
+    private Class<?>[] wrappers = {Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class};
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINATIONS)
+    public void primitiveAcceptingPrimitive(Blackhole blackhole){
+        for(Class<?> expected : primitives){
+            for(Class<?> actual : primitives){
+                blackhole.consume(ParamUtils.isAcceptablePrimitive(expected, actual));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINATIONS)
+    public void primitiveAcceptingWrapper(Blackhole blackhole){
+        for(Class<?> expected : primitives){
+            for(Class<?> actual : wrappers){
+                blackhole.consume(ParamUtils.isAcceptablePrimitive(expected, actual));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINATIONS)
+    public void wrapperAcceptingPrimitive(Blackhole blackhole){
+        for(Class<?> expected : wrappers){
+            for(Class<?> actual : primitives){
+                blackhole.consume(ParamUtils.isAcceptablePrimitive(expected, actual));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException{
+        new Runner(new OptionsBuilder()
+                .include(ParamUtilsBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -49,6 +49,52 @@ public class ParamUtilsTest {
         assertTrue("The primitive long wouldn't accept the primitive int", result);
     }
 
+    /**
+     * Test isAcceptablePrimitive with types that aren't primitives
+     * or wrappers, which should simply not be accepted.
+     */
+    @Test
+    public void testIsAcceptablePrimitiveNonWrapperTypes(){
+        assertFalse("The String class was able to accept the primitive int", ParamUtils.isAcceptablePrimitive(String.class, int.class));
+        assertFalse("The primitive int was able to accept the String class", ParamUtils.isAcceptablePrimitive(int.class, String.class));
+        assertFalse("The primitive void was able to accept the primitive int", ParamUtils.isAcceptablePrimitive(void.class, int.class));
+        assertTrue("The Number class wasn't able to accept the primitive int", ParamUtils.isAcceptablePrimitive(Number.class, int.class));
+        assertTrue("The Object class wasn't able to accept the primitive boolean", ParamUtils.isAcceptablePrimitive(Object.class, boolean.class));
+    }
+
+    /**
+     * Test isAcceptablePrimitive for every combination of primitive
+     * and wrapper types, against the widening rules of the JLS.
+     */
+    @Test
+    public void testIsAcceptablePrimitiveAllCombinations(){
+        //Each type in the order of widening, so a type can accept everything before it in the same group
+        Class<?>[] primitives = {boolean.class, byte.class, short.class, char.class, int.class, long.class, float.class, double.class};
+        Class<?>[] wrappers = {Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class};
+        boolean[][] accepts = {
+                //boolean, byte,  short, char,  int,   long,  float, double
+                {true,  false, false, false, false, false, false, false}, //boolean
+                {false, true,  false, false, false, false, false, false}, //byte
+                {false, true,  true,  false, false, false, false, false}, //short
+                {false, false, false, true,  false, false, false, false}, //char
+                {false, true,  true,  true,  true,  false, false, false}, //int
+                {false, true,  true,  true,  true,  true,  false, false}, //long
+                {false, true,  true,  true,  true,  true,  true,  false}, //float
+                {false, true,  true,  true,  true,  true,  true,  true}   //double
+        };
+
+        for(int i = 0; i < primitives.length; i++){
+            for(int j = 0; j < primitives.length; j++){
+                String message = primitives[i] + " accepting " + primitives[j];
+                assertEquals(message, accepts[i][j], ParamUtils.isAcceptablePrimitive(primitives[i], primitives[j]));
+                message = primitives[i] + " accepting " + wrappers[j];
+                assertEquals(message, accepts[i][j], ParamUtils.isAcceptablePrimitive(primitives[i], wrappers[j]));
+                message = wrappers[i] + " accepting " + primitives[j];
+                assertEquals(message, accepts[i][j], ParamUtils.isAcceptablePrimitive(wrappers[i], primitives[j]));
+            }
+        }
+    }
+
     /**
      * Test validateAndConvert method.
      *
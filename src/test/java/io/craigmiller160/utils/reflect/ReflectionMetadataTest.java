@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import io.craigmiller160.utils.sample.ModelTwo;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * A JUnit test class for the ReflectionMetadata class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class ReflectionMetadataTest {
+
+    @Test
+    public void testSharedMetadata() throws Exception{
+        Method method = ModelOne.class.getMethod("setThreeFields", String.class, int.class, double.class);
+        Method copy = ModelOne.class.getMethod("setThreeFields", String.class, int.class, double.class);
+
+        Class<?>[] paramTypes = ReflectionMetadata.getParameterTypes(method);
+        assertArrayEquals("Wrong param types", method.getParameterTypes(), paramTypes);
+        assertSame("Param types aren't shared between copies of a method", paramTypes, ReflectionMetadata.getParameterTypes(copy));
+        assertEquals("Wrong param count", 3, ReflectionMetadata.getParameterCount(method));
+
+        ReflectionMetadata metadata = ReflectionMetadata.forClass(ModelOne.class);
+        assertSame("Methods aren't shared", metadata.getMethods(), metadata.getMethods());
+        assertEquals("Wrong number of methods", ModelOne.class.getMethods().length, metadata.getMethods().length);
+        assertSame("Constructors aren't shared", metadata.getConstructors(), metadata.getConstructors());
+        assertEquals("Wrong constructors", Arrays.asList(ModelOne.class.getConstructors()), Arrays.asList(metadata.getConstructors()));
+        assertSame("MethodIndex isn't shared", metadata.getMethodIndex(), MethodIndex.forClass(ModelOne.class));
+
+        //The public holders return copies, so changing them can't corrupt the shared array
+        new ObjectAndMethod(new ModelOne(), method).getParamTypes()[0] = Object.class;
+        assertEquals("Shared param types were modified", String.class, ReflectionMetadata.getParameterTypes(method)[0]);
+
+        Constructor<?> constructor = ModelOne.class.getConstructor();
+        assertEquals("Wrong constructor param count", 0, ReflectionMetadata.getParameterCount(constructor));
+    }
+
+    /**
+     * Test that the metadata of a class, and the resolutions
+     * of calls dispatched to it, don't prevent its classloader
+     * from being unloaded.
+     */
+    @Test
+    public void testClassUnloading() throws Exception{
+        WeakReference<ClassLoader> loaderRef = loadAndDiscard();
+        for(int i = 0; i < 50 && loaderRef.get() != null; i++){
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("ClassLoader was not unloaded", loaderRef.get());
+    }
+
+    private WeakReference<ClassLoader> loadAndDiscard() throws Exception{
+        URL classes = ModelTwo.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{classes}, null);
+        Class<?> type = loader.loadClass(ModelTwo.class.getName());
+
+        ReflectionMetadata metadata = ReflectionMetadata.forClass(type);
+        for(Method method : metadata.getMethods()){
+            ReflectionMetadata.getParameterTypes(method);
+        }
+        MethodIndex.forClass(type).getCandidates("setStringField", 1);
+        Object obj = ObjectCreator.instantiateClass(type);
+
+        //Dispatch through the resolution cache, including a failed resolution and one keyed by a param type
+        FindAndInvoke.findInvokeOneMethod("setStringField", new Object[]{obj}, "Foo");
+        assertEquals("Wrong value from call site", "Foo", FindAndInvoke.bind("getStringField", 0).invoke(obj));
+        assertSame("Resolution should have failed", FindAndInvoke.NO_METHOD, FindAndInvoke.tryFindInvokeOneMethod("setStringField", new Object[]{obj}, 1));
+        assertEquals("Wrong result for param type", false, FindAndInvoke.findInvokeOneMethod("equals", new Object[]{"Foo"}, obj));
+
+        loader.close();
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+}
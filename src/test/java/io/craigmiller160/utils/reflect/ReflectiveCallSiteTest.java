@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import io.craigmiller160.utils.sample.ModelTwo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for the ReflectiveCallSite class.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class ReflectiveCallSiteTest {
+
+    @Test
+    public void testMonomorphic(){
+        ReflectiveCallSite callSite = FindAndInvoke.bind("setStringField", 1);
+        ModelOne modelOne = new ModelOne();
+        for(int i = 0; i < 10; i++){
+            callSite.invoke(modelOne, "Foo" + i);
+            assertEquals("ModelOne StringField is the wrong value", "Foo" + i, modelOne.getStringField());
+        }
+        assertEquals("Wrong number of cached shapes", 1, callSite.getCachedShapeCount());
+    }
+
+    @Test
+    public void testPolymorphic(){
+        ReflectiveCallSite callSite = FindAndInvoke.bind("setStringField", 1);
+        ModelOne modelOne = new ModelOne();
+        ModelTwo modelTwo = new ModelTwo();
+
+        callSite.invoke(modelOne, "Foo");
+        callSite.invoke(modelTwo, "Bar");
+        callSite.invoke(modelOne, "Baz");
+
+        assertEquals("ModelOne StringField is the wrong value", "Baz", modelOne.getStringField());
+        assertEquals("ModelTwo StringField is the wrong value", "Bar", modelTwo.getStringField());
+        assertEquals("Wrong number of cached shapes", 2, callSite.getCachedShapeCount());
+        assertFalse("Call site is megamorphic", callSite.isMegamorphic());
+    }
+
+    /**
+     * Test that once the cache is full, calls still
+     * succeed through the global resolution.
+     */
+    @Test
+    public void testMegamorphic(){
+        ReflectiveCallSite callSite = FindAndInvoke.bind("toString", 0);
+        Object[] targets = {1, 2L, 3.0, 4.0f, (short) 5, (byte) 6, 'c', "eight", true, new StringBuilder("ten")};
+        for(Object target : targets){
+            assertEquals("Wrong result", target.toString(), callSite.invoke(target));
+        }
+
+        assertTrue("Call site is not megamorphic", callSite.isMegamorphic());
+        assertEquals("Wrong number of cached shapes", ReflectiveCallSite.MAX_CACHED_SHAPES, callSite.getCachedShapeCount());
+    }
+
+    @Test
+    public void testNoMethod(){
+        ReflectiveCallSite callSite = FindAndInvoke.bind("setStringField", 1);
+        boolean exceptionThrown = false;
+        try{
+            callSite.invoke(new ModelOne(), 12);
+        }
+        catch(NoMethodException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception was thrown for missing method", exceptionThrown);
+        assertEquals("Failed resolution was cached", 0, callSite.getCachedShapeCount());
+    }
+
+    @Test
+    public void testMetrics(){
+        InMemoryInvocationMetrics metrics = new InMemoryInvocationMetrics();
+        FindAndInvoke.setInvocationMetrics(metrics);
+        try{
+            ReflectiveCallSite callSite = FindAndInvoke.bind("setStringField", 1);
+            ModelOne modelOne = new ModelOne();
+            callSite.invoke(modelOne, "Foo");
+            callSite.invoke(modelOne, "Bar");
+            assertEquals("ModelOne StringField is the wrong value", "Bar", modelOne.getStringField());
+
+            boolean exceptionThrown = false;
+            try{
+                callSite.invoke(modelOne, 12);
+            }
+            catch(NoMethodException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("No exception was thrown for missing method", exceptionThrown);
+
+            ReflectiveCallSite failingSite = FindAndInvoke.bind("parseInt", 1);
+            exceptionThrown = false;
+            try{
+                failingSite.invoke(0, "Foo");
+            }
+            catch(RuntimeException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("No exception was thrown by method", exceptionThrown);
+        }
+        finally{
+            FindAndInvoke.setInvocationMetrics(InvocationMetrics.NO_OP);
+        }
+
+        InMemoryInvocationMetrics.Snapshot snapshot = metrics.getSnapshot("setStringField");
+        assertNotNull("Invocations were not recorded", snapshot);
+        assertEquals("Wrong success count", 2, snapshot.getCount(InvocationMetrics.Outcome.SUCCESS));
+        assertEquals("Wrong no method count", 1, snapshot.getCount(InvocationMetrics.Outcome.NO_METHOD));
+
+        snapshot = metrics.getSnapshot("parseInt");
+        assertNotNull("Invocation was not recorded", snapshot);
+        assertEquals("Wrong failure count", 1, snapshot.getCount(InvocationMetrics.Outcome.FAILURE));
+    }
+
+}
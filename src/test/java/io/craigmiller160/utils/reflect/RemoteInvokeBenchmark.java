@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.reflect;
+
+import io.craigmiller160.utils.sample.ModelOne;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JMH benchmark comparing the per-call latency of the
+ * different RemoteInvoke backends. Run it with the main
+ * method, after compiling the test classes. Trace logging
+ * is disabled for the benchmark, so that it measures only
+ * the invocations.
+ *
+ * Created by craig on 10/16/26.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class RemoteInvokeBenchmark {
+
+    private ModelOne modelOne;
+    private ObjectAndMethod getterOam;
+    private ObjectAndMethod setterOam;
+    private Object[] noParams;
+    private Object[] setterParams;
+
+    @Setup
+    public void setup() throws Exception{
+        modelOne = new ModelOne();
+        modelOne.setStringField("Value");
+        getterOam = new ObjectAndMethod(modelOne, ModelOne.class.getMethod("getStringField"));
+        setterOam = new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setThreeFields", String.class, int.class, double.class));
+        noParams = new Object[0];
+        setterParams = new Object[]{"Value", 1, 2.0};
+    }
+
+    @Benchmark
+    public Object directGetter(){
+        return modelOne.getStringField();
+    }
+
+    @Benchmark
+    public Object reflectionGetter(){
+        return RemoteInvoke.invokeMethod(InvocationBackend.REFLECTION, getterOam, noParams);
+    }
+
+    @Benchmark
+    public Object methodHandleGetter(){
+        return RemoteInvoke.invokeMethod(InvocationBackend.METHOD_HANDLE, getterOam, noParams);
+    }
+
+    @Benchmark
+    public Object directGeneratedGetter(){
+        return RemoteInvoke.invokeMethod(InvocationBackend.DIRECT, getterOam, noParams);
+    }
+
+    @Benchmark
+    public Object reflectionSetter(){
+        return RemoteInvoke.invokeMethod(InvocationBackend.REFLECTION, setterOam, setterParams);
+    }
+
+    @Benchmark
+    public Object methodHandleSetter(){
+        return RemoteInvoke.invokeMethod(InvocationBackend.METHOD_HANDLE, setterOam, setterParams);
+    }
+
+    @Benchmark
+    public Object directGeneratedSetter(){
+        return RemoteInvoke.invokeMethod(InvocationBackend.DIRECT, setterOam, setterParams);
+    }
+
+    public static void main(String[] args) throws RunnerException{
+        new Runner(new OptionsBuilder()
+                .include(RemoteInvokeBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -16,13 +16,31 @@
 
 package io.craigmiller160.utils.reflect;
 
+import io.craigmiller160.utils.sample.Hidden;
 import io.craigmiller160.utils.sample.ModelOne;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * A JUnit test class to test the
@@ -112,4 +130,385 @@ public class RemoteInvokeTest {
         assertEquals("ModelOne LongField is the wrong value", newValue, modelOne.getLongField());
     }
 
+    @Test
+    public void testMethodHandleBackend() throws Exception{
+        ModelOne modelOne = new ModelOne();
+        Method m = modelOne.getClass().getMethod("setThreeFields", String.class, int.class, double.class);
+        ObjectAndMethod oam = new ObjectAndMethod(modelOne, m);
+
+        RemoteInvoke.validateAndInvokeMethod(InvocationBackend.METHOD_HANDLE, oam, "NewValue", 5, 2.5);
+
+        assertEquals("ModelOne StringField is the wrong value", "NewValue", modelOne.getStringField());
+        assertEquals("ModelOne IntField is the wrong value", 5, modelOne.getIntField());
+        assertEquals("ModelOne DoubleField is the wrong value", 2.5, modelOne.getDoubleField(), 0);
+
+        m = modelOne.getClass().getMethod("getMultipleFields", int[].class);
+        oam = new ObjectAndMethod(modelOne, m);
+
+        Object[] result = (Object[]) RemoteInvoke.validateAndInvokeMethod(InvocationBackend.METHOD_HANDLE, oam,
+                ModelOne.STRING_FIELD, ModelOne.INT_FIELD);
+
+        assertNotNull("Result of RemoteInvoke is null", result);
+        assertEquals("Result is the wrong size", 2, result.length);
+        assertEquals("Result[0] has the wrong value", "NewValue", result[0]);
+        assertEquals("Result[1] has the wrong value", 5, result[1]);
+    }
+
+    @Test
+    public void testMethodHandleBackendException() throws Exception{
+        Method m = Integer.class.getMethod("parseInt", String.class);
+        ClassAndMethod cam = new ClassAndMethod(Integer.class, m);
+        assertNotNull("No MethodHandle for static method", cam.getMethodHandle());
+
+        ObjectAndMethod oam = new ObjectAndMethod(0, m);
+        assertEquals("Static method returned the wrong value", 12, RemoteInvoke.invokeMethod(InvocationBackend.METHOD_HANDLE, oam, "12"));
+    }
+
+    /**
+     * Test that every backend reports the exceptions thrown by
+     * the method the same way, wrapped in an InvocationException,
+     * including checked exceptions that are themselves reflective.
+     *
+     * @throws Exception if unable to get the methods.
+     */
+    @Test
+    public void testBackendExceptions() throws Exception{
+        Thrower thrower = new Thrower();
+        ObjectAndMethod unchecked = new ObjectAndMethod(thrower, Thrower.class.getMethod("throwUnchecked"));
+        ObjectAndMethod checked = new ObjectAndMethod(thrower, Thrower.class.getMethod("throwChecked"));
+        for(InvocationBackend backend : InvocationBackend.values()){
+            for(int i = 0; i < DirectInvokers.getGenerationThreshold() * 2; i++){
+                assertInvocationException(backend, unchecked, IllegalStateException.class);
+                assertInvocationException(backend, checked, ClassNotFoundException.class);
+            }
+        }
+    }
+
+    private void assertInvocationException(InvocationBackend backend, ObjectAndMethod oam, Class<? extends Throwable> causeType){
+        try{
+            RemoteInvoke.invokeMethod(backend, oam);
+            fail("Should have thrown InvocationException with backend " + backend);
+        }
+        catch(InvocationException ex){
+            assertEquals("Wrong cause with backend " + backend, causeType, ex.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void testDirectBackend() throws Throwable{
+        ModelOne modelOne = new ModelOne();
+        Method m = modelOne.getClass().getMethod("setIntField", int.class);
+        ObjectAndMethod oam = new ObjectAndMethod(modelOne, m);
+
+        DirectInvoker invoker = oam.getDirectInvoker();
+        assertTrue("Direct invoker was not generated", invoker instanceof DirectInvokers.Run1);
+        assertSame("Direct invoker was not cached", invoker, DirectInvokers.getDirectInvoker(m));
+
+        for(int i = 0; i < DirectInvokers.getGenerationThreshold() + 1; i++){
+            RemoteInvoke.validateAndInvokeMethod(InvocationBackend.DIRECT, oam, i);
+            assertEquals("ModelOne IntField is the wrong value", i, modelOne.getIntField());
+        }
+
+        m = modelOne.getClass().getMethod("getField", int.class);
+        oam = new ObjectAndMethod(modelOne, m);
+        Object result = oam.getDirectInvoker().invoke(modelOne, new Object[]{ModelOne.INT_FIELD});
+        assertEquals("Direct invoker returned the wrong value", modelOne.getIntField(), result);
+    }
+
+    @Test
+    public void testDirectBackendWidening() throws Exception{
+        ModelOne modelOne = new ModelOne();
+        ObjectAndMethod longMethod = new ObjectAndMethod(modelOne, modelOne.getClass().getMethod("setLongField", long.class));
+        ObjectAndMethod doubleMethod = new ObjectAndMethod(modelOne, modelOne.getClass().getMethod("setDoubleField", double.class));
+
+        //Run past the generation threshold, so the widened params are passed once the invoker has been generated
+        for(int i = 0; i < DirectInvokers.getGenerationThreshold() * 2; i++){
+            RemoteInvoke.validateAndInvokeMethod(InvocationBackend.DIRECT, longMethod, (long) i);
+            assertEquals("ModelOne LongField is the wrong value", i, modelOne.getLongField());
+
+            RemoteInvoke.validateAndInvokeMethod(InvocationBackend.DIRECT, longMethod, i);
+            assertEquals("Integer was not widened to a long", i, modelOne.getLongField());
+
+            RemoteInvoke.validateAndInvokeMethod(InvocationBackend.DIRECT, longMethod, (short) i);
+            assertEquals("Short was not widened to a long", i, modelOne.getLongField());
+
+            RemoteInvoke.validateAndInvokeMethod(InvocationBackend.DIRECT, longMethod, 'a');
+            assertEquals("Character was not widened to a long", 'a', modelOne.getLongField());
+
+            RemoteInvoke.validateAndInvokeMethod(InvocationBackend.DIRECT, doubleMethod, i);
+            assertEquals("Integer was not widened to a double", i, modelOne.getDoubleField(), 0);
+        }
+        assertTrue("Direct invoker was not generated", longMethod.getDirectInvoker() instanceof DirectInvokers.Run1);
+    }
+
+    @Test
+    public void testInvokeMethodAsync() throws Exception{
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            Method m = Integer.class.getMethod("parseInt", String.class);
+            ObjectAndMethod oam = new ObjectAndMethod(0, m);
+
+            CompletableFuture<Object> future = RemoteInvoke.validateAndInvokeMethodAsync(executor, oam, "12");
+            assertEquals("Async invocation returned the wrong value", 12, future.get(5, TimeUnit.SECONDS));
+
+            future = RemoteInvoke.invokeMethodAsync(executor, oam, "Foo");
+            Throwable failure = null;
+            try{
+                future.get(5, TimeUnit.SECONDS);
+            }
+            catch(ExecutionException ex){
+                failure = ex.getCause();
+            }
+            assertTrue("Async failure was not mapped by ExceptionHandler", failure instanceof InvocationException);
+            assertTrue("Async failure has the wrong cause", failure.getCause() instanceof NumberFormatException);
+
+            boolean exceptionThrown = false;
+            try{
+                RemoteInvoke.validateAndInvokeMethodAsync(executor, oam, 12);
+            }
+            catch(ReflectiveException ex){
+                exceptionThrown = true;
+            }
+            assertTrue("Invalid params were not rejected on the calling thread", exceptionThrown);
+        }
+        finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvokeMethodBatch() throws Exception{
+        Method m = Integer.class.getMethod("parseInt", String.class);
+        ObjectAndMethod oam = new ObjectAndMethod(0, m);
+
+        List<Object[]> rows = new ArrayList<>();
+        for(int i = 0; i < 1000; i++){
+            rows.add(new Object[]{String.valueOf(i)});
+        }
+
+        final Object[] results = new Object[rows.size()];
+        BatchResultConsumer consumer = new BatchResultConsumer() {
+            @Override
+            public void accept(int index, Object result) {
+                results[index] = result;
+            }
+        };
+
+        assertEquals("Wrong number of sequential invocations", rows.size(), RemoteInvoke.invokeMethodBatch(oam, rows, consumer));
+        for(int i = 0; i < results.length; i++){
+            assertEquals("Sequential result " + i + " has the wrong value", i, results[i]);
+        }
+
+        Arrays.fill(results, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try{
+            assertEquals("Wrong number of parallel invocations", rows.size(), RemoteInvoke.invokeMethodBatch(pool, oam, rows, consumer));
+        }
+        finally{
+            pool.shutdown();
+        }
+        for(int i = 0; i < results.length; i++){
+            assertEquals("Parallel result " + i + " has the wrong value", i, results[i]);
+        }
+
+        rows.add(new Object[]{12});
+        boolean exceptionThrown = false;
+        try{
+            RemoteInvoke.invokeMethodBatch(oam, rows, null);
+        }
+        catch(ReflectiveException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("Invalid row was not rejected", exceptionThrown);
+    }
+
+    /**
+     * Test that invoking a method with params that have already
+     * been validated allocates nothing once it has warmed up, with
+     * every backend, when trace logging is disabled. Validating
+     * params that need no conversion shouldn't allocate either.
+     *
+     * @throws Exception if unable to get the method.
+     */
+    @Test
+    public void testInvokeMethodAllocationFree() throws Exception{
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counting is not supported", bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ModelOne modelOne = new ModelOne();
+        ObjectAndMethod oam = new ObjectAndMethod(modelOne, modelOne.getClass().getMethod("setStringField", String.class));
+        Object[] params = MethodUtils.validateInvocationAndConvertParams(oam.getReflectiveComponent(), "Foo");
+
+        Level level = LogManager.getLogger(RemoteInvoke.class).getLevel();
+        Configurator.setLevel(RemoteInvoke.class.getName(), Level.INFO);
+        try{
+            for(InvocationBackend backend : InvocationBackend.values()){
+                for(int i = 0; i < 20000; i++){
+                    RemoteInvoke.invokeMethod(backend, oam, params);
+                    RemoteInvoke.validateAndInvokeMethod(backend, oam, params);
+                }
+
+                //The minimum of several rounds is used, so a one-off allocation by the JVM itself doesn't fail the test
+                long allocated = Long.MAX_VALUE;
+                long validatedAllocated = Long.MAX_VALUE;
+                for(int round = 0; round < 5; round++){
+                    allocated = Math.min(allocated, measureAllocation(threadBean, backend, oam, params, false));
+                    validatedAllocated = Math.min(validatedAllocated, measureAllocation(threadBean, backend, oam, params, true));
+                }
+
+                assertEquals("Invocation allocated memory with backend " + backend, 0, allocated);
+                assertEquals("Validated invocation allocated memory with backend " + backend, 0, validatedAllocated);
+            }
+        }
+        finally{
+            Configurator.setLevel(RemoteInvoke.class.getName(), level);
+        }
+    }
+
+    /**
+     * Test that no backend can invoke a public method of a class
+     * that isn't accessible, just like reflection can't, including
+     * after the DIRECT backend would have generated an invoker.
+     *
+     * @throws Exception if unable to get the method.
+     */
+    @Test
+    public void testInaccessibleClass() throws Exception{
+        Object hidden = Hidden.newModel();
+        ObjectAndMethod oam = new ObjectAndMethod(hidden, hidden.getClass().getMethod("getValue"));
+        for(InvocationBackend backend : InvocationBackend.values()){
+            for(int i = 0; i < DirectInvokers.getGenerationThreshold() * 2; i++){
+                try{
+                    RemoteInvoke.invokeMethod(backend, oam);
+                    fail("Should have thrown ReflectiveException with backend " + backend);
+                }
+                catch(ReflectiveException ex){
+                    //Expected
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the invocations with primitive
+     * params and return values.
+     */
+    @Test
+    public void testPrimitiveInvocation() throws Exception{
+        ModelOne modelOne = new ModelOne();
+        RemoteInvoke.invokeInt(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setIntField", int.class)), 100000);
+        RemoteInvoke.invokeLong(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setLongField", long.class)), 5000000000L);
+        RemoteInvoke.invokeDouble(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setDoubleField", double.class)), 2.5);
+        //An int can be widened to a float
+        RemoteInvoke.invokeInt(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setFloatField", float.class)), 7);
+
+        assertEquals("IntField is the wrong value", 100000,
+                RemoteInvoke.invokeReturningInt(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("getIntField"))));
+        assertEquals("LongField is the wrong value", 5000000000L,
+                RemoteInvoke.invokeReturningLong(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("getLongField"))));
+        assertEquals("DoubleField is the wrong value", 2.5,
+                RemoteInvoke.invokeReturningDouble(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("getDoubleField"))), 0);
+        assertEquals("FloatField is the wrong value", 7f, modelOne.getFloatField(), 0);
+
+        ObjectAndMethod abs = new ObjectAndMethod(modelOne, Math.class.getMethod("abs", double.class));
+        assertEquals("Static method returned the wrong value", 1.5, RemoteInvoke.invokeDoubleReturningDouble(abs, -1.5), 0);
+
+        boolean exceptionThrown = false;
+        try{
+            RemoteInvoke.invokeLong(new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setIntField", int.class)), 1L);
+        }
+        catch(ReflectiveException ex){
+            exceptionThrown = true;
+        }
+        assertTrue("No exception was thrown for a narrowing conversion", exceptionThrown);
+    }
+
+    /**
+     * Test that the invocations with primitive params and return
+     * values allocate nothing once they have warmed up, including
+     * when different typed entry points alternate on the same method.
+     */
+    @Test
+    public void testPrimitiveInvocationAllocationFree() throws Exception{
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counting is not supported", bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ModelOne modelOne = new ModelOne();
+        ObjectAndMethod setter = new ObjectAndMethod(modelOne, ModelOne.class.getMethod("setLongField", long.class));
+        ObjectAndMethod getter = new ObjectAndMethod(modelOne, ModelOne.class.getMethod("getLongField"));
+
+        for(boolean alternate : new boolean[]{false, true}){
+            for(int i = 0; i < 20; i++){
+                measurePrimitiveAllocation(threadBean, setter, getter, alternate);
+            }
+
+            //The minimum of several rounds is used, so a one-off allocation by the JVM itself doesn't fail the test
+            long allocated = Long.MAX_VALUE;
+            for(int round = 0; round < 5; round++){
+                allocated = Math.min(allocated, measurePrimitiveAllocation(threadBean, setter, getter, alternate));
+            }
+            assertEquals("Primitive invocations allocated memory, alternating: " + alternate, 0, allocated);
+        }
+    }
+
+    public static class Thrower {
+
+        public void throwUnchecked(){
+            throw new IllegalStateException("Unchecked");
+        }
+
+        public void throwChecked() throws ClassNotFoundException{
+            throw new ClassNotFoundException("Checked");
+        }
+
+    }
+
+    private long measurePrimitiveAllocation(com.sun.management.ThreadMXBean threadBean, ObjectAndMethod setter,
+                                            ObjectAndMethod getter, boolean alternate){
+        long threadId = Thread.currentThread().getId();
+        //Measure the cost of measuring, so it can be excluded
+        long overheadStart = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for(int i = 100000; i < 101000; i++){
+            //Values outside the Long cache, so boxing them would allocate
+            if(alternate && i % 2 == 0){
+                RemoteInvoke.invokeInt(setter, i);
+            }
+            else{
+                RemoteInvoke.invokeLong(setter, i);
+            }
+            if(RemoteInvoke.invokeReturningLong(getter) != i){
+                throw new AssertionError("LongField is the wrong value");
+            }
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - start - overhead;
+    }
+
+    private long measureAllocation(com.sun.management.ThreadMXBean threadBean, InvocationBackend backend,
+                                   ObjectAndMethod oam, Object[] params, boolean validate){
+        long threadId = Thread.currentThread().getId();
+        //Measure the cost of measuring, so it can be excluded
+        long overheadStart = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < 1000; i++){
+            if(validate){
+                RemoteInvoke.validateAndInvokeMethod(backend, oam, params);
+            }
+            else{
+                RemoteInvoke.invokeMethod(backend, oam, params);
+            }
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - start - overhead;
+    }
+
 }
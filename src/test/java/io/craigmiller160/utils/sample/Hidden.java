@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Craig Miller
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.craigmiller160.utils.sample;
+
+/**
+ * Provides an instance of a class that isn't public,
+ * to test that its public members can't be accessed
+ * from outside of this package.
+ *
+ * Created by craig on 10/16/26.
+ */
+public class Hidden {
+
+    private Hidden(){}
+
+    public static Object newModel(){
+        return new Model();
+    }
+
+    public static Class<?> getModelClass(){
+        return Model.class;
+    }
+
+    private static class Model {
+
+        public Model(){}
+
+        public String getValue(){
+            return "Hidden";
+        }
+
+    }
+
+}